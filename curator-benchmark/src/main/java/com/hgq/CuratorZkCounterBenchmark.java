@@ -0,0 +1,84 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkCounterBenchmark
+ * @Description: CuratorZkTemplate 计数器与ID生成压测
+ * keys 为线程共享的计数器数，keys=1 时所有线程更新同一个计数器（乐观锁冲突最多）；
+ * 分片计数器和ID生成器按路径在线程之间共享同一实例，与业务中的用法一致
+ * @Author: hgq
+ * @Date: 2026-10-18 23:10
+ * @Version: 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CuratorZkCounterBenchmark {
+
+    private static final String ROOT = "/bench/counters";
+
+    @Param({"1", "8"})
+    public int keys;
+
+    private final Map<String, CuratorZkShardedCounter> shardedCounters = new ConcurrentHashMap<>();
+    private final Map<String, CuratorZkIdGenerator> idGenerators = new ConcurrentHashMap<>();
+
+    @State(Scope.Thread)
+    public static class CounterKey {
+        private DistributedAtomicLong atomicLong;
+        private CuratorZkShardedCounter shardedCounter;
+        private CuratorZkIdGenerator idGenerator;
+
+        @Setup(Level.Trial)
+        public void setUp(CuratorZkCounterBenchmark benchmark, ZkEnsembleState zk, ThreadParams threadParams) {
+            String name = "k" + threadParams.getThreadIndex() % benchmark.keys;
+            atomicLong = zk.template.getAtomicLong(ROOT + "/atomic/" + name);
+            shardedCounter = benchmark.shardedCounters.computeIfAbsent(name, key -> zk.template.getShardedCounter(ROOT + "/sharded/" + key));
+            idGenerator = benchmark.idGenerators.computeIfAbsent(name, key -> zk.template.getIdGenerator(ROOT + "/id/" + key));
+        }
+    }
+
+    @Benchmark
+    public AtomicValue<Long> atomicLongIncrement(CounterKey key) throws Exception {
+        return key.atomicLong.increment();
+    }
+
+    @Benchmark
+    public boolean shardedCounterIncrement(CounterKey key) throws Exception {
+        return key.shardedCounter.increment();
+    }
+
+    @Benchmark
+    public long shardedCounterGet(CounterKey key) throws Exception {
+        return key.shardedCounter.get();
+    }
+
+    @Benchmark
+    public long idGeneratorNextId(CounterKey key) {
+        return key.idGenerator.nextId();
+    }
+}
@@ -0,0 +1,139 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkLockBenchmark
+ * @Description: CuratorZkTemplate 锁与信号量压测，每次调用为一次完整的加锁+释放
+ * keys 为线程共享的lockKey数，keys=1 时所有线程竞争同一把锁，keys 不小于线程数时没有竞争；
+ * 信号量的最大租约数为 SEMAPHORE_LEASES
+ * 例：java -jar target/benchmarks.jar CuratorZkLockBenchmark -p keys=1 -t 32
+ * @Author: hgq
+ * @Date: 2026-10-18 23:10
+ * @Version: 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CuratorZkLockBenchmark {
+
+    private static final String ROOT = "/bench/locks";
+    private static final int SEMAPHORE_LEASES = 4;
+
+    @Param({"1", "8"})
+    public int keys;
+
+    /**
+     * 同一lockKey在同一JVM内复用同一个批量租约信号量
+     */
+    private final Map<String, CuratorZkBatchedSemaphore> batchedSemaphores = new ConcurrentHashMap<>();
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batchedSemaphores.values().forEach(CuratorZkBatchedSemaphore::close);
+        batchedSemaphores.clear();
+    }
+
+    @State(Scope.Thread)
+    public static class LockKey {
+        private String path;
+        private String name;
+        private InterProcessSemaphoreV2 semaphore;
+        private CuratorZkBatchedSemaphore batchedSemaphore;
+
+        @Setup(Level.Trial)
+        public void setUp(CuratorZkLockBenchmark benchmark, ZkEnsembleState zk, ThreadParams threadParams) {
+            name = "bench-k" + threadParams.getThreadIndex() % benchmark.keys;
+            path = ROOT + "/" + name;
+            semaphore = zk.template.getSharedSemaphoreLock(ROOT + "-semaphore/" + name, SEMAPHORE_LEASES);
+            batchedSemaphore = benchmark.batchedSemaphores.computeIfAbsent(name,
+                    key -> zk.template.getBatchedSemaphore(ROOT + "-batched-semaphore/" + key, SEMAPHORE_LEASES));
+        }
+    }
+
+    @Benchmark
+    public void sharedReentrantLock(ZkEnsembleState zk, LockKey key) throws Exception {
+        InterProcessLock lock = zk.template.getSharedReentrantLock(key.path);
+        lock.acquire();
+        lock.release();
+    }
+
+    @Benchmark
+    public void sharedLock(ZkEnsembleState zk, LockKey key) throws Exception {
+        InterProcessLock lock = zk.template.getSharedLock(key.path + "-shared");
+        lock.acquire();
+        lock.release();
+    }
+
+    @Benchmark
+    public void readLock(ZkEnsembleState zk, LockKey key) throws Exception {
+        InterProcessLock lock = zk.template.getSharedReentrantReadWriteLock(key.path + "-rw").readLock();
+        lock.acquire();
+        lock.release();
+    }
+
+    @Benchmark
+    public void writeLock(ZkEnsembleState zk, LockKey key) throws Exception {
+        InterProcessLock lock = zk.template.getSharedReentrantReadWriteLock(key.path + "-rw").writeLock();
+        lock.acquire();
+        lock.release();
+    }
+
+    @Benchmark
+    public boolean distributedLock(ZkEnsembleState zk, LockKey key) {
+        CuratorZkDistributedLock lock = zk.template.getDistributedLock();
+        lock.acquireLock(key.name);
+        return lock.unlock();
+    }
+
+    @Benchmark
+    public boolean distributedLockWithChildrenIndex(ZkEnsembleState zk, LockKey key) {
+        CuratorZkDistributedLock lock = zk.template.getDistributedLock(true);
+        lock.acquireLock(key.name + "-indexed");
+        return lock.unlock();
+    }
+
+    @Benchmark
+    public void coalescingLock(ZkEnsembleState zk, LockKey key) throws Exception {
+        CuratorZkCoalescingLock lock = zk.template.getCoalescingLock(key.path + "-coalescing");
+        lock.acquire();
+        lock.release();
+    }
+
+    @Benchmark
+    public void semaphore(LockKey key) throws Exception {
+        Lease lease = key.semaphore.acquire();
+        key.semaphore.returnLease(lease);
+    }
+
+    @Benchmark
+    public void batchedSemaphore(LockKey key) throws Exception {
+        CuratorZkBatchedSemaphore.Permit permit = key.batchedSemaphore.acquire();
+        permit.close();
+    }
+}
@@ -0,0 +1,95 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.queue.SimpleDistributedQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkQueueBenchmark
+ * @Description: CuratorZkTemplate 分布式队列压测
+ * 每次调用先入队再出队，保证队列不会持续增长：SimpleDistributedQueue 一次一个元素，CuratorZkBatchQueue 一次 batchSize 个元素；
+ * keys 为线程共享的队列数，keys=1 时所有线程读写同一个队列
+ * @Author: hgq
+ * @Date: 2026-10-18 23:10
+ * @Version: 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CuratorZkQueueBenchmark {
+
+    private static final String ROOT = "/bench/queues";
+
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    @Param({"1", "8"})
+    public int keys;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private List<byte[]> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] payload = new byte[payloadSize];
+        Arrays.fill(payload, (byte) 'q');
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(payload);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class QueueKey {
+        private SimpleDistributedQueue queue;
+        private CuratorZkBatchQueue batchQueue;
+
+        @Setup(Level.Trial)
+        public void setUp(CuratorZkQueueBenchmark benchmark, ZkEnsembleState zk, ThreadParams threadParams) {
+            String name = "q" + threadParams.getThreadIndex() % benchmark.keys;
+            queue = zk.template.getQueue(ROOT + "/simple/" + name);
+            batchQueue = zk.template.getBatchQueue(ROOT + "/batch/" + name);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            batchQueue.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] simpleQueueOfferTake(QueueKey key) throws Exception {
+        key.queue.offer(batch.get(0));
+        return key.queue.take();
+    }
+
+    @Benchmark
+    public List<byte[]> batchQueueOfferDrain(QueueKey key) throws Exception {
+        key.batchQueue.offerAll(batch);
+        return key.batchQueue.drainTo(batchSize);
+    }
+}
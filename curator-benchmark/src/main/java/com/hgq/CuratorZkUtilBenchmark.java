@@ -0,0 +1,116 @@
+package com.hgq;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkUtilBenchmark
+ * @Description: CuratorZkUtil 节点读写压测
+ * payloadSize 为节点数据大小；keys 为线程共享的节点数，keys=1 时所有线程读写同一节点（竞争最激烈），
+ * keys 不小于线程数时各线程读写各自的节点；同时输出吞吐量和延迟分位数（SampleTime 的 p50/p90/p99/p99.9）
+ * 例：java -jar target/benchmarks.jar CuratorZkUtilBenchmark -p payloadSize=1024 -p ensemble=server,cluster -t 16
+ * @Author: hgq
+ * @Date: 2026-10-18 23:10
+ * @Version: 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CuratorZkUtilBenchmark {
+
+    private static final String ROOT = "/bench/util";
+    private static final int BATCH_SIZE = 16;
+
+    @Param({"16", "1024", "65536"})
+    public int payloadSize;
+
+    @Param({"1", "64"})
+    public int keys;
+
+    private String data;
+    private final List<String> batchPaths = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp(ZkEnsembleState zk) throws Exception {
+        StringBuilder builder = new StringBuilder(payloadSize);
+        for (int i = 0; i < payloadSize; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        data = builder.toString();
+        for (int i = 0; i < keys; i++) {
+            zk.client.create().orSetData().creatingParentsIfNeeded().forPath(ROOT + "/k" + i, data.getBytes(StandardCharsets.UTF_8));
+        }
+        batchPaths.clear();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String path = ROOT + "-batch/b" + i;
+            zk.client.create().orSetData().creatingParentsIfNeeded().forPath(path, data.getBytes(StandardCharsets.UTF_8));
+            batchPaths.add(path);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private String path;
+        private String createPrefix;
+        private long sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(CuratorZkUtilBenchmark benchmark, ThreadParams threadParams) {
+            path = ROOT + "/k" + threadParams.getThreadIndex() % benchmark.keys;
+            createPrefix = ROOT + "-tmp/t" + threadParams.getThreadIndex() + "-";
+        }
+    }
+
+    @Benchmark
+    public String getNodeData(Cursor cursor) {
+        return CuratorZkUtil.getNodeData(cursor.path);
+    }
+
+    @Benchmark
+    public Object setNodeData(Cursor cursor) {
+        return CuratorZkUtil.setNodeData(cursor.path, data);
+    }
+
+    @Benchmark
+    public boolean checkExistsNode(Cursor cursor) {
+        return CuratorZkUtil.checkExistsNode(cursor.path);
+    }
+
+    @Benchmark
+    public boolean createAndDelete(Cursor cursor) {
+        String path = CuratorZkUtil.createNodeData(cursor.createPrefix + cursor.sequence++, data);
+        return CuratorZkUtil.delNode(path);
+    }
+
+    @Benchmark
+    public List<String> queryChildPathList() {
+        return CuratorZkUtil.queryChildPathList(ROOT);
+    }
+
+    @Benchmark
+    public Map<String, CuratorZkNodeData> getNodeDataBatch() {
+        return CuratorZkUtil.getNodeDataBatch(batchPaths);
+    }
+}
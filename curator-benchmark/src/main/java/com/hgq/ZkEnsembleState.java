@@ -0,0 +1,76 @@
+package com.hgq;
+
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingCluster;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.ZkEnsembleState
+ * @Description: 压测共享的进程内 ZooKeeper 与客户端
+ * ensemble=server 使用单节点 TestingServer，ensemble=cluster 使用3节点 TestingCluster（写操作需要过半确认，更接近生产集群）；
+ * 每轮压测（trial）启动一次，CuratorZkTemplate / CuratorZkUtil 按自动配置的默认参数创建
+ * @Author: hgq
+ * @Date: 2026-10-18 23:10
+ * @Version: 1.0
+ */
+@State(Scope.Benchmark)
+public class ZkEnsembleState {
+
+    @Param({"server"})
+    public String ensemble;
+
+    public CuratorFramework client;
+    public CuratorZkTemplate template;
+    public CuratorZkUtil util;
+
+    private Closeable server;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String connectString;
+        if ("cluster".equals(ensemble)) {
+            TestingCluster cluster = new TestingCluster(3);
+            cluster.start();
+            server = cluster;
+            connectString = cluster.getConnectString();
+        } else {
+            TestingServer testingServer = new TestingServer(true);
+            server = testingServer;
+            connectString = testingServer.getConnectString();
+        }
+
+        CuratorZkProperties properties = new CuratorZkProperties();
+        RetryPolicy retryPolicy = new ExponentialBackoffRetry(properties.getBaseSleepTimeMs(), properties.getMaxRetries());
+        client = CuratorFrameworkFactory.builder()
+                .connectString(connectString)
+                .sessionTimeoutMs(properties.getSessionTimeoutMs())
+                .connectionTimeoutMs(properties.getConnectionTimeoutMs())
+                .retryPolicy(retryPolicy)
+                .compressionProvider(new CuratorZkCompressionProvider(properties.getCodec().getCompression()))
+                .build();
+        client.start();
+        if (!client.blockUntilConnected(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("connect to " + connectString + " timed out");
+        }
+        template = new CuratorZkTemplate(client, retryPolicy, properties);
+        util = new CuratorZkUtil(client, template.getChildrenIndexRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+    }
+}
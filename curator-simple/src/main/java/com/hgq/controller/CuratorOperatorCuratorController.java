@@ -2,13 +2,13 @@ package com.hgq.controller;
 
 import com.hgq.CuratorZkTemplate;
 import com.hgq.CuratorZkUtil;
+import com.hgq.ZkLock;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.curator.framework.api.CreateBuilder;
 import org.apache.curator.framework.api.transaction.CuratorOp;
 import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
 import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
-import org.apache.curator.framework.recipes.locks.InterProcessLock;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.data.Stat;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -56,29 +56,27 @@ public class CuratorOperatorCuratorController {
 
     /**
      * 测试锁
+     * 由 @ZkLock 获取和释放锁，方法抛出异常时同样会释放
      *
      * @return
      */
     @RequestMapping("hello")
+    @ZkLock(key = "'/curator-simple'")
     public String hello() {
-        String lockKey = "/curator-simple";
-        InterProcessLock lock = null;
-        try {
-            lock = curatorZkTemplate.getSharedLock(lockKey);
-            lock.acquire();
-            System.out.println(String.format("thread name:{%s} 获取锁 success！", Thread.currentThread().getName()));
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (null != lock) {
-                try {
-                    lock.release();
-                    System.out.println(String.format("thread name:{%s} 释放锁 success！", Thread.currentThread().getName()));
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+        System.out.println(String.format("thread name:{%s} 获取锁 success！", Thread.currentThread().getName()));
+        return "success";
+    }
+
+    /**
+     * 测试按参数加锁，同一 orderId 串行执行，最多等待3秒
+     *
+     * @param orderId
+     * @return
+     */
+    @RequestMapping("hello7")
+    @ZkLock(key = "#orderId", waitTime = 3000)
+    public String hello7(String orderId) {
+        System.out.println(String.format("thread name:{%s} orderId:{%s} 获取锁 success！", Thread.currentThread().getName(), orderId));
         return "success";
     }
 
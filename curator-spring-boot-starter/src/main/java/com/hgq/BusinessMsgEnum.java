@@ -16,6 +16,7 @@ import java.util.stream.Collectors;
  */
 public enum BusinessMsgEnum {
     SYSTEM_EXCEPTION("500", "系统异常"),
+    LOCK_TIMEOUT("408", "获取锁超时"),
     ;
 
     BusinessMsgEnum(String code, String msg) {
@@ -0,0 +1,370 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.x.async.AsyncCuratorFramework;
+import org.apache.curator.x.async.api.CreateOption;
+import org.apache.curator.x.async.api.DeleteOption;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * @ClassName com.hgq.CuratorZkAsyncUtil
+ * @Description: Curator 操作 Zookeeper 异步工具类
+ * 与 CuratorZkUtil 的方法一一对应，基于 AsyncCuratorFramework 实现，不占用调用线程；
+ * 异常处理与同步版本一致：记录日志后返回默认值（""、null、false）
+ * 返回的 CompletableFuture 在ZK事件线程中完成，耗时的后续处理请使用 thenXxxAsync 指定线程池
+ * @Author: hgq
+ * @Date: 2026-10-18 16:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkAsyncUtil {
+
+    private static final Set<CreateOption> CREATE_PARENTS = Collections.unmodifiableSet(EnumSet.of(CreateOption.createParentsIfNeeded));
+    private static final Set<CreateOption> CREATE_PARENTS_PROTECTED = Collections.unmodifiableSet(EnumSet.of(CreateOption.createParentsIfNeeded, CreateOption.doProtected));
+    private static final Set<CreateOption> SET_DATA_IF_EXISTS = Collections.unmodifiableSet(EnumSet.of(CreateOption.setDataIfExists));
+    private static final Set<DeleteOption> GUARANTEED = Collections.unmodifiableSet(EnumSet.of(DeleteOption.guaranteed));
+    private static final Set<DeleteOption> GUARANTEED_CHILDREN = Collections.unmodifiableSet(EnumSet.of(DeleteOption.guaranteed, DeleteOption.deletingChildrenIfNeeded));
+
+    private final AsyncCuratorFramework async;
+
+    public CuratorZkAsyncUtil(CuratorFramework client) {
+        this.async = AsyncCuratorFramework.wrap(client);
+    }
+
+    public AsyncCuratorFramework getAsyncClient() {
+        return async;
+    }
+
+    /**
+     * 创建永久节点无数据（递归）
+     *
+     * @param path
+     * @return
+     */
+    public CompletableFuture<String> createNode(String path) {
+        return call(() -> async.create().withOptions(CREATE_PARENTS_PROTECTED).forPath(path), "",
+                e -> log.error("创建永久节点异常,path={}", path, e));
+    }
+
+    /**
+     * 创建永久节点并设置数据（递归）
+     *
+     * @param path
+     * @param data
+     * @return
+     */
+    public CompletableFuture<String> createNodeData(String path, String data) {
+        return call(() -> async.create().withOptions(CREATE_PARENTS).forPath(path, data.getBytes(StandardCharsets.UTF_8)), "",
+                e -> log.error("创建永久节点异常,path={},data:{}", path, data, e));
+    }
+
+    /**
+     * 创建临时节点并设置数据（递归，带保护）
+     *
+     * @param path
+     * @param data
+     * @return
+     */
+    public CompletableFuture<String> createTempNodeDataWithProtection(String path, String data) {
+        return call(() -> async.create().withOptions(CREATE_PARENTS_PROTECTED, CreateMode.EPHEMERAL).forPath(path, data.getBytes(StandardCharsets.UTF_8)), "",
+                e -> log.error("创建永久节点异常,path={},data:{}", path, data, e));
+    }
+
+    /**
+     * 创建节点(递归)
+     *
+     * @param path       节点路径
+     * @param createMode 创建节点类型（CreateMode）
+     * @param data       设置数据
+     * @return
+     */
+    public CompletableFuture<String> createNodeWithMode(String path, CreateMode createMode, String data) {
+        String value = null == data ? "" : data;
+        return call(() -> async.create().withOptions(CREATE_PARENTS_PROTECTED, createMode).forPath(path, value.getBytes(StandardCharsets.UTF_8)), "",
+                e -> log.error("创建节点异常,path={},mode={},data:{}", path, createMode, value, e));
+    }
+
+    /**
+     * 校验节点是否存在
+     *
+     * @param path
+     * @return
+     */
+    public CompletableFuture<Boolean> checkExistsNode(String path) {
+        return call(() -> async.checkExists().forPath(path).thenApply(stat -> null != stat), false,
+                e -> log.error("校验节点是否存在出现异常,path={}", path, e));
+    }
+
+    /**
+     * 查询节点下的所有子节点
+     *
+     * @param path
+     * @return
+     */
+    public CompletableFuture<List<String>> queryChildPathList(String path) {
+        return call(() -> async.getChildren().forPath(path), null,
+                e -> log.error("查询节点下的所有子节点出现异常，path={}", path, e));
+    }
+
+    /**
+     * 获取节点版本信息
+     *
+     * @param path
+     * @return
+     */
+    public CompletableFuture<Stat> getNodeStat(String path) {
+        return call(() -> async.checkExists().forPath(path), null,
+                e -> log.error("获取节点版本信息出现异常,path={}", path, e));
+    }
+
+    /**
+     * 获取节点数据
+     *
+     * @param path
+     * @return
+     */
+    public CompletableFuture<String> getNodeData(String path) {
+        return call(() -> async.getData().forPath(path).thenApply(bytes -> new String(bytes, StandardCharsets.UTF_8)), "",
+                e -> log.error("查询节点的数据出现异常,path={}", path, e));
+    }
+
+    /**
+     * 获取节点数据并按 codec 解码
+     *
+     * @param path
+     * @param codec 编解码，isCompressed 为true时读取后解压
+     * @return 读取失败时为null
+     */
+    public <T> CompletableFuture<T> getNodeData(String path, CuratorZkCodec<T> codec) {
+        return call(() -> (codec.isCompressed() ? async.getData().decompressed().forPath(path) : async.getData().forPath(path)).thenApply(codec::decode), null,
+                e -> log.error("查询节点的数据出现异常,path={}", path, e));
+    }
+
+    /**
+     * 批量获取节点数据，所有请求并发发出；单个节点失败不影响其它节点，结果按传入顺序排列
+     *
+     * @param paths
+     * @return path -> 读取结果
+     */
+    public CompletableFuture<Map<String, CuratorZkNodeData>> getNodeDataBatch(List<String> paths) {
+        List<CompletableFuture<CuratorZkNodeData>> futures = readBatch(async, paths);
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> collectBatch(paths, futures));
+    }
+
+    /**
+     * 并发发出所有getData请求，每个节点对应一个总是正常完成的结果，CuratorZkUtil 的同步批量读取也基于它实现
+     *
+     * @param async
+     * @param paths
+     * @return 与 paths 顺序一致
+     */
+    static List<CompletableFuture<CuratorZkNodeData>> readBatch(AsyncCuratorFramework async, List<String> paths) {
+        List<CompletableFuture<CuratorZkNodeData>> futures = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            CompletableFuture<CuratorZkNodeData> future = new CompletableFuture<>();
+            try {
+                Stat stat = new Stat();
+                async.getData().storingStatIn(stat).forPath(path).whenComplete((bytes, e) -> {
+                    if (null == e) {
+                        future.complete(CuratorZkNodeData.success(path, bytes, stat));
+                    } else {
+                        Throwable cause = e instanceof CompletionException && null != e.getCause() ? e.getCause() : e;
+                        KeeperException.Code code = cause instanceof KeeperException ? ((KeeperException) cause).code() : KeeperException.Code.SYSTEMERROR;
+                        future.complete(CuratorZkNodeData.failure(path, code, cause));
+                    }
+                });
+            } catch (Exception e) {
+                log.error("批量查询节点的数据出现异常,path={}", path, e);
+                future.complete(CuratorZkNodeData.failure(path, KeeperException.Code.SYSTEMERROR, e));
+            }
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    /**
+     * 按传入顺序汇总结果，尚未完成的节点以 OPERATIONTIMEOUT 表示
+     *
+     * @param paths
+     * @param futures readBatch 的返回值
+     * @return path -> 读取结果
+     */
+    static Map<String, CuratorZkNodeData> collectBatch(List<String> paths, List<CompletableFuture<CuratorZkNodeData>> futures) {
+        Map<String, CuratorZkNodeData> results = new LinkedHashMap<>(paths.size() * 2);
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            results.put(path, futures.get(i).getNow(CuratorZkNodeData.failure(path, KeeperException.Code.OPERATIONTIMEOUT, null)));
+        }
+        return results;
+    }
+
+    /**
+     * 更新节点数据
+     *
+     * @param path
+     * @param data
+     * @return
+     */
+    public CompletableFuture<Stat> setNodeData(String path, String data) {
+        return call(() -> async.setData().forPath(path, data.getBytes(StandardCharsets.UTF_8)), null,
+                e -> log.error("更新节点数据出现异常，path={},data={}", path, data, e));
+    }
+
+    /**
+     * 按 codec 编码更新节点数据
+     *
+     * @param path
+     * @param value
+     * @param codec 编解码，isCompressed 为true时压缩存储
+     * @return
+     */
+    public <T> CompletableFuture<Stat> setNodeData(String path, T value, CuratorZkCodec<T> codec) {
+        return call(() -> codec.isCompressed() ? async.setData().compressed().forPath(path, codec.encode(value)) : async.setData().forPath(path, codec.encode(value)), null,
+                e -> log.error("更新节点数据出现异常，path={}", path, e));
+    }
+
+    /**
+     * 带版本号的节点数据更新
+     *
+     * @param path
+     * @param data
+     * @param version 版本号
+     * @return
+     */
+    public CompletableFuture<Stat> setNodeDataWithVersion(String path, String data, int version) {
+        return call(() -> async.setData().withVersion(version).forPath(path, data.getBytes(StandardCharsets.UTF_8)), null,
+                e -> log.error("带版本号更新节点数据出现异常，path={},data={},version={}", path, data, version, e));
+    }
+
+    /**
+     * 更新节点数据——没有节点则创建
+     *
+     * @param path
+     * @param data
+     * @return
+     */
+    public CompletableFuture<Boolean> orSetNodeData(String path, String data) {
+        return call(() -> async.create().withOptions(SET_DATA_IF_EXISTS).forPath(path, data.getBytes(StandardCharsets.UTF_8)).thenApply(p -> true), false,
+                e -> log.error("更新节点数据(没有节点则创建)出现异常，path={},data={}", path, data, e));
+    }
+
+    /**
+     * 带版本号更新节点数据——没有节点则创建
+     *
+     * @param path
+     * @param data
+     * @param version
+     * @return
+     */
+    public CompletableFuture<Boolean> orSetNodeDataWithVersion(String path, String data, int version) {
+        return call(() -> async.create().withOptions(SET_DATA_IF_EXISTS, CreateMode.PERSISTENT, null, null, -1, version)
+                        .forPath(path, data.getBytes(StandardCharsets.UTF_8)).thenApply(p -> true), false,
+                e -> log.error("带版本号更新节点数据(没有节点则创建)出现异常，path={},data={}", path, data, e));
+    }
+
+    /**
+     * 删除节点
+     *
+     * @param path
+     * @return
+     */
+    public CompletableFuture<Boolean> delNode(String path) {
+        return call(() -> async.delete().withOptions(GUARANTEED).forPath(path).thenApply(v -> true), false,
+                e -> log.error("删除节点出现异常，path={}", path, e));
+    }
+
+    /**
+     * 级联删除节点
+     *
+     * @param path
+     * @return
+     */
+    public CompletableFuture<Boolean> deleChildNode(String path) {
+        return call(() -> async.delete().withOptions(GUARANTEED_CHILDREN).forPath(path).thenApply(v -> true), false,
+                e -> log.error("级联删除节点出现异常，path={}", path, e));
+    }
+
+    /**
+     * 带版本号删除节点
+     *
+     * @param path
+     * @param version
+     * @return
+     */
+    public CompletableFuture<Boolean> delNodeWithVersion(String path, int version) {
+        return call(() -> async.delete().withOptionsAndVersion(GUARANTEED, version).forPath(path).thenApply(v -> true), false,
+                e -> log.error("带版本号删除节点出现异常，path={},version={}", path, version, e));
+    }
+
+    /**
+     * 带版本号级联删除节点
+     *
+     * @param path
+     * @param version
+     * @return
+     */
+    public CompletableFuture<Boolean> deleChildNodeWithVersion(String path, int version) {
+        return call(() -> async.delete().withOptionsAndVersion(GUARANTEED_CHILDREN, version).forPath(path).thenApply(v -> true), false,
+                e -> log.error("带版本号级联删除节点出现异常，path={},version={}", path, version, e));
+    }
+
+    /**
+     * 判断节点是否是持久化节点
+     *
+     * @param path
+     * @return 2-节点不存在  | 1-是持久化 | 0-临时节点（与 CuratorZkUtil.isPersistentNode 一致）
+     */
+    public CompletableFuture<Integer> isPersistentNode(String path) {
+        return call(() -> async.checkExists().forPath(path).thenApply(stat -> {
+            if (null == stat) {
+                return 2;
+            }
+            //临时节点的 ephemeralOwner 为创建者的会话ID，持久化节点为0
+            return stat.getEphemeralOwner() == 0 ? 1 : 0;
+        }), 2, e -> log.error("判断节点是否是持久化节点出现异常,path={}", path, e));
+    }
+
+    /**
+     * 执行异步操作，失败时记录日志并以默认值完成
+     *
+     * @param operation
+     * @param fallback
+     * @param onError
+     * @param <T>
+     * @return
+     */
+    static <T> CompletableFuture<T> call(Supplier<CompletionStage<T>> operation, T fallback, Consumer<Throwable> onError) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            operation.get().whenComplete((value, e) -> {
+                if (null == e) {
+                    future.complete(value);
+                } else {
+                    onError.accept(e instanceof CompletionException && null != e.getCause() ? e.getCause() : e);
+                    future.complete(fallback);
+                }
+            });
+        } catch (Exception e) {
+            onError.accept(e);
+            future.complete(fallback);
+        }
+        return future;
+    }
+}
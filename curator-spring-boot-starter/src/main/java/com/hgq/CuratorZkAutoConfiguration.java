@@ -8,11 +8,27 @@ import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.recipes.locks.InterProcessLock;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.ZooKeeper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.config.AopConfigUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
@@ -30,6 +46,7 @@ import java.util.stream.Collectors;
 //@ConditionalOnProperty(prefix = "curator", name = "enabled", havingValue = "true")
 @ConditionalOnClass(value = {CuratorFramework.class, RetryPolicy.class, InterProcessLock.class, ZooKeeper.class})
 @EnableConfigurationProperties(value = CuratorZkProperties.class)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 public class CuratorZkAutoConfiguration {
 
     /**
@@ -67,6 +84,7 @@ public class CuratorZkAutoConfiguration {
                 .ensembleTracker(properties.isWithEnsembleTracker())//设置监听配置
                 .namespace(properties.getNamespace())//设置命名空间
                 .retryPolicy(retryPolicy)   //设置重连机制
+                .compressionProvider(new CuratorZkCompressionProvider(properties.getCodec().getCompression()))   //设置压缩算法
                 .build();
 
         //添加重连监听
@@ -98,14 +116,190 @@ public class CuratorZkAutoConfiguration {
      * @return
      */
     @Bean
-    public CuratorZkTemplate curatorZkTemplate(CuratorZkProperties properties, CuratorFramework client, RetryPolicy retryPolicy) {
-        return new CuratorZkTemplate(client, retryPolicy, properties.getSessionTimeoutMs());
+    public CuratorZkTemplate curatorZkTemplate(CuratorZkProperties properties, CuratorFramework client, RetryPolicy retryPolicy,
+                                               CuratorZkChildrenIndexRegistry childrenIndexRegistry) {
+        return new CuratorZkTemplate(client, retryPolicy, properties, childrenIndexRegistry);
     }
 
+    @Bean(destroyMethod = "close")
+    public CuratorZkUtil curatorZkUtil(CuratorFramework client, CuratorZkChildrenIndexRegistry childrenIndexRegistry,
+                                       ObjectProvider<CuratorZkWriteBehindBuffer> writeBehindBuffer,
+                                       ObjectProvider<CuratorZkReadCache> readCache, CuratorZkEventDispatcher eventDispatcher) {
+        return new CuratorZkUtil(client, childrenIndexRegistry, writeBehindBuffer.getIfAvailable(), readCache.getIfAvailable(), eventDispatcher);
+    }
+
+    /**
+     * 监听事件分发线程池，同一节点路径的事件串行、不同路径并行，容量和溢出策略见 curator.dispatch
+     *
+     * @param properties
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public CuratorZkEventDispatcher curatorZkEventDispatcher(CuratorZkProperties properties) {
+        CuratorZkProperties.DispatchProperties dispatch = properties.getDispatch();
+        return new CuratorZkEventDispatcher(dispatch.getThreads(), dispatch.getQueueCapacity(), dispatch.getOverflowPolicy(),
+                dispatch.getOverflowBlockTimeoutMs(), dispatch.isVirtualThreads());
+    }
+
+    /**
+     * 异步操作工具类，方法与 CuratorZkUtil 一一对应，返回 CompletableFuture
+     *
+     * @param client
+     * @return
+     */
     @Bean
-    public CuratorZkUtil curatorZkUtil(CuratorFramework client) {
-        return new CuratorZkUtil(client);
+    public CuratorZkAsyncUtil curatorZkAsyncUtil(CuratorFramework client) {
+        return new CuratorZkAsyncUtil(client);
     }
 
+    /**
+     * 批量写入，按大小自动拆分为多个multi事务并发提交
+     *
+     * @param properties
+     * @param client
+     * @return
+     */
+    @Bean
+    public CuratorZkBulkWriter curatorZkBulkWriter(CuratorZkProperties properties, CuratorFramework client) {
+        CuratorZkProperties.BulkProperties bulk = properties.getBulk();
+        return new CuratorZkBulkWriter(client, bulk.getMaxOps(), bulk.getMaxBytes(), bulk.getTimeoutMs());
+    }
+
+    /**
+     * 大数据分块存储，超过单节点大小限制的数据拆分为子节点写入，清单原子切换
+     *
+     * @param properties
+     * @param client
+     * @param bulkWriter
+     * @return
+     */
+    @Bean
+    public CuratorZkBlobStore curatorZkBlobStore(CuratorZkProperties properties, CuratorFramework client, CuratorZkBulkWriter bulkWriter) {
+        CuratorZkProperties.BlobProperties blob = properties.getBlob();
+        return new CuratorZkBlobStore(client, bulkWriter, blob.getChunkSize(), blob.getReadTimeoutMs());
+    }
+
+    /**
+     * 节点数据延迟合并写入，curator.write-behind.enabled=true 时开启，容器关闭时写入剩余数据
+     *
+     * @param properties
+     * @param bulkWriter
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX, name = "write-behind.enabled", havingValue = "true")
+    public CuratorZkWriteBehindBuffer curatorZkWriteBehindBuffer(CuratorZkProperties properties, CuratorZkBulkWriter bulkWriter) {
+        CuratorZkProperties.WriteBehindProperties writeBehind = properties.getWriteBehind();
+        return new CuratorZkWriteBehindBuffer(bulkWriter, writeBehind.getFlushIntervalMs(), writeBehind.getMaxPending());
+    }
+
+    /**
+     * getNodeData 本地读缓存，curator.read-cache.enabled=true 时开启，只缓存 curator.read-cache.prefixes 下的节点
+     *
+     * @param properties
+     * @param client
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX, name = "read-cache.enabled", havingValue = "true")
+    public CuratorZkReadCache curatorZkReadCache(CuratorZkProperties properties, CuratorFramework client) {
+        CuratorZkProperties.ReadCacheProperties readCache = properties.getReadCache();
+        CuratorZkReadCache cache = new CuratorZkReadCache(client, readCache.getPrefixes(), readCache.getMaxSize(), readCache.getTtlMs());
+        cache.start();
+        return cache;
+    }
+
+    /**
+     * 子节点索引注册表，CuratorZkTemplate 与 CuratorZkUtil 共享，同一父节点只注册一个监听
+     *
+     * @param client
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public CuratorZkChildrenIndexRegistry curatorZkChildrenIndexRegistry(CuratorFramework client) {
+        return new CuratorZkChildrenIndexRegistry(client);
+    }
+
+    /**
+     * 处理 @ZkLock 注解的切面，作为基础设施 Advisor 由自动代理处理；
+     * 未引入 AspectJ 时 Spring Boot 不一定注册自动代理，这里按需注册（已存在时不会覆盖）
+     */
+    @Configuration
+    @Import(CuratorZkLockAnnotationConfiguration.AutoProxyRegistrar.class)
+    static class CuratorZkLockAnnotationConfiguration {
+
+        @Bean
+        @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+        @ConditionalOnMissingBean(name = "curatorZkLockAdvisor")
+        public Advisor curatorZkLockAdvisor(CuratorZkProperties properties, ObjectProvider<CuratorZkTemplate> template) {
+            CuratorZkLockInterceptor interceptor = new CuratorZkLockInterceptor(template::getObject, properties.getLock().getAnnotationRoot());
+            return new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(null, ZkLock.class, true), interceptor);
+        }
+
+        static class AutoProxyRegistrar implements ImportBeanDefinitionRegistrar {
+
+            @Override
+            public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+                AopConfigUtils.registerAutoProxyCreatorIfNecessary(registry);
+            }
+        }
+    }
+
+    /**
+     * 引入 Micrometer 且存在 MeterRegistry 时注册指标，curator.metrics.enabled=false 时关闭
+     */
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX, name = "metrics.enabled", havingValue = "true", matchIfMissing = true)
+    static class CuratorZkMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public CuratorZkMetrics curatorZkMetrics(MeterRegistry meterRegistry, CuratorZkProperties properties, CuratorFramework client,
+                                                 CuratorZkTemplate template, CuratorZkEventDispatcher eventDispatcher,
+                                                 ObjectProvider<CuratorZkReadCache> readCache,
+                                                 ObjectProvider<CuratorZkWriteBehindBuffer> writeBehindBuffer) {
+            CuratorZkProperties.MetricsProperties metrics = properties.getMetrics();
+            CuratorZkMetrics curatorZkMetrics = new CuratorZkMetrics(meterRegistry, metrics.getPathDepth(), metrics.getMaxPathTags(),
+                    metrics.getLockKeyPatterns(), metrics.isPercentileHistogram());
+            curatorZkMetrics.bindTo(client);
+            curatorZkMetrics.bindTo(template);
+            curatorZkMetrics.bindTo(eventDispatcher);
+            readCache.ifAvailable(curatorZkMetrics::bindTo);
+            writeBehindBuffer.ifAvailable(curatorZkMetrics::bindTo);
+            return curatorZkMetrics;
+        }
+    }
+
+    /**
+     * curator.profiler.enabled=true 时统计锁竞争，引入 actuator 时注册 zklocks 端点
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = CuratorZkProperties.PREFIX, name = "profiler.enabled", havingValue = "true")
+    static class CuratorZkLockProfilerConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public CuratorZkLockProfiler curatorZkLockProfiler(CuratorZkProperties properties, CuratorZkTemplate template) {
+            CuratorZkProperties.ProfilerProperties profiler = properties.getProfiler();
+            CuratorZkLockProfiler curatorZkLockProfiler = new CuratorZkLockProfiler(profiler.getCapacity(), profiler.getCallSiteThresholdMs());
+            curatorZkLockProfiler.bindTo(template);
+            return curatorZkLockProfiler;
+        }
+
+        @Configuration
+        @ConditionalOnClass(Endpoint.class)
+        static class CuratorZkLockProfilerEndpointConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public CuratorZkLockProfilerEndpoint curatorZkLockProfilerEndpoint(CuratorZkLockProfiler profiler) {
+                return new CuratorZkLockProfilerEndpoint(profiler);
+            }
+        }
+    }
 
 }
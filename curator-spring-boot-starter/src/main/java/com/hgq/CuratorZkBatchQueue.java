@@ -0,0 +1,276 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkBatchQueue
+ * @Description: 批量读写的分布式队列
+ * 与 SimpleDistributedQueue 使用相同的节点格式（{path}/qn-序号），两者可以混用；
+ * offerAll 通过multi事务一次写入多个元素，drainTo 一次getChildren、并发读取数据后用multi事务批量删除认领的元素，
+ * 两者都按 maxBatchOps、maxBatchBytes 拆分事务
+ * @Author: hgq
+ * @Date: 2026-10-18 14:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkBatchQueue {
+
+    /**
+     * 与SimpleDistributedQueue保持一致
+     */
+    private static final String PREFIX = "qn-";
+
+    private final CuratorFramework client;
+    private final String path;
+    private final int maxBatchOps;
+    private final int maxBatchBytes;
+    private final long readTimeoutMs;
+    private volatile boolean ensured;
+    /**
+     * 不为null时 drainTo 从本地子节点索引取最早的元素，不再每次getChildren
+     */
+    private final CuratorZkChildrenIndexRegistry childrenIndexRegistry;
+    private final CuratorZkChildrenIndex childrenIndex;
+
+    public CuratorZkBatchQueue(CuratorFramework client, String path, int maxBatchOps, int maxBatchBytes, long readTimeoutMs) {
+        this(client, path, maxBatchOps, maxBatchBytes, readTimeoutMs, null);
+    }
+
+    public CuratorZkBatchQueue(CuratorFramework client, String path, int maxBatchOps, int maxBatchBytes, long readTimeoutMs,
+                               CuratorZkChildrenIndexRegistry childrenIndexRegistry) {
+        this.client = client;
+        this.path = path;
+        this.maxBatchOps = maxBatchOps;
+        this.maxBatchBytes = maxBatchBytes;
+        this.readTimeoutMs = readTimeoutMs;
+        this.childrenIndexRegistry = childrenIndexRegistry;
+        this.childrenIndex = null == childrenIndexRegistry ? null : childrenIndexRegistry.retain(path);
+    }
+
+    /**
+     * 写入单个元素
+     *
+     * @param data
+     * @throws Exception
+     */
+    public void offer(byte[] data) throws Exception {
+        offerAll(Collections.singletonList(data));
+    }
+
+    /**
+     * 批量写入，按操作数和字节数拆分为多个multi事务，每个事务内的元素保持顺序且原子写入
+     *
+     * @param items
+     * @return 写入的元素数量
+     * @throws Exception
+     */
+    public int offerAll(Collection<byte[]> items) throws Exception {
+        ensurePath();
+        String itemPath = ZKPaths.makePath(path, PREFIX);
+        List<CuratorOp> ops = new ArrayList<>();
+        int bytes = 0;
+        int count = 0;
+        for (byte[] item : items) {
+            int size = null == item ? 0 : item.length;
+            if (!ops.isEmpty() && (ops.size() >= maxBatchOps || bytes + size > maxBatchBytes)) {
+                count += commit(ops);
+                ops = new ArrayList<>();
+                bytes = 0;
+            }
+            ops.add(client.transactionOp().create().withMode(CreateMode.PERSISTENT_SEQUENTIAL).forPath(itemPath, null == item ? new byte[0] : item));
+            bytes += size;
+        }
+        if (!ops.isEmpty()) {
+            count += commit(ops);
+        }
+        return count;
+    }
+
+    /**
+     * 批量认领最多 maxElements 个元素
+     * 1. 一次getChildren并排序（启用子节点索引时直接从本地索引读取），取最早的 maxElements 个
+     * 2. 后台并发读取数据，已被其它消费者删除的跳过
+     * 3. 按 maxBatchOps、maxBatchBytes 拆分为多个multi事务按版本号删除；某个事务与其它消费者冲突时只有该事务退化为逐个删除，
+     * 只返回自己删除成功的元素；出现连接异常等其它错误会立即停止，已删除的元素照常返回，避免丢失；一个都未删除时抛出异常
+     *
+     * @param maxElements
+     * @return 按入队顺序排列的元素，队列为空时返回空列表
+     * @throws Exception
+     */
+    public List<byte[]> drainTo(int maxElements) throws Exception {
+        List<String> children;
+        try {
+            children = null != childrenIndex && childrenIndex.isInitialized()
+                    ? childrenIndex.head(maxElements) : client.getChildren().forPath(path);
+        } catch (KeeperException.NoNodeException e) {
+            return Collections.emptyList();
+        }
+        List<String> nodes = new ArrayList<>(children.size());
+        for (String child : children) {
+            if (child.startsWith(PREFIX)) {
+                nodes.add(child);
+            }
+        }
+        if (nodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Collections.sort(nodes);
+        if (nodes.size() > maxElements) {
+            nodes = nodes.subList(0, maxElements);
+        }
+
+        Item[] items = readAll(nodes);
+        List<byte[]> result = new ArrayList<>(items.length);
+        List<Item> claimed = new ArrayList<>();
+        int bytes = 0;
+        for (Item item : items) {
+            if (null == item.data) {
+                continue;
+            }
+            int size = item.path.length();
+            if (!claimed.isEmpty() && (claimed.size() >= maxBatchOps || bytes + size > maxBatchBytes)) {
+                if (!claim(claimed, result)) {
+                    return result;
+                }
+                claimed = new ArrayList<>();
+                bytes = 0;
+            }
+            claimed.add(item);
+            bytes += size;
+        }
+        if (!claimed.isEmpty()) {
+            claim(claimed, result);
+        }
+        return result;
+    }
+
+    /**
+     * 一个multi事务删除一批元素，与其它消费者冲突时逐个删除，删除成功的元素追加到result
+     *
+     * @param claimed
+     * @param result
+     * @return 出现冲突以外的异常时返回false，调用方应停止认领
+     * @throws Exception 一个元素都未认领时抛出
+     */
+    private boolean claim(List<Item> claimed, List<byte[]> result) throws Exception {
+        List<CuratorOp> ops = new ArrayList<>(claimed.size());
+        for (Item item : claimed) {
+            ops.add(client.transactionOp().delete().withVersion(item.version).forPath(item.path));
+        }
+        try {
+            client.transaction().forOperations(ops);
+            for (Item item : claimed) {
+                result.add(item.data);
+            }
+            return true;
+        } catch (KeeperException.NoNodeException | KeeperException.BadVersionException e) {
+            for (Item item : claimed) {
+                try {
+                    client.delete().withVersion(item.version).forPath(item.path);
+                    result.add(item.data);
+                } catch (KeeperException.NoNodeException | KeeperException.BadVersionException ignore) {
+                    //已被其它消费者认领
+                } catch (Exception ex) {
+                    return stopClaiming(result, item.path, ex);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return stopClaiming(result, claimed.get(0).path, e);
+        }
+    }
+
+    private boolean stopClaiming(List<byte[]> result, String itemPath, Exception e) throws Exception {
+        if (result.isEmpty()) {
+            throw e;
+        }
+        log.warn("认领队列元素时出现异常，返回已认领的{}个元素,path={}", result.size(), itemPath, e);
+        return false;
+    }
+
+    /**
+     * 队列中的元素数量
+     *
+     * @return
+     * @throws Exception
+     */
+    public int size() throws Exception {
+        try {
+            return client.getChildren().forPath(path).size();
+        } catch (KeeperException.NoNodeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 释放子节点索引的引用
+     */
+    public void close() {
+        if (null != childrenIndex) {
+            childrenIndexRegistry.release(path);
+        }
+    }
+
+    private int commit(List<CuratorOp> ops) throws Exception {
+        client.transaction().forOperations(ops);
+        return ops.size();
+    }
+
+    private void ensurePath() throws Exception {
+        if (!ensured) {
+            client.createContainers(path);
+            ensured = true;
+        }
+    }
+
+    /**
+     * 后台并发读取所有元素，总耗时约为一次往返
+     *
+     * @param nodes
+     * @return
+     * @throws Exception
+     */
+    private Item[] readAll(List<String> nodes) throws Exception {
+        Item[] items = new Item[nodes.size()];
+        CountDownLatch latch = new CountDownLatch(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Item item = new Item(ZKPaths.makePath(path, nodes.get(i)));
+            items[i] = item;
+            client.getData().inBackground((curatorFramework, event) -> {
+                if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+                    item.data = event.getData();
+                    item.version = event.getStat().getVersion();
+                } else if (event.getResultCode() != KeeperException.Code.NONODE.intValue()) {
+                    log.warn("读取队列元素出现异常,path={},code={}", item.path, event.getResultCode());
+                }
+                latch.countDown();
+            }).forPath(item.path);
+        }
+        if (!latch.await(readTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw KeeperException.create(KeeperException.Code.OPERATIONTIMEOUT, path);
+        }
+        return items;
+    }
+
+    private static final class Item {
+        private final String path;
+        private volatile byte[] data;
+        private volatile int version;
+
+        Item(String path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ClassName com.hgq.CuratorZkBatchedSemaphore
+ * @Description: 批量租约的分布式信号量
+ * 本地没有空闲租约时一次从ZK获取 batchSize 个租约，之后在本地线程之间分发和回收，不再访问ZK；
+ * 空闲超过 idleTimeoutMs 的租约由定时任务通过一次multi事务批量归还给ZK；
+ * 剩余租约不足一批时监听租约节点，只有租约数量小于 maxLeases 时才去获取单个租约，等待期间不反复创建、删除租约节点，
+ * 本地线程归还许可时也会唤醒等待者；
+ * 会话过期后ZK已删除所有租约节点，本地空闲租约全部丢弃，已发出的许可关闭时也直接丢弃租约而不是放回本地
+ * @Author: hgq
+ * @Date: 2026-10-18 11:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkBatchedSemaphore implements Closeable {
+
+    /**
+     * 与InterProcessSemaphoreV2中存放租约节点的子目录保持一致
+     */
+    private static final String LEASE_PARENT = "leases";
+    private static final long FALLBACK_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final CuratorFramework client;
+    private final InterProcessSemaphoreV2 semaphore;
+    private final String leasesPath;
+    private final int maxLeases;
+    private final int batchSize;
+    private final long idleTimeoutMs;
+    /**
+     * 本地空闲租约，后进先出：热租约反复复用，冷租约沉到队尾等待归还
+     */
+    private final ConcurrentLinkedDeque<IdleLease> idleLeases = new ConcurrentLinkedDeque<>();
+    private final Object fetchLock = new Object();
+    /**
+     * 会话过期时递增，租约只在获取时的会话内有效，旧会话的租约不再放回本地
+     */
+    private final AtomicInteger epoch = new AtomicInteger();
+    private final ScheduledFuture<?> reaper;
+    /**
+     * 租约节点变化或本地归还许可时递增，等待者据此判断是否需要重新检查
+     */
+    private long generation;
+    private final Watcher leasesWatcher = event -> signalAvailable();
+
+    CuratorZkBatchedSemaphore(CuratorFramework client, String lockKey, int maxLeases, int batchSize,
+                              long idleTimeoutMs, ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.semaphore = new InterProcessSemaphoreV2(client, lockKey, maxLeases);
+        this.leasesPath = ZKPaths.makePath(lockKey, LEASE_PARENT);
+        this.maxLeases = maxLeases;
+        this.batchSize = Math.max(1, Math.min(batchSize, maxLeases));
+        this.idleTimeoutMs = idleTimeoutMs;
+        long period = Math.max(1, idleTimeoutMs / 2);
+        this.reaper = scheduler.scheduleWithFixedDelay(this::returnIdleLeases, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 阻塞获取一个许可
+     *
+     * @return
+     * @throws Exception
+     */
+    public Permit acquire() throws Exception {
+        Permit permit = acquire(-1, null);
+        if (null == permit) {
+            throw new CuratorLockException(BusinessMsgEnum.SYSTEM_EXCEPTION);
+        }
+        return permit;
+    }
+
+    /**
+     * 在指定时间内获取一个许可
+     *
+     * @param time
+     * @param unit
+     * @return 超时返回null
+     * @throws Exception
+     */
+    public Permit acquire(long time, TimeUnit unit) throws Exception {
+        long deadline = null == unit ? -1 : System.nanoTime() + unit.toNanos(time);
+        boolean batchTried = false;
+        while (true) {
+            int observedEpoch = epoch.get();
+            IdleLease idle = idleLeases.pollFirst();
+            if (null != idle) {
+                if (idle.epoch != observedEpoch) {
+                    discard(idle.lease);
+                    continue;
+                }
+                return new Permit(idle.lease, observedEpoch);
+            }
+            if (!batchTried) {
+                batchTried = true;
+                synchronized (fetchLock) {
+                    //其它线程可能刚批量获取到租约
+                    if (!idleLeases.isEmpty()) {
+                        continue;
+                    }
+                    //1. 不等待地尝试一次获取整批租约
+                    Collection<Lease> leases = batchSize > 1 ? semaphore.acquire(batchSize, 0, TimeUnit.MILLISECONDS) : null;
+                    if (null != leases) {
+                        List<Lease> batch = new ArrayList<>(leases);
+                        long now = System.currentTimeMillis();
+                        for (int i = 1; i < batch.size(); i++) {
+                            idleLeases.offerFirst(new IdleLease(batch.get(i), now, observedEpoch));
+                        }
+                        return new Permit(batch.get(0), observedEpoch);
+                    }
+                }
+            }
+            //2. 剩余租约不足一批时退化为获取单个租约，ZK上还有空余时才尝试，否则等待租约节点变化或本地归还
+            long observed = generation();
+            if (countLeases() < maxLeases) {
+                long waitNanos = FALLBACK_WAIT_NANOS;
+                if (deadline >= 0) {
+                    waitNanos = Math.min(waitNanos, Math.max(0, deadline - System.nanoTime()));
+                }
+                Lease lease = semaphore.acquire(waitNanos, TimeUnit.NANOSECONDS);
+                if (null != lease) {
+                    return new Permit(lease, observedEpoch);
+                }
+            } else if (!awaitAvailable(observed, deadline)) {
+                return null;
+            }
+            if (deadline >= 0 && System.nanoTime() >= deadline) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 同一lockKey的最大租约数
+     *
+     * @return
+     */
+    public int getMaxLeases() {
+        return maxLeases;
+    }
+
+    /**
+     * 本地空闲的租约数量
+     *
+     * @return
+     */
+    public int getIdleLeaseCount() {
+        return idleLeases.size();
+    }
+
+    /**
+     * 获取底层的信号量
+     *
+     * @return
+     */
+    public InterProcessSemaphoreV2 getSemaphore() {
+        return semaphore;
+    }
+
+    /**
+     * 是否已关闭
+     *
+     * @return
+     */
+    public boolean isClosed() {
+        return reaper.isCancelled();
+    }
+
+    /**
+     * 停止定时归还，并把所有本地空闲租约归还给ZK；已发出的许可在close时直接归还
+     */
+    @Override
+    public void close() {
+        reaper.cancel(false);
+        signalAvailable();
+        List<Lease> leases = new ArrayList<>();
+        IdleLease idle;
+        while (null != (idle = idleLeases.pollLast())) {
+            leases.add(idle.lease);
+        }
+        returnLeases(leases);
+    }
+
+    /**
+     * 会话过期后ZK已删除本会话的临时租约节点，丢弃所有本地空闲租约，之后归还的旧许可也不再放回本地
+     */
+    void connectionLost() {
+        epoch.incrementAndGet();
+        int discarded = 0;
+        IdleLease idle;
+        while (null != (idle = idleLeases.pollLast())) {
+            discard(idle.lease);
+            discarded++;
+        }
+        signalAvailable();
+        if (discarded > 0) {
+            log.warn("会话已过期，丢弃本地空闲信号量租约,leasesPath={},size={}", leasesPath, discarded);
+        }
+    }
+
+    private void release(Lease lease, int leaseEpoch) {
+        if (reaper.isCancelled()) {
+            semaphore.returnLease(lease);
+            return;
+        }
+        if (leaseEpoch != epoch.get()) {
+            discard(lease);
+            return;
+        }
+        idleLeases.offerFirst(new IdleLease(lease, System.currentTimeMillis(), leaseEpoch));
+        signalAvailable();
+    }
+
+    /**
+     * 后台删除旧会话的租约节点，节点通常已随会话删除；客户端注入的过期或服务端尚未清理时由guaranteed删除兜底
+     *
+     * @param lease
+     */
+    private void discard(Lease lease) {
+        try {
+            client.delete().guaranteed().inBackground().forPath(ZKPaths.makePath(leasesPath, lease.getNodeName()));
+        } catch (Exception e) {
+            log.warn("丢弃信号量租约出现异常,leasesPath={},lease={}", leasesPath, lease.getNodeName(), e);
+        }
+    }
+
+    /**
+     * 读取租约节点数量并监听变化
+     */
+    private int countLeases() throws Exception {
+        try {
+            return client.getChildren().usingWatcher(leasesWatcher).forPath(leasesPath).size();
+        } catch (KeeperException.NoNodeException e) {
+            return 0;
+        }
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    private synchronized void signalAvailable() {
+        generation++;
+        notifyAll();
+    }
+
+    /**
+     * 等待租约节点变化或本地归还许可
+     *
+     * @return 超时返回false
+     */
+    private synchronized boolean awaitAvailable(long observed, long deadline) throws InterruptedException {
+        while (generation == observed) {
+            if (deadline < 0) {
+                wait();
+            } else {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从队尾取出空闲超时的租约并批量归还
+     */
+    private void returnIdleLeases() {
+        try {
+            long expireBefore = System.currentTimeMillis() - idleTimeoutMs;
+            List<Lease> expired = new ArrayList<>();
+            IdleLease idle;
+            while (null != (idle = idleLeases.pollLast())) {
+                if (idle.lastUsed > expireBefore) {
+                    idleLeases.offerLast(idle);
+                    break;
+                }
+                expired.add(idle.lease);
+            }
+            returnLeases(expired);
+        } catch (Exception e) {
+            log.error("归还空闲信号量租约出现异常", e);
+        }
+    }
+
+    /**
+     * 一次multi事务删除所有租约节点，失败时逐个归还
+     *
+     * @param leases
+     */
+    private void returnLeases(List<Lease> leases) {
+        if (leases.isEmpty()) {
+            return;
+        }
+        try {
+            List<CuratorOp> ops = new ArrayList<>(leases.size());
+            for (Lease lease : leases) {
+                ops.add(client.transactionOp().delete().forPath(ZKPaths.makePath(leasesPath, lease.getNodeName())));
+            }
+            client.transaction().forOperations(ops);
+        } catch (Exception e) {
+            log.warn("批量归还信号量租约失败，逐个归还, size={}", leases.size(), e);
+            semaphore.returnAll(leases);
+        }
+    }
+
+    private static final class IdleLease {
+        private final Lease lease;
+        private final long lastUsed;
+        private final int epoch;
+
+        IdleLease(Lease lease, long lastUsed, int epoch) {
+            this.lease = lease;
+            this.lastUsed = lastUsed;
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * 本地许可，close时把租约放回本地空闲队列而不是删除ZK节点；获取后会话已过期的许可close时直接丢弃租约
+     */
+    public final class Permit implements Closeable {
+        private final Lease lease;
+        private final int epoch;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Lease lease, int epoch) {
+            this.lease = lease;
+            this.epoch = epoch;
+        }
+
+        /**
+         * 获取许可后会话是否已过期，过期后ZK上的租约节点已删除，不再计入 maxLeases
+         *
+         * @return
+         */
+        public boolean isLost() {
+            return epoch != CuratorZkBatchedSemaphore.this.epoch.get();
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(lease, epoch);
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkBlobStore
+ * @Description: 大数据分块存储
+ * 超过单个节点大小限制（jute.maxbuffer，默认约1M）的数据拆分为多个子节点存储：
+ * path 节点保存清单（当前版本目录、总大小、分块数），path/gen-xxxxxxxxxx/c-00000... 保存分块；
+ * 写入时先在新的版本目录下批量写入分块（每攒满一个事务的分块提交一次，内存中最多保留一个事务的分块），
+ * 再用一个multi事务（校验版本目录存在 + 带版本号更新清单）原子切换，最后删除旧版本目录；
+ * 读取时先读清单，再并发读取全部分块，按顺序拼接为流返回，不额外复制整个数组；读取期间版本被切换时自动重试
+ * @Author: hgq
+ * @Date: 2026-10-18 22:30
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkBlobStore {
+
+    private static final String GEN_PREFIX = "gen-";
+    private static final String CHUNK_PREFIX = "c-";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final CuratorFramework client;
+    private final CuratorZkBulkWriter bulkWriter;
+    private final int chunkSize;
+    private final long timeoutMs;
+
+    public CuratorZkBlobStore(CuratorFramework client, CuratorZkBulkWriter bulkWriter, int chunkSize, long timeoutMs) {
+        this.client = client;
+        this.bulkWriter = bulkWriter;
+        this.chunkSize = chunkSize;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 写入数据，多个写入方并发写同一路径时最后切换清单的生效
+     *
+     * @param path
+     * @param value
+     * @return 写入结果
+     */
+    public boolean write(String path, byte[] value) {
+        return write(path, new ByteArrayInputStream(value));
+    }
+
+    /**
+     * 按分块大小从流中读取并写入，攒满一个事务的分块就提交，不需要把整个数据读入内存
+     *
+     * @param path
+     * @param in
+     * @return 写入结果
+     */
+    public boolean write(String path, InputStream in) {
+        String genPath = null;
+        try {
+            try {
+                client.create().creatingParentsIfNeeded().forPath(path, new byte[0]);
+            } catch (KeeperException.NodeExistsException ignore) {
+                // 已存在
+            }
+            genPath = client.create().withMode(CreateMode.PERSISTENT_SEQUENTIAL).forPath(ZKPaths.makePath(path, GEN_PREFIX));
+
+            List<CuratorZkBulkWriter.Op> batch = new ArrayList<>();
+            long batchBytes = 0;
+            long size = 0;
+            int chunks = 0;
+            byte[] chunk;
+            while ((chunk = readChunk(in)).length > 0) {
+                if (!batch.isEmpty() && (batch.size() >= bulkWriter.getMaxOps() || batchBytes + chunk.length > bulkWriter.getMaxBytes())) {
+                    flush(batch);
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(CuratorZkBulkWriter.Op.create(ZKPaths.makePath(genPath, chunkName(chunks++)), chunk));
+                batchBytes += chunk.length;
+                size += chunk.length;
+            }
+            flush(batch);
+
+            Manifest manifest = new Manifest(ZKPaths.getNodeFromPath(genPath), size, chunks);
+            String previous = swap(path, genPath, manifest);
+            if (null != previous) {
+                deleteQuietly(ZKPaths.makePath(path, previous));
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("分块写入数据出现异常,path={}", path, e);
+            if (null != genPath) {
+                deleteQuietly(genPath);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取数据
+     *
+     * @param path
+     * @return 节点不存在或未写入数据时返回null
+     */
+    public byte[] read(String path) {
+        try (ChunkStream in = openChunks(path)) {
+            if (null == in) {
+                return null;
+            }
+            byte[] value = new byte[(int) in.manifest.size];
+            int offset = 0;
+            int read;
+            while (offset < value.length && (read = in.read(value, offset, value.length - offset)) != -1) {
+                offset += read;
+            }
+            return value;
+        } catch (Exception e) {
+            log.error("分块读取数据出现异常,path={}", path, e);
+        }
+        return null;
+    }
+
+    /**
+     * 并发读取全部分块后按顺序返回流
+     *
+     * @param path
+     * @return 节点不存在或未写入数据时返回null
+     * @throws Exception
+     */
+    public InputStream openStream(String path) throws Exception {
+        return openChunks(path);
+    }
+
+    private ChunkStream openChunks(String path) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            Manifest manifest;
+            try {
+                manifest = Manifest.parse(client.getData().forPath(path));
+            } catch (KeeperException.NoNodeException e) {
+                return null;
+            }
+            if (null == manifest) {
+                return null;
+            }
+            String genPath = ZKPaths.makePath(path, manifest.gen);
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>(manifest.chunks);
+            for (int i = 0; i < manifest.chunks; i++) {
+                CompletableFuture<byte[]> future = new CompletableFuture<>();
+                client.getData().inBackground((curatorFramework, event) -> {
+                    if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+                        future.complete(event.getData());
+                    } else {
+                        future.completeExceptionally(KeeperException.create(KeeperException.Code.get(event.getResultCode()), event.getPath()));
+                    }
+                }).forPath(ZKPaths.makePath(genPath, chunkName(i)));
+                futures.add(future);
+            }
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                // 读取期间清单已切换、旧版本被删除，重新读取清单
+                if (e.getCause() instanceof KeeperException.NoNodeException && attempt < MAX_ATTEMPTS) {
+                    continue;
+                }
+                throw e;
+            }
+            List<InputStream> streams = new ArrayList<>(futures.size());
+            for (CompletableFuture<byte[]> future : futures) {
+                streams.add(new ByteArrayInputStream(future.join()));
+            }
+            return new ChunkStream(manifest, streams);
+        }
+    }
+
+    /**
+     * 删除数据及所有分块
+     *
+     * @param path
+     * @return
+     */
+    public boolean delete(String path) {
+        try {
+            client.delete().guaranteed().deletingChildrenIfNeeded().forPath(path);
+            return true;
+        } catch (KeeperException.NoNodeException e) {
+            return true;
+        } catch (Exception e) {
+            log.error("删除分块数据出现异常,path={}", path, e);
+        }
+        return false;
+    }
+
+    /**
+     * 用multi事务切换清单：校验新版本目录存在并带版本号更新清单，版本冲突时基于最新清单重试
+     *
+     * @return 被替换的版本目录名，没有时返回null
+     */
+    private String swap(String path, String genPath, Manifest manifest) throws Exception {
+        byte[] data = manifest.toBytes();
+        while (true) {
+            Stat stat = new Stat();
+            Manifest current = Manifest.parse(client.getData().storingStatIn(stat).forPath(path));
+            List<CuratorOp> ops = new ArrayList<>(2);
+            ops.add(client.transactionOp().check().forPath(genPath));
+            ops.add(client.transactionOp().setData().withVersion(stat.getVersion()).forPath(path, data));
+            try {
+                client.transaction().forOperations(ops);
+                return null == current ? null : current.gen;
+            } catch (KeeperException.BadVersionException e) {
+                log.debug("分块数据清单已被其它写入方更新，重试切换,path={}", path);
+            }
+        }
+    }
+
+    private void flush(List<CuratorZkBulkWriter.Op> batch) throws KeeperException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (CuratorZkBulkWriter.Result result : bulkWriter.write(batch)) {
+            if (!result.isSuccess()) {
+                throw KeeperException.create(result.getCode(), result.getOp().getPath());
+            }
+        }
+    }
+
+    private byte[] readChunk(InputStream in) throws IOException {
+        byte[] buffer = new byte[chunkSize];
+        int offset = 0;
+        int read;
+        while (offset < chunkSize && (read = in.read(buffer, offset, chunkSize - offset)) != -1) {
+            offset += read;
+        }
+        if (offset == chunkSize) {
+            return buffer;
+        }
+        byte[] chunk = new byte[offset];
+        System.arraycopy(buffer, 0, chunk, 0, offset);
+        return chunk;
+    }
+
+    private void deleteQuietly(String path) {
+        try {
+            client.delete().guaranteed().deletingChildrenIfNeeded().inBackground().forPath(path);
+        } catch (Exception e) {
+            log.warn("删除分块数据旧版本出现异常,path={}", path, e);
+        }
+    }
+
+    private static String chunkName(int index) {
+        return String.format("%s%05d", CHUNK_PREFIX, index);
+    }
+
+    /**
+     * 清单：当前版本目录、总大小、分块数，以文本形式保存在 path 节点
+     */
+    private static final class Manifest {
+        private final String gen;
+        private final long size;
+        private final int chunks;
+
+        private Manifest(String gen, long size, int chunks) {
+            this.gen = gen;
+            this.size = size;
+            this.chunks = chunks;
+        }
+
+        private byte[] toBytes() {
+            return ("gen=" + gen + "\nsize=" + size + "\nchunks=" + chunks + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static Manifest parse(byte[] bytes) {
+            if (null == bytes || bytes.length == 0) {
+                return null;
+            }
+            String gen = null;
+            long size = 0;
+            int chunks = 0;
+            for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+                int index = line.indexOf('=');
+                if (index < 0) {
+                    continue;
+                }
+                String value = line.substring(index + 1);
+                switch (line.substring(0, index)) {
+                    case "gen":
+                        gen = value;
+                        break;
+                    case "size":
+                        size = Long.parseLong(value);
+                        break;
+                    case "chunks":
+                        chunks = Integer.parseInt(value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return null == gen ? null : new Manifest(gen, size, chunks);
+        }
+    }
+
+    private static final class ChunkStream extends SequenceInputStream {
+        private final Manifest manifest;
+
+        private ChunkStream(Manifest manifest, List<InputStream> streams) {
+            super(Collections.enumeration(streams));
+            this.manifest = manifest;
+        }
+    }
+}
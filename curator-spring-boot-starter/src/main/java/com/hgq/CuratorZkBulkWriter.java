@@ -0,0 +1,332 @@
+package com.hgq;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @ClassName com.hgq.CuratorZkBulkWriter
+ * @Description: 自动分批的批量写入
+ * 接收任意数量的 create/setData/delete/upsert 操作，按操作数和估算字节数拆分为多个multi事务，避免超过 jute.maxbuffer；
+ * 所有事务在同一会话上后台并发提交（ZK按提交顺序执行），每个事务内原子执行，返回每个操作的结果；
+ * 传入的操作不会被修改，可以重复提交；超时后返回的结果不再变化，之后才完成的事务只打印日志
+ * @Author: hgq
+ * @Date: 2026-10-18 18:05
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkBulkWriter {
+
+    /**
+     * 每个操作除路径和数据外的估算开销（请求头、ACL等）
+     */
+    private static final int OP_OVERHEAD_BYTES = 64;
+
+    private final CuratorFramework client;
+    private final int maxOps;
+    private final int maxBytes;
+    private final long timeoutMs;
+
+    public CuratorZkBulkWriter(CuratorFramework client, int maxOps, int maxBytes, long timeoutMs) {
+        this.client = client;
+        this.maxOps = maxOps;
+        this.maxBytes = maxBytes;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 单个事务的最大操作数
+     *
+     * @return
+     */
+    public int getMaxOps() {
+        return maxOps;
+    }
+
+    /**
+     * 单个事务的最大估算字节数
+     *
+     * @return
+     */
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 批量写入
+     * 单个事务失败时该事务内的操作全部回滚：失败的操作返回其错误码，被回滚的操作返回 RUNTIMEINCONSISTENCY，其它事务不受影响；
+     * 超时未完成的操作返回 OPERATIONTIMEOUT，实际结果未知
+     *
+     * @param ops
+     * @return 与传入顺序一致的操作结果
+     */
+    public List<Result> write(List<Op> ops) {
+        Results results = new Results(ops.size());
+        Type[] types = resolveUpserts(ops);
+
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>();
+        int bytes = 0;
+        for (int i = 0; i < ops.size(); i++) {
+            int size = ops.get(i).estimateSize();
+            if (!chunk.isEmpty() && (chunk.size() >= maxOps || bytes + size > maxBytes)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                bytes = 0;
+            }
+            chunk.add(i);
+            bytes += size;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+
+        CountDownLatch latch = new CountDownLatch(chunks.size());
+        for (List<Integer> indexes : chunks) {
+            submit(ops, types, indexes, results, latch);
+        }
+        try {
+            if (!latch.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.error("批量写入超时,ops={},chunks={}", ops.size(), chunks.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return results.complete(ops);
+    }
+
+    private void submit(List<Op> ops, Type[] types, List<Integer> indexes, Results results, CountDownLatch latch) {
+        try {
+            List<CuratorOp> curatorOps = new ArrayList<>(indexes.size());
+            for (Integer index : indexes) {
+                curatorOps.add(ops.get(index).toCuratorOp(client, types[index]));
+            }
+            client.transaction().inBackground((curatorFramework, event) -> {
+                KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+                List<CuratorTransactionResult> opResults = event.getOpResults();
+                Result[] chunkResults = new Result[indexes.size()];
+                for (int i = 0; i < indexes.size(); i++) {
+                    Op op = ops.get(indexes.get(i));
+                    if (null == opResults || opResults.size() <= i) {
+                        chunkResults[i] = new Result(op, code, null, null);
+                        continue;
+                    }
+                    CuratorTransactionResult opResult = opResults.get(i);
+                    KeeperException.Code opCode = KeeperException.Code.get(opResult.getError());
+                    if (code != KeeperException.Code.OK && opCode == KeeperException.Code.OK) {
+                        opCode = KeeperException.Code.RUNTIMEINCONSISTENCY;
+                    }
+                    chunkResults[i] = new Result(op, opCode, opResult.getResultPath(), opResult.getResultStat());
+                }
+                if (!results.set(indexes, chunkResults)) {
+                    log.warn("批量写入事务在超时后才完成，结果已忽略,size={},code={},firstPath={}",
+                            indexes.size(), code, ops.get(indexes.get(0)).path);
+                }
+                latch.countDown();
+            }).forOperations(curatorOps);
+        } catch (Exception e) {
+            log.error("提交批量写入事务出现异常,size={}", indexes.size(), e);
+            Result[] chunkResults = new Result[indexes.size()];
+            for (int i = 0; i < indexes.size(); i++) {
+                chunkResults[i] = new Result(ops.get(indexes.get(i)), KeeperException.Code.SYSTEMERROR, null, null);
+            }
+            results.set(indexes, chunkResults);
+            latch.countDown();
+        }
+    }
+
+    /**
+     * 并发检查 upsert 操作的节点是否存在，转换为 create 或 setData；检查超时的按 create 处理，节点已存在时返回 NODEEXISTS
+     *
+     * @param ops
+     * @return 每个操作实际执行的类型
+     */
+    private Type[] resolveUpserts(List<Op> ops) {
+        Type[] types = new Type[ops.size()];
+        List<Integer> upserts = new ArrayList<>();
+        for (int i = 0; i < ops.size(); i++) {
+            types[i] = ops.get(i).type;
+            if (types[i] == Type.UPSERT) {
+                upserts.add(i);
+            }
+        }
+        if (upserts.isEmpty()) {
+            return types;
+        }
+        AtomicReferenceArray<Type> resolved = new AtomicReferenceArray<>(ops.size());
+        CountDownLatch latch = new CountDownLatch(upserts.size());
+        for (Integer index : upserts) {
+            try {
+                client.checkExists().inBackground((curatorFramework, event) -> {
+                    resolved.set(index, null != event.getStat() ? Type.SET_DATA : Type.CREATE);
+                    latch.countDown();
+                }).forPath(ops.get(index).path);
+            } catch (Exception e) {
+                latch.countDown();
+            }
+        }
+        try {
+            latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Integer index : upserts) {
+            Type type = resolved.get(index);
+            types[index] = null == type ? Type.CREATE : type;
+        }
+        return types;
+    }
+
+    /**
+     * 一次 write 的结果，complete 之后到达的事务结果被忽略
+     */
+    private static final class Results {
+        private final Result[] results;
+        private boolean completed;
+
+        private Results(int size) {
+            this.results = new Result[size];
+        }
+
+        /**
+         * @return 超时后到达时返回false
+         */
+        private synchronized boolean set(List<Integer> indexes, Result[] chunkResults) {
+            if (completed) {
+                return false;
+            }
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = chunkResults[i];
+            }
+            return true;
+        }
+
+        private synchronized List<Result> complete(List<Op> ops) {
+            completed = true;
+            for (int i = 0; i < results.length; i++) {
+                if (null == results[i]) {
+                    results[i] = new Result(ops.get(i), KeeperException.Code.OPERATIONTIMEOUT, null, null);
+                }
+            }
+            return new ArrayList<>(Arrays.asList(results));
+        }
+    }
+
+    public enum Type {
+        CREATE, SET_DATA, DELETE, UPSERT
+    }
+
+    /**
+     * 单个写操作
+     */
+    @Getter
+    public static final class Op {
+        private final Type type;
+        private final String path;
+        private final byte[] data;
+        private final CreateMode mode;
+        private final int version;
+
+        private Op(Type type, String path, byte[] data, CreateMode mode, int version) {
+            this.type = type;
+            this.path = path;
+            this.data = data;
+            this.mode = mode;
+            this.version = version;
+        }
+
+        public static Op create(String path, byte[] data) {
+            return new Op(Type.CREATE, path, data, CreateMode.PERSISTENT, -1);
+        }
+
+        public static Op create(String path, byte[] data, CreateMode mode) {
+            return new Op(Type.CREATE, path, data, mode, -1);
+        }
+
+        public static Op setData(String path, byte[] data) {
+            return new Op(Type.SET_DATA, path, data, null, -1);
+        }
+
+        public static Op setData(String path, byte[] data, int version) {
+            return new Op(Type.SET_DATA, path, data, null, version);
+        }
+
+        public static Op delete(String path) {
+            return new Op(Type.DELETE, path, null, null, -1);
+        }
+
+        public static Op delete(String path, int version) {
+            return new Op(Type.DELETE, path, null, null, version);
+        }
+
+        /**
+         * 节点存在则更新数据，不存在则创建（父节点需已存在）
+         *
+         * @param path
+         * @param data
+         * @return
+         */
+        public static Op upsert(String path, byte[] data) {
+            return new Op(Type.UPSERT, path, data, CreateMode.PERSISTENT, -1);
+        }
+
+        int estimateSize() {
+            return path.getBytes(StandardCharsets.UTF_8).length + (null == data ? 0 : data.length) + OP_OVERHEAD_BYTES;
+        }
+
+        CuratorOp toCuratorOp(CuratorFramework client, Type resolvedType) throws Exception {
+            byte[] bytes = null == data ? new byte[0] : data;
+            switch (resolvedType) {
+                case CREATE:
+                    return client.transactionOp().create().withMode(null == mode ? CreateMode.PERSISTENT : mode).forPath(path, bytes);
+                case SET_DATA:
+                    return client.transactionOp().setData().withVersion(version).forPath(path, bytes);
+                case DELETE:
+                    return client.transactionOp().delete().withVersion(version).forPath(path);
+                default:
+                    throw new IllegalStateException("unresolved op type: " + type + ", path=" + path);
+            }
+        }
+    }
+
+    /**
+     * 单个写操作的结果
+     */
+    @Getter
+    public static final class Result {
+        private final Op op;
+        private final KeeperException.Code code;
+        /**
+         * create 操作的实际路径（有序节点带序号）
+         */
+        private final String resultPath;
+        /**
+         * setData 操作后的节点状态
+         */
+        private final Stat resultStat;
+
+        Result(Op op, KeeperException.Code code, String resultPath, Stat resultStat) {
+            this.op = op;
+            this.code = code;
+            this.resultPath = resultPath;
+            this.resultStat = resultStat;
+        }
+
+        public boolean isSuccess() {
+            return code == KeeperException.Code.OK;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.watch.PersistentWatcher;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkChildrenIndex
+ * @Description: 客户端缓存的有序子节点索引
+ * 通过 PersistentWatcher 在父节点上注册持久递归监听，根据子节点的创建/删除事件增量维护有序集合，
+ * 只在首次启动和重连时全量getChildren一次；重新同步期间收到的事件先缓存，拿到全量列表后按顺序重放
+ * 由于ZK按顺序投递事件，当索引中出现自己刚创建的节点时，比它更早创建的节点一定已在索引中
+ * @Author: hgq
+ * @Date: 2026-10-18 15:30
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkChildrenIndex implements Closeable {
+
+    private final CuratorFramework client;
+    private final String path;
+    private final PersistentWatcher watcher;
+    /**
+     * 连接断开期间可能丢失事件，标记为未同步，重连后由 PersistentWatcher 触发重新同步
+     */
+    private final ConnectionStateListener connectionStateListener = (curatorFramework, newState) -> {
+        if (!newState.isConnected()) {
+            initialized = false;
+        }
+    };
+    private final ConcurrentSkipListSet<String> children = new ConcurrentSkipListSet<>();
+    private final Object monitor = new Object();
+    /**
+     * 重新同步期间缓存的事件，不为null表示正在同步
+     */
+    private List<WatchedEvent> pending;
+    private volatile boolean initialized;
+
+    public CuratorZkChildrenIndex(CuratorFramework client, String path) {
+        this.client = client;
+        this.path = path;
+        this.watcher = new PersistentWatcher(client, path, true);
+    }
+
+    public void start() {
+        client.getConnectionStateListenable().addListener(connectionStateListener);
+        watcher.getListenable().addListener(this::onEvent);
+        watcher.getResetListenable().addListener(this::resync);
+        watcher.start();
+    }
+
+    @Override
+    public void close() {
+        client.getConnectionStateListenable().removeListener(connectionStateListener);
+        watcher.close();
+        synchronized (monitor) {
+            initialized = false;
+            children.clear();
+            monitor.notifyAll();
+        }
+    }
+
+    /**
+     * 索引是否已完成同步，未同步时调用方应直接访问ZK
+     *
+     * @return
+     */
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * 等待索引完成同步
+     *
+     * @param time
+     * @param unit
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean awaitInitialized(long time, TimeUnit unit) throws InterruptedException {
+        return awaitCondition(null, time, unit);
+    }
+
+    /**
+     * 等待索引中出现指定子节点
+     *
+     * @param child 子节点名称
+     * @param time
+     * @param unit
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean awaitContains(String child, long time, TimeUnit unit) throws InterruptedException {
+        return awaitCondition(child, time, unit);
+    }
+
+    /**
+     * 有序的子节点名称列表（副本）
+     *
+     * @return
+     */
+    public List<String> getChildren() {
+        return new ArrayList<>(children);
+    }
+
+    /**
+     * 最小的子节点，没有子节点时返回null
+     *
+     * @return
+     */
+    public String first() {
+        try {
+            return children.first();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 比指定子节点小的最大子节点，没有时返回null
+     *
+     * @param child
+     * @return
+     */
+    public String predecessor(String child) {
+        return children.lower(child);
+    }
+
+    /**
+     * 按顺序取前 n 个子节点
+     *
+     * @param n
+     * @return
+     */
+    public List<String> head(int n) {
+        List<String> result = new ArrayList<>(Math.min(n, 64));
+        for (String child : children) {
+            if (result.size() >= n) {
+                break;
+            }
+            result.add(child);
+        }
+        return result;
+    }
+
+    public boolean contains(String child) {
+        return children.contains(child);
+    }
+
+    public int size() {
+        return children.size();
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    private boolean awaitCondition(String child, long time, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(time);
+        synchronized (monitor) {
+            while (!initialized || (null != child && !children.contains(child))) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+            }
+            return true;
+        }
+    }
+
+    private void onEvent(WatchedEvent event) {
+        String eventPath = event.getPath();
+        if (null == eventPath || eventPath.equals(path) || !path.equals(ZKPaths.getPathAndNode(eventPath).getPath())) {
+            return;
+        }
+        synchronized (monitor) {
+            if (null != pending) {
+                pending.add(event);
+                return;
+            }
+            apply(event);
+            monitor.notifyAll();
+        }
+    }
+
+    private void apply(WatchedEvent event) {
+        String child = ZKPaths.getNodeFromPath(event.getPath());
+        switch (event.getType()) {
+            case NodeCreated:
+                children.add(child);
+                break;
+            case NodeDeleted:
+                children.remove(child);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 监听建立（首次或重连）后全量同步一次
+     */
+    private void resync() {
+        synchronized (monitor) {
+            pending = new ArrayList<>();
+            initialized = false;
+        }
+        try {
+            client.getChildren().inBackground((curatorFramework, event) -> {
+                synchronized (monitor) {
+                    int code = event.getResultCode();
+                    if (code == KeeperException.Code.OK.intValue() || code == KeeperException.Code.NONODE.intValue()) {
+                        children.clear();
+                        if (code == KeeperException.Code.OK.intValue()) {
+                            children.addAll(event.getChildren());
+                        }
+                        for (WatchedEvent watchedEvent : pending) {
+                            apply(watchedEvent);
+                        }
+                        initialized = true;
+                    } else {
+                        log.warn("同步子节点索引失败，等待重连后重试,path={},code={}", path, code);
+                        initialized = false;
+                    }
+                    pending = null;
+                    monitor.notifyAll();
+                }
+            }).forPath(path);
+        } catch (Exception e) {
+            log.error("同步子节点索引出现异常,path={}", path, e);
+            synchronized (monitor) {
+                pending = null;
+                initialized = false;
+            }
+        }
+    }
+}
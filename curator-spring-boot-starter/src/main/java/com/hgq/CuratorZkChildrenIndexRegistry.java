@@ -0,0 +1,81 @@
+package com.hgq;
+
+import org.apache.curator.framework.CuratorFramework;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @ClassName com.hgq.CuratorZkChildrenIndexRegistry
+ * @Description: 子节点索引注册表
+ * 同一父节点只维护一个 CuratorZkChildrenIndex，按引用计数共享，最后一个使用方释放时关闭监听
+ * @Author: hgq
+ * @Date: 2026-10-18 15:55
+ * @Version: 1.0
+ */
+public class CuratorZkChildrenIndexRegistry {
+
+    private final CuratorFramework client;
+    private final ConcurrentMap<String, Entry> indexes = new ConcurrentHashMap<>();
+
+    public CuratorZkChildrenIndexRegistry(CuratorFramework client) {
+        this.client = client;
+    }
+
+    /**
+     * 获取并引用父节点的子节点索引，不存在时创建并启动；使用完毕后必须调用 release
+     *
+     * @param path 父节点路径
+     * @return
+     */
+    public CuratorZkChildrenIndex retain(String path) {
+        Entry entry = indexes.compute(path, (key, current) -> {
+            if (null == current) {
+                current = new Entry(new CuratorZkChildrenIndex(client, key));
+                current.index.start();
+            }
+            current.refs++;
+            return current;
+        });
+        return entry.index;
+    }
+
+    /**
+     * 释放引用，引用计数归零时关闭索引
+     *
+     * @param path 父节点路径
+     */
+    public void release(String path) {
+        Entry[] closed = new Entry[1];
+        indexes.computeIfPresent(path, (key, current) -> {
+            if (--current.refs > 0) {
+                return current;
+            }
+            closed[0] = current;
+            return null;
+        });
+        if (null != closed[0]) {
+            closed[0].index.close();
+        }
+    }
+
+    /**
+     * 查找已启动且同步完成的索引，不增加引用；没有时返回null
+     *
+     * @param path 父节点路径
+     * @return
+     */
+    public CuratorZkChildrenIndex find(String path) {
+        Entry entry = indexes.get(path);
+        return null != entry && entry.index.isInitialized() ? entry.index : null;
+    }
+
+    private static final class Entry {
+        private final CuratorZkChildrenIndex index;
+        private int refs;
+
+        Entry(CuratorZkChildrenIndex index) {
+            this.index = index;
+        }
+    }
+}
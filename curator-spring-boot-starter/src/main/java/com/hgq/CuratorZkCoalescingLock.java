@@ -0,0 +1,269 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @ClassName com.hgq.CuratorZkCoalescingLock
+ * @Description: 本地合并的分布式锁
+ * 同一JVM内的线程先在每个lockKey对应的本地公平锁上排队，只有队头线程参与ZK加锁；
+ * 持有ZK锁的线程释放时，如果本地还有等待线程，则直接把ZK锁移交给下一个本地线程，
+ * 连续移交达到 maxHandoffs 次后强制释放ZK锁，让其它进程有机会获取；
+ * 是否移交的判断、释放本地锁以及等待线程超时放弃都在 Cohort 的监视器内完成，避免ZK锁移交给已放弃的线程后无人释放
+ * @Author: hgq
+ * @Date: 2026-10-18 10:12
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkCoalescingLock implements InterProcessLock {
+
+    private final CuratorFramework client;
+    private final String lockKey;
+    private final ConcurrentMap<String, Cohort> cohorts;
+    private final int maxHandoffs;
+    private final CuratorZkLockObserver observer;
+
+    CuratorZkCoalescingLock(CuratorFramework client, String lockKey, ConcurrentMap<String, Cohort> cohorts, int maxHandoffs) {
+        this(client, lockKey, cohorts, maxHandoffs, CuratorZkLockObserver.NONE);
+    }
+
+    CuratorZkCoalescingLock(CuratorFramework client, String lockKey, ConcurrentMap<String, Cohort> cohorts, int maxHandoffs,
+                            CuratorZkLockObserver observer) {
+        this.client = client;
+        this.lockKey = lockKey;
+        this.cohorts = cohorts;
+        this.maxHandoffs = maxHandoffs;
+        this.observer = observer;
+    }
+
+    @Override
+    public void acquire() throws Exception {
+        acquire(-1, null);
+    }
+
+    @Override
+    public boolean acquire(long time, TimeUnit unit) throws Exception {
+        if (isHeldByCurrentThread()) {
+            // 重入，不计入等待和持有
+            return doAcquire(time, unit);
+        }
+        long start = System.nanoTime();
+        observer.waiting(CuratorZkLockObserver.TYPE_COALESCING, lockKey);
+        boolean locked = false;
+        try {
+            locked = doAcquire(time, unit);
+        } finally {
+            observer.acquired(CuratorZkLockObserver.TYPE_COALESCING, lockKey, System.nanoTime() - start, locked);
+        }
+        return locked;
+    }
+
+    private boolean doAcquire(long time, TimeUnit unit) throws Exception {
+        long deadline = null == unit ? -1 : System.nanoTime() + unit.toNanos(time);
+        Cohort cohort = retain();
+        boolean locked = false;
+        try {
+            //1. 本地公平排队
+            cohort.waiters.incrementAndGet();
+            try {
+                if (deadline < 0) {
+                    cohort.local.lockInterruptibly();
+                } else if (!cohort.local.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    cohort.giveUp();
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                cohort.giveUp();
+                throw e;
+            }
+            cohort.waiters.decrementAndGet();
+
+            //2. 重入或ZK锁已由本进程持有（上一个本地线程移交），无需访问ZK
+            if (cohort.local.getHoldCount() > 1 || cohort.zkHeld) {
+                if (cohort.local.getHoldCount() == 1) {
+                    cohort.acquiredAt = System.nanoTime();
+                }
+                locked = true;
+                return true;
+            }
+
+            //3. 队头线程参与ZK加锁
+            try {
+                if (deadline < 0) {
+                    cohort.zkLock.acquire();
+                    locked = true;
+                } else {
+                    locked = cohort.zkLock.acquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } finally {
+                if (locked) {
+                    cohort.zkHeld = true;
+                    cohort.handoffs = 0;
+                    cohort.acquiredAt = System.nanoTime();
+                } else {
+                    cohort.local.unlock();
+                }
+            }
+            return locked;
+        } finally {
+            if (!locked) {
+                release(cohort);
+            }
+        }
+    }
+
+    @Override
+    public void release() throws Exception {
+        Cohort cohort = cohorts.get(lockKey);
+        if (null == cohort || !cohort.local.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("You do not own the lock: " + lockKey);
+        }
+        boolean outermost = cohort.local.getHoldCount() == 1;
+        long holdNanos = System.nanoTime() - cohort.acquiredAt;
+        try {
+            if (outermost) {
+                cohort.unlock(maxHandoffs);
+            } else {
+                cohort.local.unlock();
+            }
+        } finally {
+            release(cohort);
+        }
+        if (outermost) {
+            observer.released(CuratorZkLockObserver.TYPE_COALESCING, lockKey, holdNanos);
+        }
+    }
+
+    /**
+     * ZK锁是否被当前JVM持有
+     *
+     * @return
+     */
+    @Override
+    public boolean isAcquiredInThisProcess() {
+        Cohort cohort = cohorts.get(lockKey);
+        return null != cohort && cohort.zkHeld;
+    }
+
+    /**
+     * 当前线程是否持有锁
+     *
+     * @return
+     */
+    public boolean isHeldByCurrentThread() {
+        Cohort cohort = cohorts.get(lockKey);
+        return null != cohort && cohort.local.isHeldByCurrentThread();
+    }
+
+    private Cohort retain() {
+        return cohorts.compute(lockKey, (key, cohort) -> {
+            if (null == cohort) {
+                cohort = new Cohort(new InterProcessSemaphoreMutex(client, key));
+            }
+            cohort.refs++;
+            return cohort;
+        });
+    }
+
+    /**
+     * 会话过期后临时节点已被删除，本进程不再持有任何ZK锁；
+     * 当前持有本地锁的线程继续执行完，之后的本地线程重新获取ZK锁
+     *
+     * @param cohorts
+     */
+    static void connectionLost(ConcurrentMap<String, Cohort> cohorts) {
+        cohorts.forEach((lockKey, cohort) -> {
+            if (cohort.connectionLost()) {
+                log.warn("会话已过期，本地合并锁不再持有ZK锁,lockKey={}", lockKey);
+            }
+        });
+    }
+
+    /**
+     * 引用计数归零时移除，避免大量不同lockKey造成内存泄漏
+     *
+     * @param cohort
+     */
+    private void release(Cohort cohort) {
+        cohorts.computeIfPresent(lockKey, (key, current) -> {
+            if (current != cohort) {
+                return current;
+            }
+            return --current.refs == 0 ? null : current;
+        });
+    }
+
+    /**
+     * 同一lockKey在本JVM内共享的状态，refs只在ConcurrentHashMap.compute内修改
+     */
+    static final class Cohort {
+        private final ReentrantLock local = new ReentrantLock(true);
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final InterProcessLock zkLock;
+        private volatile boolean zkHeld;
+        private int handoffs;
+        private int refs;
+        /**
+         * 当前线程最外层加锁的时间，只由持有本地锁的线程读写
+         */
+        private long acquiredAt;
+
+        Cohort(InterProcessLock zkLock) {
+            this.zkLock = zkLock;
+        }
+
+        /**
+         * 持有线程最外层释放：本地还有等待线程时保留ZK锁直接移交，否则释放ZK锁；
+         * 与 giveUp 互斥，保证最后一个等待线程放弃时一定能看到移交的结果
+         */
+        private synchronized void unlock(int maxHandoffs) throws Exception {
+            try {
+                if (waiters.get() > 0 && handoffs < maxHandoffs) {
+                    handoffs++;
+                } else if (zkHeld) {
+                    zkHeld = false;
+                    zkLock.release();
+                }
+            } finally {
+                local.unlock();
+            }
+        }
+
+        /**
+         * 等待线程超时或被中断时放弃排队；ZK锁刚移交给本地线程而已没有等待线程时，由最后一个放弃的线程释放
+         * 获取不到本地锁说明已有线程持有，ZK锁由该线程负责释放
+         */
+        private synchronized void giveUp() {
+            if (waiters.decrementAndGet() > 0 || !zkHeld || !local.tryLock()) {
+                return;
+            }
+            try {
+                zkHeld = false;
+                zkLock.release();
+            } catch (Exception e) {
+                throw new CuratorLockException(e);
+            } finally {
+                local.unlock();
+            }
+        }
+
+        /**
+         * @return 会话过期前是否持有ZK锁
+         */
+        private synchronized boolean connectionLost() {
+            if (!zkHeld) {
+                return false;
+            }
+            // 节点已随会话删除，不再调用 zkLock.release()，避免在连接状态回调线程里重试删除
+            zkHeld = false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.hgq;
+
+/**
+ * @ClassName com.hgq.CuratorZkCodec
+ * @Description: 节点数据编解码 SPI
+ * CuratorZkUtil / CuratorZkAsyncUtil 的类型化读写方法通过它在对象和节点字节之间转换，内置实现见 CuratorZkCodecs；
+ * isCompressed 为true时写入前由客户端的 CompressionProvider 压缩、读取后解压，
+ * 与 NodeCache(client, path, true) / TreeCache.setDataIsCompressed(true) 等按压缩方式读取的监听兼容
+ * @Author: hgq
+ * @Date: 2026-10-18 21:50
+ * @Version: 1.0
+ */
+public interface CuratorZkCodec<T> {
+
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+
+    /**
+     * 节点数据是否压缩存储
+     *
+     * @return
+     */
+    default boolean isCompressed() {
+        return false;
+    }
+}
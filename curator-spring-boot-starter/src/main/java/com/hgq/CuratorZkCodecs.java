@@ -0,0 +1,96 @@
+package com.hgq;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ClassName com.hgq.CuratorZkCodecs
+ * @Description: 内置编解码
+ * UTF8 字符串；BYTES / BYTE_BUFFER 直接读写原始字节，不创建String；
+ * compressed(codec) 包装为压缩存储，压缩算法由 curator.codec.compression 配置（GZIP / LZ4）
+ * @Author: hgq
+ * @Date: 2026-10-18 21:50
+ * @Version: 1.0
+ */
+public final class CuratorZkCodecs {
+
+    public static final CuratorZkCodec<String> UTF8 = new CuratorZkCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return null == value ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return null == bytes ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    public static final CuratorZkCodec<byte[]> BYTES = new CuratorZkCodec<byte[]>() {
+        @Override
+        public byte[] encode(byte[] value) {
+            return null == value ? new byte[0] : value;
+        }
+
+        @Override
+        public byte[] decode(byte[] bytes) {
+            return bytes;
+        }
+    };
+
+    /**
+     * 堆内且完整覆盖底层数组的 ByteBuffer 直接使用底层数组，否则复制剩余部分；读取时包装返回的数组，不复制
+     */
+    public static final CuratorZkCodec<ByteBuffer> BYTE_BUFFER = new CuratorZkCodec<ByteBuffer>() {
+        @Override
+        public byte[] encode(ByteBuffer value) {
+            if (null == value) {
+                return new byte[0];
+            }
+            if (value.hasArray() && value.arrayOffset() == 0 && value.position() == 0 && value.remaining() == value.array().length) {
+                return value.array();
+            }
+            byte[] bytes = new byte[value.remaining()];
+            value.duplicate().get(bytes);
+            return bytes;
+        }
+
+        @Override
+        public ByteBuffer decode(byte[] bytes) {
+            return null == bytes ? null : ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+    };
+
+    public static final CuratorZkCodec<String> COMPRESSED_UTF8 = compressed(UTF8);
+
+    public static final CuratorZkCodec<byte[]> COMPRESSED_BYTES = compressed(BYTES);
+
+    private CuratorZkCodecs() {
+    }
+
+    /**
+     * 以压缩方式存储
+     *
+     * @param codec
+     * @param <T>
+     * @return
+     */
+    public static <T> CuratorZkCodec<T> compressed(CuratorZkCodec<T> codec) {
+        return new CuratorZkCodec<T>() {
+            @Override
+            public byte[] encode(T value) {
+                return codec.encode(value);
+            }
+
+            @Override
+            public T decode(byte[] bytes) {
+                return codec.decode(bytes);
+            }
+
+            @Override
+            public boolean isCompressed() {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,105 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.apache.curator.framework.api.CompressionProvider;
+import org.apache.curator.framework.imps.GzipCompressionProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * @ClassName com.hgq.CuratorZkCompressionProvider
+ * @Description: 客户端压缩实现
+ * 按配置的算法压缩（GZIP 使用 Curator 内置实现，LZ4 需要可选依赖 lz4-java，缺少时退回 GZIP）；
+ * 解压时按数据头部的魔数识别算法，切换算法后仍可读取旧数据
+ * @Author: hgq
+ * @Date: 2026-10-18 22:00
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkCompressionProvider implements CompressionProvider {
+
+    public enum Algorithm {
+        GZIP, LZ4
+    }
+
+    private static final boolean LZ4_PRESENT = isPresent("net.jpountz.lz4.LZ4FrameOutputStream");
+
+    private final GzipCompressionProvider gzip = new GzipCompressionProvider();
+    private final Algorithm algorithm;
+
+    public CuratorZkCompressionProvider(Algorithm algorithm) {
+        if (algorithm == Algorithm.LZ4 && !LZ4_PRESENT) {
+            log.warn("未找到 lz4-java 依赖，节点数据压缩使用 GZIP");
+            algorithm = Algorithm.GZIP;
+        }
+        this.algorithm = algorithm;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public byte[] compress(String path, byte[] data) throws Exception {
+        if (algorithm == Algorithm.LZ4) {
+            return Lz4.compress(data);
+        }
+        return gzip.compress(path, data);
+    }
+
+    @Override
+    public byte[] decompress(String path, byte[] compressedData) throws Exception {
+        if (isLz4(compressedData)) {
+            if (!LZ4_PRESENT) {
+                throw new IllegalStateException("LZ4 compressed data requires lz4-java, path=" + path);
+            }
+            return Lz4.decompress(compressedData);
+        }
+        return gzip.decompress(path, compressedData);
+    }
+
+    /**
+     * LZ4 frame 格式魔数 0x184D2204（小端）
+     */
+    private static boolean isLz4(byte[] data) {
+        return data.length >= 4 && data[0] == 0x04 && data[1] == 0x22 && data[2] == 0x4D && data[3] == 0x18;
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, CuratorZkCompressionProvider.class.getClassLoader());
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * 隔离对 lz4-java 的引用，未引入可选依赖时不会加载
+     */
+    private static final class Lz4 {
+        private static byte[] compress(byte[] data) throws Exception {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            try (LZ4FrameOutputStream out = new LZ4FrameOutputStream(bytes)) {
+                out.write(data);
+            }
+            return bytes.toByteArray();
+        }
+
+        private static byte[] decompress(byte[] data) throws Exception {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length * 3);
+            try (InputStream in = new LZ4FrameInputStream(new ByteArrayInputStream(data))) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
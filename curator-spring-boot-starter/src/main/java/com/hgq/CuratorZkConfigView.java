@@ -0,0 +1,205 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.utils.ZKPaths;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkConfigView
+ * @Description: 子树配置的不可变快照视图
+ * 监听整棵子树（通过 CuratorZkUtil 共享的监听缓存），变化经 CuratorZkDebouncingListener 合并后，
+ * 只对变化的节点解码一次，生成新版本的不可变快照并整体替换；读取方通过一次volatile读拿到一致的快照，无锁、不分配对象
+ * 快照的key为相对子树根节点的路径（不含开头的/，例如 db/url），不包含根节点自身；初始加载完成前快照为空
+ * 用法：
+ * CuratorZkConfigView<String> view = curatorZkUtil.openConfigView("/config/app", CuratorZkCodecs.UTF8);
+ * String url = view.snapshot().get("db/url");
+ * @Author: hgq
+ * @Date: 2026-10-18 22:50
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkConfigView<T> implements Closeable {
+
+    public static final long DEFAULT_DEBOUNCE_MS = 100;
+    /**
+     * 解压按数据头部识别算法（GZIP / LZ4），与客户端配置的压缩算法无关
+     */
+    private static final CuratorZkCompressionProvider DECOMPRESSOR = new CuratorZkCompressionProvider(CuratorZkCompressionProvider.Algorithm.GZIP);
+
+    private final CuratorZkUtil util;
+    private final String path;
+    private final CuratorZkCodec<T> codec;
+    private final CuratorCacheListener listener;
+    private final CuratorZkDebouncingListener debouncer;
+    private final CountDownLatch initializedLatch = new CountDownLatch(1);
+    /**
+     * 最新的解码结果，只在持有锁时替换，替换后不再修改
+     */
+    private Map<String, T> values = Collections.emptyMap();
+    private boolean initialized;
+    private volatile Snapshot<T> snapshot = new Snapshot<>(0, Collections.emptyMap());
+
+    public CuratorZkConfigView(CuratorZkUtil util, String path, CuratorZkCodec<T> codec, long debounceMs) {
+        this.util = util;
+        this.path = path;
+        this.codec = codec;
+        this.debouncer = new CuratorZkDebouncingListener(debounceMs, this::apply);
+        this.listener = new CuratorCacheListener() {
+            @Override
+            public void event(Type type, ChildData oldData, ChildData data) {
+                debouncer.event(type, oldData, data);
+            }
+
+            @Override
+            public void initialized() {
+                debouncer.initialized();
+                publishInitialized();
+            }
+        };
+    }
+
+    public void start() {
+        if (!util.registerWatcherAllNodeChanged(path, listener)) {
+            throw new IllegalStateException("register config view failed, path=" + path);
+        }
+    }
+
+    @Override
+    public void close() {
+        util.unregisterWatcherAllNodeChanged(path, listener);
+    }
+
+    /**
+     * 当前快照
+     *
+     * @return
+     */
+    public Snapshot<T> snapshot() {
+        return snapshot;
+    }
+
+    public boolean isInitialized() {
+        return 0 == initializedLatch.getCount();
+    }
+
+    /**
+     * 等待初始加载完成
+     *
+     * @param timeout
+     * @param unit
+     * @return 是否已完成
+     * @throws InterruptedException
+     */
+    public boolean awaitInitialized(long timeout, TimeUnit unit) throws InterruptedException {
+        return initializedLatch.await(timeout, unit);
+    }
+
+    /**
+     * 在上一版本基础上应用一个批次的变化，只解码变化的节点
+     *
+     * @param deltas
+     */
+    private synchronized void apply(Map<String, CuratorZkDebouncingListener.Delta> deltas) {
+        Map<String, T> next = new HashMap<>(values);
+        for (CuratorZkDebouncingListener.Delta delta : deltas.values()) {
+            String key = toKey(delta.getPath());
+            if (null == key) {
+                continue;
+            }
+            if (null == delta.getData()) {
+                next.remove(key);
+                continue;
+            }
+            try {
+                next.put(key, decode(delta.getPath(), delta.getData().getData()));
+            } catch (Exception e) {
+                log.error("配置节点数据解码出现异常，保留上一版本的值,path={}", delta.getPath(), e);
+            }
+        }
+        values = next;
+        if (initialized) {
+            snapshot = new Snapshot<>(snapshot.version + 1, next);
+        }
+    }
+
+    private synchronized void publishInitialized() {
+        if (!initialized) {
+            initialized = true;
+            snapshot = new Snapshot<>(snapshot.version + 1, values);
+        }
+        initializedLatch.countDown();
+    }
+
+    private T decode(String nodePath, byte[] bytes) throws Exception {
+        if (null != bytes && codec.isCompressed()) {
+            bytes = DECOMPRESSOR.decompress(nodePath, bytes);
+        }
+        return codec.decode(bytes);
+    }
+
+    /**
+     * 节点路径转换为相对子树根节点的key，根节点自身返回null
+     */
+    private String toKey(String nodePath) {
+        if (nodePath.equals(path)) {
+            return null;
+        }
+        return nodePath.substring(ZKPaths.PATH_SEPARATOR.equals(path) ? 1 : path.length() + 1);
+    }
+
+    /**
+     * 某一版本的不可变配置
+     */
+    public static final class Snapshot<T> {
+        private final long version;
+        private final Map<String, T> values;
+
+        private Snapshot(long version, Map<String, T> values) {
+            this.version = version;
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        /**
+         * 快照版本，每次变化加1，初始加载完成后为1
+         *
+         * @return
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public T get(String key) {
+            return values.get(key);
+        }
+
+        public T get(String key, T defaultValue) {
+            T value = values.get(key);
+            return null == value ? defaultValue : value;
+        }
+
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        public Set<String> keys() {
+            return values.keySet();
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        public Map<String, T> asMap() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.hgq;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @ClassName com.hgq.CuratorZkDebouncingListener
+ * @Description: 合并事件的监听器适配
+ * 收到一个事件后等待 windowMs，期间的所有事件按路径合并为最新状态（path -> Delta），窗口结束时一次性回调；
+ * 同一路径的多个事件合并为净变化：创建后删除视为无变化，删除后创建视为修改；
+ * 缓存初始化完成时在当前线程立即回调，初始加载的节点作为一个批次；
+ * 定时线程只负责计时，窗口结束后回调提交到 executor 执行（默认为共享的守护线程池），单个慢回调不会推迟其它监听器的批次
+ * 用法：curatorZkUtil.registerWatcherAllNodeChanged(path, new CuratorZkDebouncingListener(200, deltas -> rebuild()))
+ * @Author: hgq
+ * @Date: 2026-10-18 20:45
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkDebouncingListener implements CuratorCacheListener {
+
+    private static volatile ScheduledExecutorService sharedScheduler;
+    private static volatile ExecutorService sharedExecutor;
+
+    private final long windowMs;
+    private final Consumer<Map<String, Delta>> consumer;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final Object deliverLock = new Object();
+    private Map<String, Delta> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+
+    /**
+     * 使用共享的定时线程计时，回调在共享的守护线程池中执行
+     *
+     * @param windowMs 合并窗口
+     * @param consumer 批量回调，按路径首次变化的顺序排列
+     */
+    public CuratorZkDebouncingListener(long windowMs, Consumer<Map<String, Delta>> consumer) {
+        this(windowMs, consumer, sharedExecutor());
+    }
+
+    /**
+     * @param executor 执行批量回调的线程池，同一监听器的批次串行执行
+     */
+    public CuratorZkDebouncingListener(long windowMs, Consumer<Map<String, Delta>> consumer, Executor executor) {
+        this(windowMs, consumer, sharedScheduler(), executor);
+    }
+
+    /**
+     * @param scheduler 计时线程，只用于提交到期的批次
+     * @param executor  执行批量回调的线程池
+     */
+    public CuratorZkDebouncingListener(long windowMs, Consumer<Map<String, Delta>> consumer, ScheduledExecutorService scheduler, Executor executor) {
+        this.windowMs = windowMs;
+        this.consumer = consumer;
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+
+    @Override
+    public void event(Type type, ChildData oldData, ChildData data) {
+        String path = null != data ? data.getPath() : oldData.getPath();
+        synchronized (this) {
+            Delta current = pending.get(path);
+            Delta merged = null == current ? new Delta(path, type, oldData, data) : current.merge(type, data);
+            if (null == merged) {
+                pending.remove(path);
+            } else {
+                pending.put(path, merged);
+            }
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        scheduler.schedule(this::deliver, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void initialized() {
+        flush();
+    }
+
+    /**
+     * 立即回调当前窗口内的变化
+     */
+    public void flush() {
+        // 保证回调串行且按批次顺序执行
+        synchronized (deliverLock) {
+            Map<String, Delta> batch;
+            synchronized (this) {
+                scheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+            try {
+                consumer.accept(Collections.unmodifiableMap(batch));
+            } catch (Exception e) {
+                log.error("批量处理节点事件出现异常,size={}", batch.size(), e);
+            }
+        }
+    }
+
+    /**
+     * 窗口结束，在 executor 中回调，不占用计时线程
+     */
+    private void deliver() {
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            log.warn("批量回调线程池已关闭，在计时线程中回调");
+            flush();
+        }
+    }
+
+    private static ScheduledExecutorService sharedScheduler() {
+        if (null == sharedScheduler) {
+            synchronized (CuratorZkDebouncingListener.class) {
+                if (null == sharedScheduler) {
+                    sharedScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "curator-zk-debounce");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return sharedScheduler;
+    }
+
+    private static ExecutorService sharedExecutor() {
+        if (null == sharedExecutor) {
+            synchronized (CuratorZkDebouncingListener.class) {
+                if (null == sharedExecutor) {
+                    AtomicInteger index = new AtomicInteger();
+                    // 同一监听器最多占用两个线程（一个回调中，一个等待串行），线程空闲60秒后回收
+                    sharedExecutor = Executors.newCachedThreadPool(r -> {
+                        Thread thread = new Thread(r, "curator-zk-debounce-worker-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * 单个路径在窗口内的净变化
+     */
+    @Getter
+    public static final class Delta {
+        private final String path;
+        /**
+         * NODE_CREATED / NODE_CHANGED / NODE_DELETED
+         */
+        private final Type type;
+        /**
+         * 窗口开始前的状态，创建时为null
+         */
+        private final ChildData oldData;
+        /**
+         * 最新状态，删除时为null
+         */
+        private final ChildData data;
+
+        Delta(String path, Type type, ChildData oldData, ChildData data) {
+            this.path = path;
+            this.type = type;
+            this.oldData = oldData;
+            this.data = data;
+        }
+
+        /**
+         * 合并后续事件，返回null表示窗口内无净变化
+         */
+        Delta merge(Type next, ChildData nextData) {
+            if (next == Type.NODE_DELETED) {
+                return type == Type.NODE_CREATED ? null : new Delta(path, Type.NODE_DELETED, oldData, null);
+            }
+            if (type == Type.NODE_DELETED) {
+                return new Delta(path, Type.NODE_CHANGED, oldData, nextData);
+            }
+            return new Delta(path, type, oldData, nextData);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.hgq;
 
+import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
@@ -14,28 +16,60 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * @ClassName com.hgq.CuratorZkDistributedLock
- * @Description: 自定义分布式监听器
+ * @Description: 自定义分布式锁（监听前一个节点，避免羊群效应）
+ * 每个lockKey拥有独立的父节点 /locks/{lockKey}，等待者只监听自己的前一个临时有序节点，
+ * 释放锁时只会唤醒紧随其后的一个等待者
  * @Author: hgq
  * @Date: 2021-09-24 16:33
  * @Version: 1.0
  */
+@Slf4j
 public class CuratorZkDistributedLock implements Watcher {
 
+    private static final String LOCK_NAME = "lock-";
+
     private CuratorFramework client;
     private String locksRoot = "/locks";
-    private String waitNode;
-    private String lockNode;
-    private CountDownLatch latch;
-    private CountDownLatch connectedLatch = new CountDownLatch(1);
+    private volatile String waitNode;
+    private volatile String lockNode;
+    private volatile String lockParent;
+    /**
+     * 是否已获取到锁，只有获取成功后 unlock 才回调 observer.released
+     */
+    private volatile boolean locked;
+    private volatile CountDownLatch latch;
     private int sessionTimeout = 30000;
+    /**
+     * 不为null时通过本地子节点索引查找前一个节点，避免每次都getChildren
+     */
+    private CuratorZkChildrenIndexRegistry childrenIndexRegistry;
+    private volatile CuratorZkChildrenIndex childrenIndex;
+    /**
+     * 锁等待、持有的统计回调
+     */
+    private CuratorZkLockObserver observer;
+    private String lockKey;
+    private long acquiredAt;
 
     public CuratorZkDistributedLock(CuratorFramework client, int sessionTimeout) {
+        this(client, sessionTimeout, null);
+    }
+
+    public CuratorZkDistributedLock(CuratorFramework client, int sessionTimeout, CuratorZkChildrenIndexRegistry childrenIndexRegistry) {
+        this(client, sessionTimeout, childrenIndexRegistry, CuratorZkLockObserver.NONE);
+    }
+
+    public CuratorZkDistributedLock(CuratorFramework client, int sessionTimeout, CuratorZkChildrenIndexRegistry childrenIndexRegistry,
+                                    CuratorZkLockObserver observer) {
+        this.childrenIndexRegistry = childrenIndexRegistry;
+        this.observer = observer;
         try {
             this.client = client;
             this.sessionTimeout = sessionTimeout;
 
-            connectedLatch.wait();
+            client.blockUntilConnected(sessionTimeout, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new CuratorLockException(BusinessMsgEnum.SYSTEM_EXCEPTION);
         }
     }
@@ -43,91 +77,252 @@ public class CuratorZkDistributedLock implements Watcher {
     @Override
     public void process(WatchedEvent event) {
         /**
-         * 处于连接zk状态时
+         * 只关心前一个节点的删除事件，其它事件（如会话断开）同样唤醒等待线程重新检查
          */
-        if (event.getState() == Event.KeeperState.SyncConnected) {
-            connectedLatch.countDown();
-            return;
-        }
-        if (null != this.latch) {
-            this.latch.countDown();
+        CountDownLatch current = this.latch;
+        if (null != current) {
+            current.countDown();
         }
     }
 
 
+    /**
+     * 阻塞获取锁，直到获取成功
+     *
+     * @param lockKey
+     */
     public void acquireLock(String lockKey) {
+        if (null != lockNode) {
+            throw new IllegalStateException("lock already acquired or pending: " + lockNode);
+        }
+        long start = beforeAcquire(lockKey);
+        boolean locked = false;
         try {
-            if (this.tryLock(lockKey)) {
-                return;
-            } else {
-                waitForLock(waitNode, sessionTimeout);
+            if (!this.tryLock(lockKey)) {
+                waitForLock(-1);
             }
+            locked = true;
+            this.locked = true;
+        } catch (CuratorLockException e) {
+            deleteOurNode();
+            throw e;
+        } catch (InterruptedException e) {
+            deleteOurNode();
+            Thread.currentThread().interrupt();
+            throw new CuratorLockException(e);
         } catch (Exception e) {
+            deleteOurNode();
             throw new CuratorLockException(e);
+        } finally {
+            afterAcquire(start, locked);
         }
     }
 
-    private void waitForLock(String waitNode, int sessionTimeout) {
+    /**
+     * 在指定时间内获取锁
+     *
+     * @param lockKey
+     * @param time
+     * @param unit
+     * @return 是否获取到锁，超时未获取到时会删除自己创建的节点
+     */
+    public boolean acquireLock(String lockKey, long time, TimeUnit unit) {
+        if (null != lockNode) {
+            throw new IllegalStateException("lock already acquired or pending: " + lockNode);
+        }
+        long start = beforeAcquire(lockKey);
+        boolean locked = false;
+        try {
+            locked = this.tryLock(lockKey) || waitForLock(unit.toMillis(time));
+            if (!locked) {
+                deleteOurNode();
+            }
+            this.locked = locked;
+            return locked;
+        } catch (CuratorLockException e) {
+            deleteOurNode();
+            throw e;
+        } catch (InterruptedException e) {
+            deleteOurNode();
+            Thread.currentThread().interrupt();
+            throw new CuratorLockException(e);
+        } catch (Exception e) {
+            deleteOurNode();
+            throw new CuratorLockException(e);
+        } finally {
+            afterAcquire(start, locked);
+        }
     }
 
-    private boolean tryLock(String lockKey) {
-        try {
-            String lockPath = locksRoot + "/" + lockKey;
-            //1. 创建临时有序节点
-            lockNode = client.create().withMode(CreateMode.EPHEMERAL_SEQUENTIAL).forPath(lockPath, new byte[0]);
-            List<String> locks = client.getChildren().forPath(locksRoot);
-            Collections.sort(locks);
+    private long beforeAcquire(String lockKey) {
+        this.lockKey = ZKPaths.makePath(locksRoot, lockKey);
+        observer.waiting(CuratorZkLockObserver.TYPE_DISTRIBUTED, this.lockKey);
+        return System.nanoTime();
+    }
 
-            //2. 如果是最小的节点，则表示获取到锁
-            if (lockNode.equals(locksRoot + "/" + locks.get(0))) {
-                return true;
-            }
+    private void afterAcquire(long start, boolean locked) {
+        long now = System.nanoTime();
+        acquiredAt = now;
+        observer.acquired(CuratorZkLockObserver.TYPE_DISTRIBUTED, lockKey, now - start, locked);
+    }
 
-            //3. 如果不是最小的节点，找到比自己小的节点
-            int previousLockIndex = -1;
-            for (int i = 0; i < locks.size(); i++) {
-                if (lockNode.equals(locksRoot + "/" + locks.get(i))) {
-                    previousLockIndex = 1;
-                    break;
-                }
+    /**
+     * 1. 在 /locks/{lockKey} 下创建临时有序节点
+     * 2. 只列出当前lockKey下的子节点，判断自己是否为最小节点
+     * 3. 否则记录自己的前一个节点，等待其删除
+     *
+     * @param lockKey
+     * @return
+     */
+    private boolean tryLock(String lockKey) {
+        try {
+            lockParent = ZKPaths.makePath(locksRoot, lockKey);
+            if (null != childrenIndexRegistry) {
+                childrenIndex = childrenIndexRegistry.retain(lockParent);
             }
-            this.waitNode = locksRoot+"/"+locks.get(previousLockIndex);
-
+            //1. 创建临时有序节点
+            lockNode = client.create().creatingParentContainersIfNeeded()
+                    .withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
+                    .forPath(ZKPaths.makePath(lockParent, LOCK_NAME), new byte[0]);
+            return checkPredecessor(true);
         } catch (KeeperException e) {
             throw new CuratorLockException(e);
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new CuratorLockException(e);
         } catch (Exception e) {
-            e.printStackTrace();
+            throw new CuratorLockException(e);
+        }
+    }
+
+    /**
+     * 判断自己是否为最小节点，不是则把前一个节点记录到 waitNode
+     * 索引中出现自己的节点后，比自己早创建的节点一定已在索引中，此时可直接从索引取前一个节点；
+     * 索引中可能残留已删除的节点，只会导致多监听一次，不影响正确性
+     *
+     * @param useIndex 是否允许使用本地索引
+     * @return 是否获取到锁
+     * @throws Exception
+     */
+    private boolean checkPredecessor(boolean useIndex) throws Exception {
+        String ourName = ZKPaths.getNodeFromPath(lockNode);
+        CuratorZkChildrenIndex index = this.childrenIndex;
+        if (useIndex && null != index && index.awaitContains(ourName, sessionTimeout, TimeUnit.MILLISECONDS)) {
+            String predecessor = index.predecessor(ourName);
+            if (null == predecessor) {
+                waitNode = null;
+                return true;
+            }
+            this.waitNode = ZKPaths.makePath(lockParent, predecessor);
+            return false;
+        }
+
+        List<String> locks = client.getChildren().forPath(lockParent);
+        Collections.sort(locks);
+
+        int ourIndex = locks.indexOf(ourName);
+        if (ourIndex < 0) {
+            //自己的节点已不存在（如会话过期），无法继续等待
+            lockNode = null;
+            releaseIndex();
+            throw new CuratorLockException(KeeperException.create(KeeperException.Code.NONODE, ZKPaths.makePath(lockParent, ourName)));
         }
 
+        //2. 如果是最小的节点，则表示获取到锁
+        if (ourIndex == 0) {
+            waitNode = null;
+            return true;
+        }
+
+        //3. 如果不是最小的节点，只监听紧邻的前一个节点
+        this.waitNode = ZKPaths.makePath(lockParent, locks.get(ourIndex - 1));
         return false;
     }
 
 
-    private boolean waitForLock(String waitNode, long waitTime) throws Exception {
-
-        Stat stat = client.checkExists().forPath(locksRoot + "/" + waitNode);
-        if (stat != null) {
+    /**
+     * 监听前一个节点，前一个节点删除后重新检查；前一个节点可能因会话过期提前删除，所以需要循环确认
+     *
+     * @param waitTime 等待时间（毫秒），小于0表示一直等待
+     * @return
+     * @throws Exception
+     */
+    private boolean waitForLock(long waitTime) throws Exception {
+        long deadline = waitTime < 0 ? -1 : System.currentTimeMillis() + waitTime;
+        while (true) {
+            Stat stat;
             this.latch = new CountDownLatch(1);
-            this.latch.await(waitTime, TimeUnit.MILLISECONDS);
-            this.latch = null;
+            try {
+                stat = client.checkExists().usingWatcher(this).forPath(waitNode);
+                if (stat != null) {
+                    if (deadline < 0) {
+                        this.latch.await();
+                    } else {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0 || !this.latch.await(remaining, TimeUnit.MILLISECONDS)) {
+                            return false;
+                        }
+                    }
+                }
+            } finally {
+                this.latch = null;
+            }
+            //前一个节点已不存在时索引可能尚未收到删除事件，改为从服务端确认
+            if (checkPredecessor(stat != null)) {
+                return true;
+            }
         }
-        return true;
     }
 
+    /**
+     * 释放锁：删除自己的节点，只会触发后一个等待者的监听
+     *
+     * @return
+     */
     public boolean unlock() {
+        if (null == lockNode || !locked) {
+            return false;
+        }
+        locked = false;
+        observer.released(CuratorZkLockObserver.TYPE_DISTRIBUTED, lockKey, System.nanoTime() - acquiredAt);
+        return deleteNode();
+    }
+
+    /**
+     * 删除自己的节点，获取失败或超时时不经过 unlock，不回调 observer.released
+     *
+     * @return
+     */
+    private boolean deleteNode() {
         try {
-            // 删除/locks/10000000000节点
-            client.delete().forPath(lockNode);
-            lockNode = null;
+            // 删除/locks/{lockKey}/lock-0000000001节点
+            client.delete().guaranteed().forPath(lockNode);
+            return true;
+        } catch (KeeperException.NoNodeException e) {
             return true;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("删除分布式锁节点出现异常,path={}", lockNode, e);
+        } finally {
+            lockNode = null;
+            waitNode = null;
+            releaseIndex();
         }
         return false;
     }
 
+    private void releaseIndex() {
+        if (null != childrenIndex) {
+            childrenIndex = null;
+            childrenIndexRegistry.release(lockParent);
+        }
+    }
 
+    private void deleteOurNode() {
+        if (null != lockNode) {
+            deleteNode();
+        } else {
+            releaseIndex();
+        }
+    }
 
 }
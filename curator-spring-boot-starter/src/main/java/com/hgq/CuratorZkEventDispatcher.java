@@ -0,0 +1,304 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName com.hgq.CuratorZkEventDispatcher
+ * @Description: 监听事件分发线程池
+ * 按路径保证顺序：同一路径的事件串行执行，不同路径的事件并行执行，单个慢监听器只阻塞它所在路径；
+ * 所有路径共享一个有界容量，超过容量时按 OverflowPolicy 阻塞提交线程（背压）或丢弃事件；
+ * BLOCK 策略的阻塞时间有上限（blockTimeoutMs），超时后丢弃事件并计数，监听器在回调中注册、注销监听等阻塞分发线程的操作不会造成死锁；
+ * 丢弃后由提交方通过 executeUnbounded 补偿（CuratorZkWatcherRegistry 按缓存中的最新数据补发被丢弃事件的节点），监听器不会一直停留在旧状态；
+ * 可选使用虚拟线程（运行在 JDK 21+ 时通过反射创建，否则退回平台线程池）
+ * @Author: hgq
+ * @Date: 2026-10-18 20:10
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkEventDispatcher implements Closeable {
+
+    /**
+     * 单个路径连续执行的最大任务数，达到后让出线程，避免热点路径饿死其它路径
+     */
+    private static final int MAX_BATCH_PER_KEY = 32;
+
+    /**
+     * BLOCK 策略默认最长阻塞时间
+     */
+    public static final long DEFAULT_BLOCK_TIMEOUT_MS = 1000;
+
+    public enum OverflowPolicy {
+        /**
+         * 阻塞提交线程直到有空闲容量（背压，会阻塞ZK事件线程），超过 blockTimeoutMs 仍无空闲容量时丢弃事件
+         */
+        BLOCK,
+        /**
+         * 丢弃新事件并计数，由提交方补偿
+         */
+        DROP
+    }
+
+    private final ExecutorService workers;
+    private final boolean virtualThreads;
+    private final int capacity;
+    private final Semaphore permits;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final ConcurrentHashMap<String, KeyQueue> queues = new ConcurrentHashMap<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public CuratorZkEventDispatcher(int threads, int capacity, OverflowPolicy overflowPolicy, boolean useVirtualThreads) {
+        this(threads, capacity, overflowPolicy, DEFAULT_BLOCK_TIMEOUT_MS, useVirtualThreads);
+    }
+
+    /**
+     * @param blockTimeoutMs BLOCK 策略下最长阻塞时间，超时后丢弃事件；小于0时一直阻塞（回调中阻塞分发线程可能造成死锁）
+     */
+    public CuratorZkEventDispatcher(int threads, int capacity, OverflowPolicy overflowPolicy, long blockTimeoutMs, boolean useVirtualThreads) {
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        ExecutorService virtual = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = null != virtual;
+        this.workers = null != virtual ? virtual : newPlatformExecutor(threads);
+    }
+
+    /**
+     * 提交任务，同一 key 的任务按提交顺序串行执行
+     *
+     * @param key  顺序键（节点路径）
+     * @param task
+     * @return 是否已提交，DROP 策略下容量不足或 BLOCK 策略下等待超时返回false
+     */
+    public boolean execute(String key, Runnable task) {
+        if (!acquire()) {
+            dropped.increment();
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                log.error("事件分发容量已满且等待超时，丢弃事件,key={},capacity={},blockTimeoutMs={}", key, capacity, blockTimeoutMs);
+            }
+            return false;
+        }
+        enqueue(key, task);
+        return true;
+    }
+
+    /**
+     * 提交不占用容量、不会被丢弃的任务，与同一 key 的其它任务按提交顺序串行执行；
+     * 用于补偿被丢弃的事件、回调 initialized 等不能丢失的任务，调用方需保证同一 key 同时只有少量此类任务
+     *
+     * @param key  顺序键（节点路径）
+     * @param task
+     */
+    public void executeUnbounded(String key, Runnable task) {
+        enqueue(key, new UnboundedTask(task));
+    }
+
+    private void enqueue(String key, Runnable task) {
+        submitted.increment();
+        boolean[] schedule = new boolean[1];
+        KeyQueue queue = queues.compute(key, (k, current) -> {
+            if (null == current) {
+                current = new KeyQueue(k);
+            }
+            current.tasks.add(task);
+            if (!current.scheduled) {
+                current.scheduled = true;
+                schedule[0] = true;
+            }
+            return current;
+        });
+        if (schedule[0]) {
+            schedule(queue);
+        }
+    }
+
+    /**
+     * 当前排队和执行中的任务数
+     *
+     * @return
+     */
+    public int getQueueDepth() {
+        return capacity - permits.availablePermits();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 有待执行任务的路径数
+     *
+     * @return
+     */
+    public int getActiveKeyCount() {
+        return queues.size();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean acquire() {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            return permits.tryAcquire();
+        }
+        if (blockTimeoutMs < 0) {
+            permits.acquireUninterruptibly();
+            return true;
+        }
+        try {
+            return permits.tryAcquire(blockTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return permits.tryAcquire();
+        }
+    }
+
+    private void schedule(KeyQueue queue) {
+        try {
+            workers.execute(() -> drain(queue));
+        } catch (RejectedExecutionException e) {
+            // 已关闭，丢弃剩余任务
+            int count = discard(queue);
+            dropped.add(count);
+            log.warn("事件分发线程池已关闭，丢弃事件,key={},count={}", queue.key, count);
+        }
+    }
+
+    private void drain(KeyQueue queue) {
+        for (int i = 0; i < MAX_BATCH_PER_KEY; i++) {
+            Runnable task = poll(queue);
+            if (null == task) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("事件分发任务执行出现异常,key={}", queue.key, e);
+            } finally {
+                if (!(task instanceof UnboundedTask)) {
+                    permits.release();
+                }
+                completed.increment();
+            }
+        }
+        schedule(queue);
+    }
+
+    /**
+     * 取出下一个任务，队列为空时移除该路径
+     *
+     * @param queue
+     * @return
+     */
+    private Runnable poll(KeyQueue queue) {
+        Runnable[] task = new Runnable[1];
+        queues.computeIfPresent(queue.key, (k, current) -> {
+            task[0] = current.tasks.poll();
+            if (null == task[0]) {
+                current.scheduled = false;
+                return null;
+            }
+            return current;
+        });
+        return task[0];
+    }
+
+    private int discard(KeyQueue queue) {
+        int[] count = new int[1];
+        int[] bounded = new int[1];
+        queues.computeIfPresent(queue.key, (k, current) -> {
+            count[0] = current.tasks.size();
+            bounded[0] = (int) current.tasks.stream().filter(task -> !(task instanceof UnboundedTask)).count();
+            return null;
+        });
+        permits.release(bounded[0]);
+        return count[0];
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger index = new AtomicInteger();
+        // 排队的是路径而不是事件，数量不超过容量，无需再限制
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "curator-zk-dispatch-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            log.warn("当前JDK不支持虚拟线程，使用平台线程分发事件");
+            return null;
+        }
+    }
+
+    /**
+     * 不占用容量的任务，执行完不归还许可
+     */
+    private static final class UnboundedTask implements Runnable {
+        private final Runnable task;
+
+        private UnboundedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private static final class KeyQueue {
+        private final String key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+
+        private KeyQueue(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.hgq;
+
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName com.hgq.CuratorZkIdGenerator
+ * @Description: 号段模式的分布式ID生成器
+ * 每次通过 DistributedAtomicLong 的一次CAS预留 rangeSize 个ID，在本地用无锁游标分配；
+ * 当前号段使用到 prefetchRatio 时异步预取下一个号段，号段切换时无需等待ZK
+ * 与直接使用 getAtomicLong 的调用方共用同一节点时，同样不会产生重复ID
+ * @Author: hgq
+ * @Date: 2026-10-18 14:02
+ * @Version: 1.0
+ */
+public class CuratorZkIdGenerator {
+
+    private final DistributedAtomicLong counter;
+    private final long rangeSize;
+    private final double prefetchRatio;
+    private final Executor executor;
+
+    private volatile Range current;
+    private CompletableFuture<Range> next;
+
+    public CuratorZkIdGenerator(CuratorFramework client, String path, RetryPolicy retryPolicy,
+                                long rangeSize, double prefetchRatio, Executor executor) {
+        if (rangeSize <= 0) {
+            throw new IllegalArgumentException("rangeSize must be greater than 0");
+        }
+        this.counter = new DistributedAtomicLong(client, path, retryPolicy);
+        this.rangeSize = rangeSize;
+        this.prefetchRatio = prefetchRatio;
+        this.executor = executor;
+        this.current = new Range(1, 0, 0);
+    }
+
+    /**
+     * 获取下一个ID，号段内不访问ZK
+     *
+     * @return
+     */
+    public long nextId() {
+        while (true) {
+            Range range = current;
+            long id = range.cursor.getAndIncrement();
+            if (id <= range.end) {
+                if (id == range.prefetchAt) {
+                    prefetch();
+                }
+                return id;
+            }
+            switchRange(range);
+        }
+    }
+
+    /**
+     * 每次预留的ID数量
+     *
+     * @return
+     */
+    public long getRangeSize() {
+        return rangeSize;
+    }
+
+    /**
+     * 异步预取下一个号段，已有预取任务时不重复提交
+     */
+    private synchronized void prefetch() {
+        if (null == next) {
+            next = CompletableFuture.supplyAsync(this::reserve, executor);
+        }
+    }
+
+    /**
+     * 当前号段用完，切换到预取的号段；没有预取时同步获取
+     *
+     * @param exhausted
+     */
+    private synchronized void switchRange(Range exhausted) {
+        if (current != exhausted) {
+            return;
+        }
+        CompletableFuture<Range> pending = next;
+        next = null;
+        try {
+            current = null == pending ? reserve() : pending.join();
+        } catch (CompletionException e) {
+            //预取失败时同步重试一次
+            current = reserve();
+        }
+    }
+
+    /**
+     * 通过一次CAS预留一个号段
+     *
+     * @return
+     */
+    private Range reserve() {
+        try {
+            AtomicValue<Long> value = counter.add(rangeSize);
+            if (!value.succeeded()) {
+                throw new CuratorLockException(BusinessMsgEnum.SYSTEM_EXCEPTION);
+            }
+            long end = value.postValue();
+            long start = end - rangeSize + 1;
+            return new Range(start, end, start + (long) ((rangeSize - 1) * prefetchRatio));
+        } catch (CuratorLockException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CuratorLockException(e);
+        }
+    }
+
+    private static final class Range {
+        private final AtomicLong cursor;
+        private final long end;
+        private final long prefetchAt;
+
+        Range(long start, long end, long prefetchAt) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = prefetchAt;
+        }
+    }
+}
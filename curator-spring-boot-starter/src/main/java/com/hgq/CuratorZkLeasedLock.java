@@ -0,0 +1,332 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkLeasedLock
+ * @Description: 带租约的可重入分布式锁
+ * InterProcessMutex 的锁节点随会话存在，持有者卡死但会话仍在时其它节点会一直等待；
+ * 这里每个锁节点的数据为租约时长，持有者通过 setData 续期（节点版本号递增），
+ * 排在持有者之后的等待者监听持有者节点，从本地观察到某个版本开始超过租约时长仍未续期则认为租约过期，带版本号删除持有者节点后继续竞争；
+ * 只比较本地单调时钟，不依赖各机器时间一致，过期判断只会偏晚不会偏早；
+ * acquire()/acquire(time, unit) 使用默认租约，由所有租约锁共享的专用看门狗线程每 1/3 租约续期一次，
+ * 持有线程结束或累计持有超过 maxLeaseMs 后停止续期，卡住但仍存活的持有者最多占用锁 maxLeaseMs 加一个租约时长；
+ * acquire(waitTime, leaseTime, unit) 使用固定租约不续期，到期后其它节点即可抢占，用于限制卡死的持有者
+ * @Author: hgq
+ * @Date: 2026-10-18 09:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkLeasedLock implements InterProcessLock {
+
+    private static final String LOCK_NAME = "lease-";
+
+    private final CuratorFramework client;
+    private final String basePath;
+    private final long defaultLeaseMs;
+    /**
+     * 自动续期的最长累计时间，小于等于0时不限制
+     */
+    private final long maxLeaseNanos;
+    private final ScheduledExecutorService watchdog;
+    private final CuratorZkLockObserver observer;
+    private final CuratorZkLockRegistry.Pin pin;
+    private final ConcurrentMap<Thread, LeaseData> threadData = new ConcurrentHashMap<>();
+    private final Watcher watcher = event -> wakeUp();
+
+    CuratorZkLeasedLock(CuratorFramework client, String basePath, long defaultLeaseMs, long maxLeaseMs,
+                        ScheduledExecutorService watchdog, CuratorZkLockObserver observer, CuratorZkLockRegistry.Pin pin) {
+        this.client = client;
+        this.basePath = basePath;
+        this.defaultLeaseMs = defaultLeaseMs;
+        this.maxLeaseNanos = TimeUnit.MILLISECONDS.toNanos(maxLeaseMs);
+        this.watchdog = watchdog;
+        this.observer = observer;
+        this.pin = pin;
+    }
+
+    /**
+     * 阻塞获取锁，使用默认租约并自动续期
+     *
+     * @throws Exception
+     */
+    @Override
+    public void acquire() throws Exception {
+        internalAcquire(-1, defaultLeaseMs, true);
+    }
+
+    /**
+     * 在指定时间内获取锁，使用默认租约并自动续期
+     *
+     * @param time
+     * @param unit
+     * @return
+     * @throws Exception
+     */
+    @Override
+    public boolean acquire(long time, TimeUnit unit) throws Exception {
+        return internalAcquire(null == unit ? -1 : unit.toNanos(time), defaultLeaseMs, true);
+    }
+
+    /**
+     * 在指定时间内获取锁，使用固定租约不续期，到期后其它节点可以抢占
+     *
+     * @param waitTime  小于0时一直等待
+     * @param leaseTime 租约时长
+     * @param unit
+     * @return
+     * @throws Exception
+     */
+    public boolean acquire(long waitTime, long leaseTime, TimeUnit unit) throws Exception {
+        return internalAcquire(waitTime < 0 ? -1 : unit.toNanos(waitTime), unit.toMillis(leaseTime), false);
+    }
+
+    @Override
+    public void release() throws Exception {
+        Thread current = Thread.currentThread();
+        LeaseData data = threadData.get(current);
+        if (null == data) {
+            throw new IllegalMonitorStateException("You do not own the lock: " + basePath);
+        }
+        if (--data.holds > 0) {
+            return;
+        }
+        threadData.remove(current);
+        pin.released();
+        data.cancelRenewal();
+        long holdNanos = System.nanoTime() - data.acquiredAt;
+        try {
+            client.delete().guaranteed().forPath(data.path);
+        } catch (KeeperException.NoNodeException e) {
+            log.warn("租约已过期，锁节点已被其它进程删除,path={},holdMs={}", data.path, TimeUnit.NANOSECONDS.toMillis(holdNanos));
+        } finally {
+            observer.released(CuratorZkLockObserver.TYPE_LEASED, basePath, holdNanos);
+        }
+    }
+
+    @Override
+    public boolean isAcquiredInThisProcess() {
+        return !threadData.isEmpty();
+    }
+
+    /**
+     * 当前线程是否持有锁且租约仍然有效（续期失败、超过最长续期时间或固定租约到期后返回false）
+     *
+     * @return
+     */
+    public boolean isLeaseValid() {
+        LeaseData data = threadData.get(Thread.currentThread());
+        return null != data && !data.lost
+                && (data.renew || System.nanoTime() - data.acquiredAt < TimeUnit.MILLISECONDS.toNanos(data.leaseMs));
+    }
+
+    private boolean internalAcquire(long waitNanos, long leaseMs, boolean renew) throws Exception {
+        Thread current = Thread.currentThread();
+        LeaseData data = threadData.get(current);
+        if (null != data) {
+            // 重入沿用第一次获取时的租约
+            data.holds++;
+            return true;
+        }
+        long start = System.nanoTime();
+        observer.waiting(CuratorZkLockObserver.TYPE_LEASED, basePath);
+        boolean locked = false;
+        try {
+            String ourPath = attemptLock(start, waitNanos, leaseMs);
+            if (null != ourPath) {
+                LeaseData acquired = new LeaseData(ourPath, leaseMs, renew, System.nanoTime());
+                threadData.put(current, acquired);
+                pin.acquired(this);
+                if (renew) {
+                    long period = Math.max(1, leaseMs / 3);
+                    acquired.renewal = watchdog.scheduleAtFixedRate(() -> renew(acquired, current), period, period, TimeUnit.MILLISECONDS);
+                }
+                locked = true;
+            }
+        } finally {
+            observer.acquired(CuratorZkLockObserver.TYPE_LEASED, basePath, System.nanoTime() - start, locked);
+        }
+        return locked;
+    }
+
+    /**
+     * 创建临时有序节点并等待成为第一个节点，超时或异常时删除自己的节点
+     *
+     * @return 获取成功时返回自己的节点路径，超时返回null
+     */
+    private String attemptLock(long start, long waitNanos, long leaseMs) throws Exception {
+        String ourPath = client.create().creatingParentContainersIfNeeded().withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
+                .forPath(ZKPaths.makePath(basePath, LOCK_NAME), leaseBytes(leaseMs));
+        boolean acquired = false;
+        try {
+            acquired = waitForLease(ourPath, start, waitNanos);
+        } finally {
+            if (!acquired) {
+                deleteQuietly(ourPath);
+            }
+        }
+        return acquired ? ourPath : null;
+    }
+
+    private synchronized boolean waitForLease(String ourPath, long start, long waitNanos) throws Exception {
+        String ourName = ZKPaths.getNodeFromPath(ourPath);
+        String observedHolder = null;
+        int observedVersion = -1;
+        long observedAt = 0;
+        while (true) {
+            List<String> children = client.getChildren().forPath(basePath);
+            Collections.sort(children);
+            int index = children.indexOf(ourName);
+            if (index < 0) {
+                // 会话过期等原因导致自己的节点已不存在
+                throw new KeeperException.NoNodeException(ourPath);
+            }
+            if (0 == index) {
+                return true;
+            }
+            String predecessor = ZKPaths.makePath(basePath, children.get(index - 1));
+            Stat stat = new Stat();
+            byte[] lease;
+            try {
+                lease = client.getData().storingStatIn(stat).usingWatcher(watcher).forPath(predecessor);
+            } catch (KeeperException.NoNodeException e) {
+                continue;
+            }
+            long now = System.nanoTime();
+            long waitFor = waitNanos < 0 ? -1 : start + waitNanos - now;
+            if (waitNanos >= 0 && waitFor <= 0) {
+                return false;
+            }
+            if (1 == index) {
+                // 前一个节点就是持有者，按本地观察到的最近一次续期计算租约
+                if (!predecessor.equals(observedHolder) || stat.getVersion() != observedVersion) {
+                    observedHolder = predecessor;
+                    observedVersion = stat.getVersion();
+                    observedAt = now;
+                }
+                long expiresIn = observedAt + TimeUnit.MILLISECONDS.toNanos(parseLease(lease)) - now;
+                if (expiresIn <= 0) {
+                    breakLease(predecessor, observedVersion);
+                    continue;
+                }
+                waitFor = waitFor < 0 ? expiresIn : Math.min(waitFor, expiresIn);
+            }
+            if (waitFor < 0) {
+                wait();
+            } else {
+                TimeUnit.NANOSECONDS.timedWait(this, waitFor);
+            }
+        }
+    }
+
+    /**
+     * 带版本号删除租约过期的持有者节点，持有者恰好续期时删除失败，继续等待
+     */
+    private void breakLease(String holderPath, int version) throws Exception {
+        try {
+            client.delete().withVersion(version).forPath(holderPath);
+            log.warn("租约过期，删除持有者节点,path={}", holderPath);
+        } catch (KeeperException.NoNodeException | KeeperException.BadVersionException e) {
+            // 持有者已释放或刚刚续期
+        }
+    }
+
+    private void renew(LeaseData data, Thread owner) {
+        if (!owner.isAlive()) {
+            log.warn("持有锁的线程已结束，停止续期,path={},thread={}", data.path, owner.getName());
+            data.cancelRenewal();
+            if (threadData.remove(owner, data)) {
+                pin.released();
+            }
+            return;
+        }
+        if (maxLeaseNanos > 0 && System.nanoTime() - data.acquiredAt >= maxLeaseNanos) {
+            // 持有者可能已卡住，不再续期，租约到期后其它节点可以抢占
+            log.warn("持有锁超过最长续期时间，停止续期,path={},thread={},maxLeaseMs={}",
+                    data.path, owner.getName(), TimeUnit.NANOSECONDS.toMillis(maxLeaseNanos));
+            data.lost = true;
+            data.cancelRenewal();
+            return;
+        }
+        try {
+            client.setData().inBackground((c, event) -> {
+                if (KeeperException.Code.NONODE.intValue() == event.getResultCode()) {
+                    data.lost = true;
+                    data.cancelRenewal();
+                    log.warn("租约续期失败，锁节点已不存在,path={}", data.path);
+                }
+            }).forPath(data.path, leaseBytes(data.leaseMs));
+        } catch (Exception e) {
+            log.error("租约续期失败,path={}", data.path, e);
+        }
+    }
+
+    private void deleteQuietly(String path) {
+        try {
+            client.delete().guaranteed().forPath(path);
+        } catch (KeeperException.NoNodeException e) {
+            // 已被删除
+        } catch (Exception e) {
+            log.error("删除锁节点失败,path={}", path, e);
+        }
+    }
+
+    private long parseLease(byte[] lease) {
+        try {
+            return Long.parseLong(new String(lease, StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            return defaultLeaseMs;
+        }
+    }
+
+    private static byte[] leaseBytes(long leaseMs) {
+        return Long.toString(leaseMs).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    /**
+     * 本JVM内某个线程持有的租约
+     */
+    private static final class LeaseData {
+        private final String path;
+        private final long leaseMs;
+        private final boolean renew;
+        private final long acquiredAt;
+        private int holds = 1;
+        private volatile boolean lost;
+        private volatile ScheduledFuture<?> renewal;
+
+        private LeaseData(String path, long leaseMs, boolean renew, long acquiredAt) {
+            this.path = path;
+            this.leaseMs = leaseMs;
+            this.renew = renew;
+            this.acquiredAt = acquiredAt;
+        }
+
+        private void cancelRenewal() {
+            ScheduledFuture<?> future = renewal;
+            if (null != future) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.utils.ZKPaths;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.ast.VariableReference;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @ClassName com.hgq.CuratorZkLockInterceptor
+ * @Description: @ZkLock 的方法拦截器
+ * 每个方法第一次调用时解析注解和 key 表达式并缓存：key 只是引用参数（#order、#p0）时直接取参数，是常量时直接使用常量，
+ * 其它表达式使用编译模式（MIXED）的 SpEL，参数名也只解析一次；
+ * 本线程已通过 @ZkLock 持有的锁路径记录在 ThreadLocal 中，嵌套调用相同路径时直接执行方法，不再获取锁；
+ * 释放锁时把被注解的方法指定为 CuratorZkLockProfiler 记录的调用位置
+ * @Author: hgq
+ * @Date: 2026-10-18 09:35
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkLockInterceptor implements MethodInterceptor {
+
+    private final Supplier<CuratorZkTemplate> template;
+    private final String annotationRoot;
+    private final SpelExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, CuratorZkLockInterceptor.class.getClassLoader()));
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    private final ConcurrentMap<MethodClassKey, LockDefinition> definitions = new ConcurrentHashMap<>();
+    private final ThreadLocal<Set<String>> heldPaths = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * @param template       首次加锁时才获取，避免自动代理创建时提前初始化ZK客户端
+     * @param annotationRoot 锁路径根节点
+     */
+    public CuratorZkLockInterceptor(Supplier<CuratorZkTemplate> template, String annotationRoot) {
+        this.template = template;
+        this.annotationRoot = annotationRoot;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Class<?> targetClass = null == invocation.getThis() ? method.getDeclaringClass() : AopUtils.getTargetClass(invocation.getThis());
+        LockDefinition definition = definitions.computeIfAbsent(new MethodClassKey(method, targetClass), key -> parse(method, targetClass));
+        if (null == definition) {
+            return invocation.proceed();
+        }
+        String path = definition.path(invocation.getArguments());
+        Set<String> held = heldPaths.get();
+        if (!held.add(path)) {
+            // 本线程已持有，嵌套调用不再访问ZK
+            return invocation.proceed();
+        }
+        try {
+            InterProcessLock lock = definition.leaseNanos > 0
+                    ? template.get().getLeasedLock(path) : template.get().getSharedReentrantLock(path);
+            acquire(lock, path, definition);
+            long acquiredAt = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                release(lock, path, definition, acquiredAt);
+            }
+        } finally {
+            held.remove(path);
+        }
+    }
+
+    private void acquire(InterProcessLock lock, String path, LockDefinition definition) {
+        try {
+            boolean locked;
+            if (lock instanceof CuratorZkLeasedLock) {
+                locked = ((CuratorZkLeasedLock) lock).acquire(definition.waitTime, definition.leaseTime, definition.timeUnit);
+            } else if (definition.waitTime < 0) {
+                lock.acquire();
+                locked = true;
+            } else {
+                locked = lock.acquire(definition.waitTime, definition.timeUnit);
+            }
+            if (!locked) {
+                log.warn("获取锁超时,path={},waitTime={} {}", path, definition.waitTime, definition.timeUnit);
+                throw new CuratorLockException(BusinessMsgEnum.LOCK_TIMEOUT);
+            }
+        } catch (CuratorLockException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("获取锁失败,path={}", path, e);
+            throw new CuratorLockException(e);
+        }
+    }
+
+    private void release(InterProcessLock lock, String path, LockDefinition definition, long acquiredAt) {
+        long holdNanos = System.nanoTime() - acquiredAt;
+        if (definition.leaseNanos > 0 && holdNanos > definition.leaseNanos) {
+            log.warn("持有锁超过leaseTime，租约可能已被其它节点抢占,path={},holdMs={}", path, TimeUnit.NANOSECONDS.toMillis(holdNanos));
+        }
+        String previous = CuratorZkLockProfiler.releasingAt(definition.callSite);
+        try {
+            lock.release();
+        } catch (Exception e) {
+            log.error("释放锁失败,path={}", path, e);
+        } finally {
+            CuratorZkLockProfiler.releasedAt(previous);
+        }
+    }
+
+    private LockDefinition parse(Method method, Class<?> targetClass) {
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        ZkLock zkLock = AnnotatedElementUtils.findMergedAnnotation(specificMethod, ZkLock.class);
+        if (null == zkLock) {
+            zkLock = AnnotatedElementUtils.findMergedAnnotation(method, ZkLock.class);
+        }
+        if (null == zkLock) {
+            return null;
+        }
+        String prefix = zkLock.prefix().isEmpty()
+                ? specificMethod.getDeclaringClass().getSimpleName() + '.' + specificMethod.getName() : zkLock.prefix();
+        String[] parameterNames = parameterNameDiscoverer.getParameterNames(specificMethod);
+        return new LockDefinition(zkLock, ZKPaths.makePath(annotationRoot, prefix), ClassUtils.getQualifiedMethodName(specificMethod),
+                (SpelExpression) parser.parseExpression(zkLock.key()), parameterNames, method.getParameterCount());
+    }
+
+    /**
+     * 解析后的注解信息
+     */
+    private static final class LockDefinition {
+        private final String basePath;
+        /**
+         * 被注解的方法，作为锁分析的调用位置
+         */
+        private final String callSite;
+        private final long waitTime;
+        private final TimeUnit timeUnit;
+        private final long leaseTime;
+        private final long leaseNanos;
+        private final Expression expression;
+        /**
+         * key 为常量时的值
+         */
+        private final Object constant;
+        /**
+         * key 只引用一个参数时该参数的下标，否则为 -1
+         */
+        private final int argumentIndex;
+        private final String[] parameterNames;
+        private final String[] pNames;
+        private final String[] aNames;
+
+        private LockDefinition(ZkLock zkLock, String basePath, String callSite, SpelExpression expression, String[] parameterNames, int parameterCount) {
+            this.basePath = basePath;
+            this.callSite = callSite;
+            this.waitTime = zkLock.waitTime();
+            this.timeUnit = zkLock.timeUnit();
+            this.leaseTime = zkLock.leaseTime();
+            this.leaseNanos = zkLock.leaseTime() > 0 ? zkLock.timeUnit().toNanos(zkLock.leaseTime()) : 0;
+            this.expression = expression;
+            this.parameterNames = null == parameterNames ? new String[0] : parameterNames;
+            this.pNames = new String[parameterCount];
+            this.aNames = new String[parameterCount];
+            for (int i = 0; i < parameterCount; i++) {
+                pNames[i] = "p" + i;
+                aNames[i] = "a" + i;
+            }
+            this.constant = expression.getAST() instanceof Literal ? expression.getValue() : null;
+            this.argumentIndex = expression.getAST() instanceof VariableReference
+                    ? argumentIndex(expression.getAST().toStringAST().substring(1), parameterCount) : -1;
+        }
+
+        private int argumentIndex(String name, int parameterCount) {
+            for (int i = 0; i < parameterNames.length; i++) {
+                if (parameterNames[i].equals(name)) {
+                    return i;
+                }
+            }
+            if (name.length() > 1 && (name.charAt(0) == 'p' || name.charAt(0) == 'a')) {
+                try {
+                    int index = Integer.parseInt(name.substring(1));
+                    return index < parameterCount ? index : -1;
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private String path(Object[] args) {
+            Object value;
+            if (null != constant) {
+                value = constant;
+            } else if (argumentIndex >= 0) {
+                value = args[argumentIndex];
+            } else {
+                value = expression.getValue(context(args));
+            }
+            if (null == value) {
+                throw new IllegalArgumentException("@ZkLock key 计算结果为空: " + expression.getExpressionString());
+            }
+            String key = value.toString();
+            return key.startsWith(ZKPaths.PATH_SEPARATOR) ? key : ZKPaths.makePath(basePath, key);
+        }
+
+        private StandardEvaluationContext context(Object[] args) {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            for (int i = 0; i < args.length; i++) {
+                if (i < parameterNames.length) {
+                    context.setVariable(parameterNames[i], args[i]);
+                }
+                context.setVariable(pNames[i], args[i]);
+                context.setVariable(aNames[i], args[i]);
+            }
+            return context;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.hgq;
+
+/**
+ * @ClassName com.hgq.CuratorZkLockObserver
+ * @Description: 锁等待与持有的观察接口
+ * CuratorZkTemplate 创建的锁在开始等待、加锁结束（成功、超时或异常）和最后一次释放时回调，
+ * 每次 waiting 之后一定有且只有一次 acquired；默认 NONE 不做任何处理，引入 Micrometer 时由 CuratorZkMetrics 实现，
+ * 开启 curator.profiler.enabled 时由 CuratorZkLockProfiler 实现，多个观察者通过 andThen 组合
+ * @Author: hgq
+ * @Date: 2026-10-18 23:40
+ * @Version: 1.0
+ */
+public interface CuratorZkLockObserver {
+
+    String TYPE_REENTRANT = "reentrant";
+    String TYPE_SHARED = "shared";
+    String TYPE_COALESCING = "coalescing";
+    String TYPE_DISTRIBUTED = "distributed";
+    String TYPE_LEASED = "leased";
+    String TYPE_READ = "read";
+    String TYPE_WRITE = "write";
+
+    CuratorZkLockObserver NONE = new CuratorZkLockObserver() {
+    };
+
+    /**
+     * 开始等待锁
+     *
+     * @param type    锁类型
+     * @param lockKey
+     */
+    default void waiting(String type, String lockKey) {
+    }
+
+    /**
+     * 加锁结束
+     *
+     * @param type      锁类型
+     * @param lockKey
+     * @param waitNanos 等待时间
+     * @param success   是否获取到锁
+     */
+    default void acquired(String type, String lockKey, long waitNanos, boolean success) {
+    }
+
+    /**
+     * 锁释放（重入锁在最外层释放时回调）
+     *
+     * @param type      锁类型
+     * @param lockKey
+     * @param holdNanos 持有时间
+     */
+    default void released(String type, String lockKey, long holdNanos) {
+    }
+
+    /**
+     * 组合两个观察者，依次回调
+     *
+     * @param next
+     * @return
+     */
+    default CuratorZkLockObserver andThen(CuratorZkLockObserver next) {
+        CuratorZkLockObserver first = this;
+        return new CuratorZkLockObserver() {
+            @Override
+            public void waiting(String type, String lockKey) {
+                first.waiting(type, lockKey);
+                next.waiting(type, lockKey);
+            }
+
+            @Override
+            public void acquired(String type, String lockKey, long waitNanos, boolean success) {
+                first.acquired(type, lockKey, waitNanos, success);
+                next.acquired(type, lockKey, waitNanos, success);
+            }
+
+            @Override
+            public void released(String type, String lockKey, long holdNanos) {
+                first.released(type, lockKey, holdNanos);
+                next.released(type, lockKey, holdNanos);
+            }
+        };
+    }
+}
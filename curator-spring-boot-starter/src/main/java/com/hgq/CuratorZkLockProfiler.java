@@ -0,0 +1,320 @@
+package com.hgq;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * @ClassName com.hgq.CuratorZkLockProfiler
+ * @Description: 锁竞争分析
+ * 作为 CuratorZkLockObserver 统计 CuratorZkTemplate 创建的锁：按累计等待时间找出热点 key，按持有时间找出长时间持有的 key 及其调用位置；
+ * 两个榜单各自只保留 capacity 个 key，用按排名值排序的最小堆找出淘汰的 key，每次更新 O(log capacity)，内存占用固定：
+ * 热点榜按累计等待时间使用 space-saving 算法，新 key 替换累计值最小的 key 并继承其累计值（记为误差上限），真正的热点 key 不会被挤出；
+ * 持有榜按最长持有时间排名，新 key 的持有时间超过榜单中最小的最长持有时间时才替换该 key，榜单即为最长持有时间的前 capacity 个 key；
+ * 每次回调只在一个很短的同步块内更新计数，调用栈只在持有时间超过阈值且刷新该 key 的最长持有时才抓取，适合在生产环境常开；
+ * 调用位置取释放锁的线程栈中第一个非 starter、Curator、JDK、Spring 代理的栈帧，一般与加锁处在同一方法；
+ * @ZkLock 的锁在方法返回后由拦截器释放，此时栈中已没有被注解的方法，由拦截器通过 releasingAt 指定为被注解的方法
+ * @Author: hgq
+ * @Date: 2026-10-18 09:25
+ * @Version: 1.0
+ */
+public class CuratorZkLockProfiler implements CuratorZkLockObserver {
+
+    private static final String[] SKIPPED_FRAMES = {
+            "com.hgq.CuratorZk", "org.apache.curator.", "java.", "javax.", "sun.",
+            "org.springframework.aop.", "org.springframework.cglib."
+    };
+
+    /**
+     * 当前线程释放锁时指定的调用位置
+     */
+    private static final ThreadLocal<String> RELEASE_CALL_SITE = new ThreadLocal<>();
+
+    private final TopKeys waits;
+    private final TopKeys holds;
+    private final long callSiteThresholdNanos;
+
+    public CuratorZkLockProfiler(int capacity, long callSiteThresholdMs) {
+        this.waits = new TopKeys(capacity, counter -> counter.totalNanos, true);
+        this.holds = new TopKeys(capacity, counter -> counter.maxNanos, false);
+        this.callSiteThresholdNanos = TimeUnit.MILLISECONDS.toNanos(callSiteThresholdMs);
+    }
+
+    /**
+     * 统计模板之后创建的锁
+     *
+     * @param template
+     */
+    public void bindTo(CuratorZkTemplate template) {
+        template.addLockObserver(this);
+    }
+
+    @Override
+    public void acquired(String type, String lockKey, long waitNanos, boolean success) {
+        waits.record(type, lockKey, waitNanos, success);
+    }
+
+    @Override
+    public void released(String type, String lockKey, long holdNanos) {
+        if (holds.record(type, lockKey, holdNanos, true) && holdNanos >= callSiteThresholdNanos) {
+            holds.callSite(lockKey, holdNanos, callSite());
+        }
+    }
+
+    /**
+     * 按累计等待时间倒序的热点 key
+     *
+     * @param limit
+     * @return
+     */
+    public List<LockStat> getHotKeys(int limit) {
+        return waits.top(limit);
+    }
+
+    /**
+     * 按最长持有时间倒序的 key，包含最长持有时的调用位置
+     *
+     * @param limit
+     * @return
+     */
+    public List<LockStat> getLongestHolds(int limit) {
+        return holds.top(limit);
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        waits.clear();
+        holds.clear();
+    }
+
+    /**
+     * 指定当前线程接下来释放锁时记录的调用位置，释放后用返回值调用 releasedAt 恢复
+     *
+     * @param callSite
+     * @return 之前指定的调用位置
+     */
+    static String releasingAt(String callSite) {
+        String previous = RELEASE_CALL_SITE.get();
+        RELEASE_CALL_SITE.set(callSite);
+        return previous;
+    }
+
+    /**
+     * @param previous releasingAt 的返回值
+     */
+    static void releasedAt(String previous) {
+        if (null == previous) {
+            RELEASE_CALL_SITE.remove();
+        } else {
+            RELEASE_CALL_SITE.set(previous);
+        }
+    }
+
+    private static String callSite() {
+        String callSite = RELEASE_CALL_SITE.get();
+        if (null != callSite) {
+            return callSite;
+        }
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (!skipped(className) && !className.contains("$$")) {
+                return frame.toString();
+            }
+        }
+        return null;
+    }
+
+    private static boolean skipped(String className) {
+        for (String prefix : SKIPPED_FRAMES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 单个 key 的统计结果（时间单位为毫秒）
+     * total 可能高估，高估部分不超过 error；count、failures 只统计进入榜单之后的次数
+     */
+    @Getter
+    public static final class LockStat {
+        private final String type;
+        private final String lockKey;
+        private final long count;
+        private final long failures;
+        private final double totalMs;
+        private final double errorMs;
+        private final double maxMs;
+        private final String callSite;
+
+        private LockStat(Counter counter) {
+            this.type = counter.type;
+            this.lockKey = counter.lockKey;
+            this.count = counter.count;
+            this.failures = counter.failures;
+            this.totalMs = toMillis(counter.totalNanos);
+            this.errorMs = toMillis(counter.errorNanos);
+            this.maxMs = toMillis(counter.maxNanos);
+            this.callSite = counter.callSite;
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1_000_000d;
+        }
+    }
+
+    private static final class Counter {
+        private final String type;
+        private final String lockKey;
+        private final long errorNanos;
+        private long totalNanos;
+        private long count;
+        private long failures;
+        private long maxNanos;
+        private String callSite;
+        /**
+         * 在榜单最小堆中的下标
+         */
+        private int heapIndex;
+
+        private Counter(String type, String lockKey, long errorNanos) {
+            this.type = type;
+            this.lockKey = lockKey;
+            this.errorNanos = errorNanos;
+            this.totalNanos = errorNanos;
+        }
+    }
+
+    /**
+     * 固定容量的榜单，counters 按排名值组成最小堆，堆顶为淘汰候选
+     */
+    private static final class TopKeys {
+        private final int capacity;
+        private final ToLongFunction<Counter> rank;
+        /**
+         * true 时新 key 继承被淘汰 key 的累计值（space-saving），false 时只有排名值超过堆顶才进入榜单
+         */
+        private final boolean spaceSaving;
+        private final Map<String, Counter> counters;
+        private final Counter[] heap;
+        private int size;
+
+        private TopKeys(int capacity, ToLongFunction<Counter> rank, boolean spaceSaving) {
+            this.capacity = Math.max(1, capacity);
+            this.rank = rank;
+            this.spaceSaving = spaceSaving;
+            this.counters = new HashMap<>(this.capacity * 2);
+            this.heap = new Counter[this.capacity];
+        }
+
+        /**
+         * @return 是否刷新了该 key 的最大值
+         */
+        private synchronized boolean record(String type, String lockKey, long nanos, boolean success) {
+            Counter counter = counters.get(lockKey);
+            if (null == counter) {
+                if (size < capacity) {
+                    counter = new Counter(type, lockKey, 0);
+                    heap[size] = counter;
+                    siftUp(size++);
+                } else {
+                    Counter min = heap[0];
+                    if (!spaceSaving && nanos <= rank.applyAsLong(min)) {
+                        return false;
+                    }
+                    counters.remove(min.lockKey);
+                    counter = new Counter(type, lockKey, spaceSaving ? min.totalNanos : 0);
+                    counter.heapIndex = 0;
+                    heap[0] = counter;
+                }
+                counters.put(lockKey, counter);
+            }
+            counter.count++;
+            counter.totalNanos += nanos;
+            if (!success) {
+                counter.failures++;
+            }
+            boolean refreshed = false;
+            if (nanos > counter.maxNanos) {
+                counter.maxNanos = nanos;
+                counter.callSite = null;
+                refreshed = true;
+            }
+            // 排名值只增不减，更新后只需下沉
+            siftDown(counter.heapIndex);
+            return refreshed;
+        }
+
+        private void siftUp(int index) {
+            Counter counter = heap[index];
+            long value = rank.applyAsLong(counter);
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (rank.applyAsLong(heap[parent]) <= value) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                heap[index].heapIndex = index;
+                index = parent;
+            }
+            heap[index] = counter;
+            counter.heapIndex = index;
+        }
+
+        private void siftDown(int index) {
+            Counter counter = heap[index];
+            long value = rank.applyAsLong(counter);
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && rank.applyAsLong(heap[child + 1]) < rank.applyAsLong(heap[child])) {
+                    child++;
+                }
+                if (value <= rank.applyAsLong(heap[child])) {
+                    break;
+                }
+                heap[index] = heap[child];
+                heap[index].heapIndex = index;
+                index = child;
+            }
+            heap[index] = counter;
+            counter.heapIndex = index;
+        }
+
+        private synchronized void callSite(String lockKey, long nanos, String callSite) {
+            Counter counter = counters.get(lockKey);
+            if (null != counter && counter.maxNanos == nanos) {
+                counter.callSite = callSite;
+            }
+        }
+
+        private synchronized List<LockStat> top(int limit) {
+            List<Counter> sorted = new ArrayList<>(counters.values());
+            sorted.sort(Comparator.comparingLong(rank).reversed());
+            int count = Math.max(0, Math.min(limit, sorted.size()));
+            List<LockStat> stats = new ArrayList<>(count);
+            for (Counter counter : sorted.subList(0, count)) {
+                stats.add(new LockStat(counter));
+            }
+            return stats;
+        }
+
+        private synchronized void clear() {
+            counters.clear();
+            Arrays.fill(heap, null);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.hgq;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @ClassName com.hgq.CuratorZkLockProfilerEndpoint
+ * @Description: 锁竞争分析的 actuator 端点 /actuator/zklocks
+ * GET 返回热点 key 和长时间持有的 key（可用 limit 参数限制条数），DELETE 清空统计；
+ * 需要通过 management.endpoints.web.exposure.include 暴露
+ * @Author: hgq
+ * @Date: 2026-10-18 09:25
+ * @Version: 1.0
+ */
+@Endpoint(id = "zklocks")
+public class CuratorZkLockProfilerEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final CuratorZkLockProfiler profiler;
+
+    public CuratorZkLockProfilerEndpoint(CuratorZkLockProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @ReadOperation
+    public Map<String, Object> locks(@Nullable Integer limit) {
+        int size = null == limit ? DEFAULT_LIMIT : limit;
+        Map<String, Object> locks = new LinkedHashMap<>();
+        locks.put("hotKeys", profiler.getHotKeys(size));
+        locks.put("longestHolds", profiler.getLongestHolds(size));
+        return locks;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        profiler.reset();
+    }
+}
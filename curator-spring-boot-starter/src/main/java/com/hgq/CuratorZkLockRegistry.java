@@ -0,0 +1,127 @@
+package com.hgq;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * @ClassName com.hgq.CuratorZkLockRegistry
+ * @Description: 按路径复用锁实例的注册表
+ * 同一路径在本JVM内只保留一个锁实例，保证Curator的重入语义在不同调用处之间生效，且不会重复执行ensurePath；
+ * 锁实例通过 Pin 记录持有次数：获取成功时加一、释放时减一，持有期间注册表强引用该实例，
+ * 调用方不保留引用也不会被GC回收，之后按同一路径获取到的仍是持有锁的实例；
+ * 持有次数归零后注册表只持有弱引用，没有调用方引用后即可被回收，失效条目在每次访问时清理
+ * @Author: hgq
+ * @Date: 2026-10-18 11:05
+ * @Version: 1.0
+ */
+public class CuratorZkLockRegistry<T> {
+
+    private final ConcurrentMap<String, KeyedReference<T>> locks = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+    private final BiFunction<String, Pin, T> factory;
+
+    /**
+     * @param factory 根据路径创建锁实例，锁实例需在获取成功时调用 Pin.acquired、释放时调用 Pin.released
+     */
+    public CuratorZkLockRegistry(BiFunction<String, Pin, T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * 获取路径对应的锁实例，不存在或已被回收时新建
+     *
+     * @param path
+     * @return
+     */
+    public T get(String path) {
+        purge();
+        while (true) {
+            KeyedReference<T> ref = locks.get(path);
+            T lock = null == ref ? null : ref.get();
+            if (null != lock) {
+                return lock;
+            }
+            Pin pin = new Pin();
+            T created = factory.apply(path, pin);
+            KeyedReference<T> createdRef = new KeyedReference<>(path, created, pin, queue);
+            boolean registered = null == ref ? null == locks.putIfAbsent(path, createdRef) : locks.replace(path, ref, createdRef);
+            if (registered) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * 当前注册的锁数量（包含尚未清理的失效条目）
+     *
+     * @return
+     */
+    public int size() {
+        purge();
+        return locks.size();
+    }
+
+    /**
+     * 当前被持有的锁数量
+     *
+     * @return
+     */
+    public int pinnedSize() {
+        purge();
+        return (int) locks.values().stream().filter(ref -> ref.pin.isPinned()).count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void purge() {
+        KeyedReference<T> ref;
+        while (null != (ref = (KeyedReference<T>) queue.poll())) {
+            locks.remove(ref.key, ref);
+        }
+    }
+
+    /**
+     * 锁实例的持有次数，大于0时强引用锁实例
+     */
+    public static final class Pin {
+        private Object pinned;
+        private int holds;
+
+        /**
+         * 获取锁成功（包括重入）后调用
+         *
+         * @param lock 锁实例本身
+         */
+        public synchronized void acquired(Object lock) {
+            if (holds++ == 0) {
+                pinned = lock;
+            }
+        }
+
+        /**
+         * 释放锁成功后调用，与 acquired 一一对应
+         */
+        public synchronized void released() {
+            if (holds > 0 && --holds == 0) {
+                pinned = null;
+            }
+        }
+
+        synchronized boolean isPinned() {
+            return null != pinned;
+        }
+    }
+
+    private static final class KeyedReference<T> extends WeakReference<T> {
+        private final String key;
+        private final Pin pin;
+
+        KeyedReference(String key, T referent, Pin pin, ReferenceQueue<T> queue) {
+            super(referent, queue);
+            this.key = key;
+            this.pin = pin;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.hgq;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.curator.CuratorZookeeperClient;
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.RetrySleeper;
+import org.apache.curator.drivers.AdvancedTracerDriver;
+import org.apache.curator.drivers.EventTrace;
+import org.apache.curator.drivers.OperationTrace;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ClassName com.hgq.CuratorZkMetrics
+ * @Description: Micrometer 指标
+ * 作为客户端的 TracerDriver 记录经过该客户端的每个ZK操作（包括各种 recipe 内部的操作）：
+ * curator.zk.operations（Timer，tag：operation / path / result），path 按 pathDepth 截取前几级并把有序节点序号替换为 {seq}，
+ * 命中 lockKeyPatterns 的路径归并为该模式，不同 path 标签超过 maxPathTags 后归并为 other，避免标签过多；
+ * 包装客户端的 RetryPolicy 统计重试次数 curator.zk.retries（tag：result=allowed/disallowed），连接事件 curator.zk.events；
+ * 作为 CuratorZkLockObserver 记录锁等待时间 curator.zk.lock.wait、持有时间 curator.zk.lock.hold，以及本地等待、持有数量的 Gauge，
+ * 锁指标只按 type 和 key 标签区分，key 为命中的 lockKeyPatterns 模式，未配置或未命中时为 other，不使用原始 lockKey；
+ * 另外注册监听事件分发、读缓存、延迟写入的计数
+ * @Author: hgq
+ * @Date: 2026-10-18 23:40
+ * @Version: 1.0
+ */
+public class CuratorZkMetrics extends AdvancedTracerDriver implements CuratorZkLockObserver {
+
+    private static final String SEQUENCE = "{seq}";
+    /**
+     * 有序节点序号固定为10位数字
+     */
+    private static final int SEQUENCE_LENGTH = 10;
+    private static final String OTHER = "other";
+    static final int DEFAULT_MAX_PATH_TAGS = 200;
+
+    private final MeterRegistry registry;
+    private final int pathDepth;
+    private final int maxPathTags;
+    private final List<String> lockKeyPatterns;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher(ZKPaths.PATH_SEPARATOR);
+    private final boolean percentileHistogram;
+    private final Set<String> pathTags = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> eventCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> lockTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> lockGauges = new ConcurrentHashMap<>();
+    private final Counter retriesAllowed;
+    private final Counter retriesDisallowed;
+
+    public CuratorZkMetrics(MeterRegistry registry, int pathDepth, boolean percentileHistogram) {
+        this(registry, pathDepth, DEFAULT_MAX_PATH_TAGS, Collections.emptyList(), percentileHistogram);
+    }
+
+    /**
+     * @param registry
+     * @param pathDepth           path 标签保留的路径层级
+     * @param maxPathTags         不同 path 标签的上限，超出后归并为 other
+     * @param lockKeyPatterns     锁 key 的 Ant 风格模式，如 /locks/order/*，命中的锁指标按模式打 key 标签
+     * @param percentileHistogram
+     */
+    public CuratorZkMetrics(MeterRegistry registry, int pathDepth, int maxPathTags, List<String> lockKeyPatterns, boolean percentileHistogram) {
+        this.registry = registry;
+        this.pathDepth = pathDepth;
+        this.maxPathTags = maxPathTags;
+        this.lockKeyPatterns = null == lockKeyPatterns ? Collections.emptyList() : new ArrayList<>(lockKeyPatterns);
+        this.percentileHistogram = percentileHistogram;
+        this.retriesAllowed = Counter.builder("curator.zk.retries").tag("result", "allowed").register(registry);
+        this.retriesDisallowed = Counter.builder("curator.zk.retries").tag("result", "disallowed").register(registry);
+    }
+
+    /**
+     * 记录客户端的所有操作和重试
+     *
+     * @param client
+     */
+    public void bindTo(CuratorFramework client) {
+        CuratorZookeeperClient zookeeperClient = client.getZookeeperClient();
+        zookeeperClient.setTracerDriver(this);
+        RetryPolicy retryPolicy = zookeeperClient.getRetryPolicy();
+        if (!(retryPolicy instanceof CountingRetryPolicy)) {
+            zookeeperClient.setRetryPolicy(new CountingRetryPolicy(retryPolicy));
+        }
+    }
+
+    /**
+     * 记录模板创建的锁的等待和持有时间
+     *
+     * @param template
+     */
+    public void bindTo(CuratorZkTemplate template) {
+        template.addLockObserver(this);
+    }
+
+    public void bindTo(CuratorZkEventDispatcher dispatcher) {
+        Gauge.builder("curator.zk.dispatch.queue.depth", dispatcher, CuratorZkEventDispatcher::getQueueDepth).register(registry);
+        Gauge.builder("curator.zk.dispatch.queue.capacity", dispatcher, CuratorZkEventDispatcher::getCapacity).register(registry);
+        Gauge.builder("curator.zk.dispatch.active.keys", dispatcher, CuratorZkEventDispatcher::getActiveKeyCount).register(registry);
+        FunctionCounter.builder("curator.zk.watch.events", dispatcher, CuratorZkEventDispatcher::getSubmittedCount)
+                .tag("result", "submitted").register(registry);
+        FunctionCounter.builder("curator.zk.watch.events", dispatcher, CuratorZkEventDispatcher::getCompletedCount)
+                .tag("result", "completed").register(registry);
+        FunctionCounter.builder("curator.zk.watch.events", dispatcher, CuratorZkEventDispatcher::getDroppedCount)
+                .tag("result", "dropped").register(registry);
+    }
+
+    public void bindTo(CuratorZkReadCache readCache) {
+        FunctionCounter.builder("curator.zk.read.cache.requests", readCache, CuratorZkReadCache::getHitCount)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("curator.zk.read.cache.requests", readCache, CuratorZkReadCache::getMissCount)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("curator.zk.read.cache.evictions", readCache, CuratorZkReadCache::getEvictionCount).register(registry);
+        Gauge.builder("curator.zk.read.cache.size", readCache, CuratorZkReadCache::getSize).register(registry);
+    }
+
+    public void bindTo(CuratorZkWriteBehindBuffer writeBehindBuffer) {
+        Gauge.builder("curator.zk.write.behind.pending", writeBehindBuffer, CuratorZkWriteBehindBuffer::getPendingCount).register(registry);
+        FunctionCounter.builder("curator.zk.write.behind.submitted", writeBehindBuffer, CuratorZkWriteBehindBuffer::getSubmittedCount).register(registry);
+        FunctionCounter.builder("curator.zk.write.behind.written", writeBehindBuffer, CuratorZkWriteBehindBuffer::getWrittenCount).register(registry);
+    }
+
+    @Override
+    public void addTrace(OperationTrace trace) {
+        String path = pathTag(trace.getPath());
+        String result = resultOf(trace.getReturnCode());
+        String key = trace.getName() + '|' + path + '|' + result;
+        operationTimers.computeIfAbsent(key, k -> Timer.builder("curator.zk.operations")
+                .tag("operation", trace.getName())
+                .tag("path", path)
+                .tag("result", result)
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry))
+                .record(trace.getLatencyMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void addEvent(EventTrace trace) {
+        eventCounters.computeIfAbsent(trace.getName(), name -> Counter.builder("curator.zk.events").tag("name", name).register(registry))
+                .increment();
+    }
+
+    @Override
+    public void waiting(String type, String lockKey) {
+        lockGauge("curator.zk.lock.waiting", type, lockKeyTag(lockKey)).incrementAndGet();
+    }
+
+    @Override
+    public void acquired(String type, String lockKey, long waitNanos, boolean success) {
+        String key = lockKeyTag(lockKey);
+        lockGauge("curator.zk.lock.waiting", type, key).decrementAndGet();
+        if (success) {
+            lockGauge("curator.zk.lock.held", type, key).incrementAndGet();
+        }
+        lockTimer("curator.zk.lock.wait", type, key, success ? "acquired" : "failed").record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void released(String type, String lockKey, long holdNanos) {
+        String key = lockKeyTag(lockKey);
+        lockGauge("curator.zk.lock.held", type, key).decrementAndGet();
+        lockTimer("curator.zk.lock.hold", type, key, null).record(holdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 锁 key 标签：第一个命中的 lockKeyPatterns 模式，未命中为 other
+     *
+     * @param lockKey
+     * @return
+     */
+    String lockKeyTag(String lockKey) {
+        if (null != lockKey) {
+            for (String pattern : lockKeyPatterns) {
+                if (pathMatcher.match(pattern, lockKey)) {
+                    return pattern;
+                }
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * 操作的 path 标签：命中 lockKeyPatterns 的锁 key 及其子节点归并为该模式，否则按 pathPattern 归并；
+     * 不同标签值达到 maxPathTags 后，新出现的值归并为 other
+     *
+     * @param path
+     * @return
+     */
+    String pathTag(String path) {
+        String tag = null;
+        if (null != path) {
+            for (String pattern : lockKeyPatterns) {
+                if (pathMatcher.match(pattern, path) || pathMatcher.match(pattern + "/**", path)) {
+                    tag = pattern;
+                    break;
+                }
+            }
+        }
+        if (null == tag) {
+            tag = pathPattern(path);
+        }
+        if (pathTags.contains(tag)) {
+            return tag;
+        }
+        synchronized (pathTags) {
+            if (pathTags.size() >= maxPathTags) {
+                return OTHER;
+            }
+            pathTags.add(tag);
+        }
+        return tag;
+    }
+
+    /**
+     * 路径归并为标签值：保留前 pathDepth 级，更深的部分用 ** 代替，有序节点序号替换为 {seq}
+     * 例：pathDepth=2 时 /locks/order/lock-0000000012 => /locks/order/**
+     *
+     * @param path
+     * @return
+     */
+    String pathPattern(String path) {
+        if (null == path || path.isEmpty()) {
+            return "none";
+        }
+        StringBuilder pattern = new StringBuilder();
+        int depth = 0;
+        for (String node : path.split(ZKPaths.PATH_SEPARATOR)) {
+            if (node.isEmpty()) {
+                continue;
+            }
+            if (depth++ == pathDepth) {
+                return pattern.append(ZKPaths.PATH_SEPARATOR).append("**").toString();
+            }
+            pattern.append(ZKPaths.PATH_SEPARATOR).append(stripSequence(node));
+        }
+        return 0 == pattern.length() ? ZKPaths.PATH_SEPARATOR : pattern.toString();
+    }
+
+    private static String stripSequence(String node) {
+        int length = node.length();
+        if (length < SEQUENCE_LENGTH) {
+            return node;
+        }
+        for (int i = length - SEQUENCE_LENGTH; i < length; i++) {
+            if (!Character.isDigit(node.charAt(i))) {
+                return node;
+            }
+        }
+        return node.substring(0, length - SEQUENCE_LENGTH) + SEQUENCE;
+    }
+
+    private static String resultOf(int returnCode) {
+        KeeperException.Code code = KeeperException.Code.get(returnCode);
+        return null == code ? String.valueOf(returnCode) : code.name();
+    }
+
+    private AtomicInteger lockGauge(String name, String type, String lockKeyTag) {
+        return lockGauges.computeIfAbsent(name + '|' + type + '|' + lockKeyTag, key -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder(name, value, AtomicInteger::get).tag("type", type).tag("key", lockKeyTag).register(registry);
+            return value;
+        });
+    }
+
+    private Timer lockTimer(String name, String type, String lockKeyTag, String result) {
+        return lockTimers.computeIfAbsent(name + '|' + type + '|' + lockKeyTag + '|' + result, key -> {
+            Timer.Builder builder = Timer.builder(name).tag("type", type).tag("key", lockKeyTag).publishPercentileHistogram(percentileHistogram);
+            if (null != result) {
+                builder.tag("result", result);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    /**
+     * 统计重试次数的 RetryPolicy 包装
+     */
+    private final class CountingRetryPolicy implements RetryPolicy {
+        private final RetryPolicy delegate;
+
+        private CountingRetryPolicy(RetryPolicy delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean allowRetry(int retryCount, long elapsedTimeMs, RetrySleeper sleeper) {
+            boolean allowed = delegate.allowRetry(retryCount, elapsedTimeMs, sleeper);
+            (allowed ? retriesAllowed : retriesDisallowed).increment();
+            return allowed;
+        }
+
+        @Override
+        public boolean allowRetry(Throwable exception) {
+            return delegate.allowRetry(exception);
+        }
+    }
+}
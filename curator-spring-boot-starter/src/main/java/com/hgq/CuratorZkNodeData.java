@@ -0,0 +1,59 @@
+package com.hgq;
+
+import lombok.Getter;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ClassName com.hgq.CuratorZkNodeData
+ * @Description: 批量读取时单个节点的读取结果
+ * 成功时包含数据和版本信息，失败时包含错误码（如 NONODE），不会因单个节点失败影响其它节点
+ * @Author: hgq
+ * @Date: 2026-10-18 17:20
+ * @Version: 1.0
+ */
+@Getter
+public class CuratorZkNodeData {
+
+    private final String path;
+    private final byte[] bytes;
+    private final Stat stat;
+    private final KeeperException.Code code;
+    private final Throwable error;
+
+    private CuratorZkNodeData(String path, byte[] bytes, Stat stat, KeeperException.Code code, Throwable error) {
+        this.path = path;
+        this.bytes = bytes;
+        this.stat = stat;
+        this.code = code;
+        this.error = error;
+    }
+
+    static CuratorZkNodeData success(String path, byte[] bytes, Stat stat) {
+        return new CuratorZkNodeData(path, bytes, stat, KeeperException.Code.OK, null);
+    }
+
+    static CuratorZkNodeData failure(String path, KeeperException.Code code, Throwable error) {
+        return new CuratorZkNodeData(path, null, null, code, error);
+    }
+
+    public boolean isSuccess() {
+        return code == KeeperException.Code.OK;
+    }
+
+    /**
+     * 以UTF-8解码的数据，读取失败时返回null
+     *
+     * @return
+     */
+    public String getData() {
+        return null == bytes ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "CuratorZkNodeData{path=" + path + ", code=" + code + ", version=" + (null == stat ? -1 : stat.getVersion()) + "}";
+    }
+}
@@ -0,0 +1,99 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkObservedLock
+ * @Description: 回调 CuratorZkLockObserver 的锁包装
+ * 同一lockKey在本JVM内共享一个实例（见 CuratorZkLockRegistry），同一时刻只有持有者修改重入次数和加锁时间；
+ * 持有线程重入时不回调，等待和持有只按最外层统计
+ * @Author: hgq
+ * @Date: 2026-10-18 23:40
+ * @Version: 1.0
+ */
+class CuratorZkObservedLock implements InterProcessLock {
+
+    private final InterProcessLock delegate;
+    private final String type;
+    private final String lockKey;
+    private final CuratorZkLockObserver observer;
+    private volatile int holds;
+    private volatile long acquiredAt;
+    private volatile Thread owner;
+
+    CuratorZkObservedLock(InterProcessLock delegate, String type, String lockKey, CuratorZkLockObserver observer) {
+        this.delegate = delegate;
+        this.type = type;
+        this.lockKey = lockKey;
+        this.observer = observer;
+    }
+
+    @Override
+    public void acquire() throws Exception {
+        acquire(-1, null);
+    }
+
+    @Override
+    public boolean acquire(long time, TimeUnit unit) throws Exception {
+        if (owner == Thread.currentThread()) {
+            // 重入，不计入等待和持有
+            boolean locked = null == unit ? acquireDelegate() : delegate.acquire(time, unit);
+            if (locked) {
+                holds++;
+            }
+            return locked;
+        }
+        long start = System.nanoTime();
+        observer.waiting(type, lockKey);
+        boolean locked = false;
+        try {
+            if (null == unit) {
+                delegate.acquire();
+                locked = true;
+            } else {
+                locked = delegate.acquire(time, unit);
+            }
+        } finally {
+            long now = System.nanoTime();
+            if (locked && holds++ == 0) {
+                acquiredAt = now;
+                owner = Thread.currentThread();
+            }
+            observer.acquired(type, lockKey, now - start, locked);
+        }
+        return locked;
+    }
+
+    @Override
+    public void release() throws Exception {
+        // 释放后其它线程可能立即获取锁，需在释放前更新重入次数
+        int remaining = --holds;
+        long holdNanos = System.nanoTime() - acquiredAt;
+        Thread previousOwner = owner;
+        if (0 == remaining) {
+            owner = null;
+        }
+        try {
+            delegate.release();
+        } catch (Exception e) {
+            holds++;
+            owner = previousOwner;
+            throw e;
+        }
+        if (0 == remaining) {
+            observer.released(type, lockKey, holdNanos);
+        }
+    }
+
+    private boolean acquireDelegate() throws Exception {
+        delegate.acquire();
+        return true;
+    }
+
+    @Override
+    public boolean isAcquiredInThisProcess() {
+        return delegate.isAcquiredInThisProcess();
+    }
+}
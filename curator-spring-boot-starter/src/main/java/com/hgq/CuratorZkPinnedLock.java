@@ -0,0 +1,59 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkPinnedLock
+ * @Description: 在 CuratorZkLockRegistry 中记录持有次数的锁包装
+ * 获取成功一次记一次，释放成功一次减一次，持有期间注册表不会回收该实例
+ * @Author: hgq
+ * @Date: 2026-10-18 10:05
+ * @Version: 1.0
+ */
+class CuratorZkPinnedLock implements InterProcessLock {
+
+    private final InterProcessLock delegate;
+    private final CuratorZkLockRegistry.Pin pin;
+
+    CuratorZkPinnedLock(InterProcessLock delegate, CuratorZkLockRegistry.Pin pin) {
+        this.delegate = delegate;
+        this.pin = pin;
+    }
+
+    @Override
+    public void acquire() throws Exception {
+        delegate.acquire();
+        pin.acquired(this);
+    }
+
+    @Override
+    public boolean acquire(long time, TimeUnit unit) throws Exception {
+        boolean locked = delegate.acquire(time, unit);
+        if (locked) {
+            pin.acquired(this);
+        }
+        return locked;
+    }
+
+    @Override
+    public void release() throws Exception {
+        try {
+            delegate.release();
+        } catch (IllegalMonitorStateException | IllegalStateException e) {
+            // 当前线程未持有
+            throw e;
+        } catch (Exception e) {
+            // Curator 已清除本地持有状态，只是删除锁节点失败
+            pin.released();
+            throw e;
+        }
+        pin.released();
+    }
+
+    @Override
+    public boolean isAcquiredInThisProcess() {
+        return delegate.isAcquiredInThisProcess();
+    }
+}
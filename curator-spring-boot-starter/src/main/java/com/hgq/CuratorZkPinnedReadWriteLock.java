@@ -0,0 +1,161 @@
+package com.hgq;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.apache.curator.framework.recipes.locks.RevocationListener;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.CuratorZkPinnedReadWriteLock
+ * @Description: 在 CuratorZkLockRegistry 中记录持有次数的读写锁
+ * readLock()/writeLock() 返回的锁委托给 InterProcessReadWriteLock 内部的读锁、写锁，并持有外层实例的引用，
+ * 调用方只保留读锁或写锁时外层实例也不会被回收；读锁、写锁任一被持有期间注册表强引用外层实例；
+ * 读锁可被本JVM内多个线程同时持有，等待和持有按线程回调 CuratorZkLockObserver，重入时不回调
+ * @Author: hgq
+ * @Date: 2026-10-18 10:05
+ * @Version: 1.0
+ */
+class CuratorZkPinnedReadWriteLock extends InterProcessReadWriteLock {
+
+    private final CuratorZkLockRegistry.Pin pin;
+    private final CuratorZkLockObserver observer;
+    private final String basePath;
+    private final InterProcessMutex readLock;
+    private final InterProcessMutex writeLock;
+
+    CuratorZkPinnedReadWriteLock(CuratorFramework client, String basePath, CuratorZkLockRegistry.Pin pin) {
+        this(client, basePath, pin, CuratorZkLockObserver.NONE);
+    }
+
+    CuratorZkPinnedReadWriteLock(CuratorFramework client, String basePath, CuratorZkLockRegistry.Pin pin, CuratorZkLockObserver observer) {
+        super(client, basePath);
+        this.pin = pin;
+        this.observer = observer;
+        this.basePath = basePath;
+        this.readLock = new PinnedMutex(client, basePath, super.readLock(), CuratorZkLockObserver.TYPE_READ);
+        this.writeLock = new PinnedMutex(client, basePath, super.writeLock(), CuratorZkLockObserver.TYPE_WRITE);
+    }
+
+    @Override
+    public InterProcessMutex readLock() {
+        return readLock;
+    }
+
+    @Override
+    public InterProcessMutex writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * 只用于委托，父类的锁状态不会被使用
+     */
+    private final class PinnedMutex extends InterProcessMutex {
+        private final InterProcessMutex delegate;
+        private final String type;
+        /**
+         * 各持有线程最外层加锁成功的时间
+         */
+        private final ConcurrentMap<Thread, Long> acquiredAt = new ConcurrentHashMap<>();
+
+        private PinnedMutex(CuratorFramework client, String basePath, InterProcessMutex delegate, String type) {
+            super(client, basePath);
+            this.delegate = delegate;
+            this.type = type;
+        }
+
+        @Override
+        public void acquire() throws Exception {
+            acquire(-1, null);
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+            if (delegate.isOwnedByCurrentThread()) {
+                // 重入，不计入等待和持有
+                boolean locked = null == unit ? acquireDelegate() : delegate.acquire(time, unit);
+                if (locked) {
+                    pin.acquired(CuratorZkPinnedReadWriteLock.this);
+                }
+                return locked;
+            }
+            long start = System.nanoTime();
+            observer.waiting(type, basePath);
+            boolean locked = false;
+            try {
+                locked = null == unit ? acquireDelegate() : delegate.acquire(time, unit);
+            } finally {
+                long now = System.nanoTime();
+                if (locked) {
+                    acquiredAt.put(Thread.currentThread(), now);
+                    pin.acquired(CuratorZkPinnedReadWriteLock.this);
+                }
+                observer.acquired(type, basePath, now - start, locked);
+            }
+            return locked;
+        }
+
+        private boolean acquireDelegate() throws Exception {
+            delegate.acquire();
+            return true;
+        }
+
+        @Override
+        public void release() throws Exception {
+            try {
+                delegate.release();
+            } catch (IllegalMonitorStateException e) {
+                throw e;
+            } catch (Exception e) {
+                pin.released();
+                releasedByCurrentThread();
+                throw e;
+            }
+            pin.released();
+            releasedByCurrentThread();
+        }
+
+        /**
+         * 最外层释放（当前线程不再持有）时回调持有时间
+         */
+        private void releasedByCurrentThread() {
+            if (delegate.isOwnedByCurrentThread()) {
+                return;
+            }
+            Long since = acquiredAt.remove(Thread.currentThread());
+            if (null != since) {
+                observer.released(type, basePath, System.nanoTime() - since);
+            }
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return delegate.isAcquiredInThisProcess();
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return delegate.isOwnedByCurrentThread();
+        }
+
+        @Override
+        public Collection<String> getParticipantNodes() throws Exception {
+            return delegate.getParticipantNodes();
+        }
+
+        @Override
+        public void makeRevocable(RevocationListener<InterProcessMutex> listener) {
+            delegate.makeRevocable(listener);
+        }
+
+        @Override
+        public void makeRevocable(RevocationListener<InterProcessMutex> listener, Executor executor) {
+            delegate.makeRevocable(listener, executor);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.curator.CuratorZookeeperClient;
 import org.apache.zookeeper.ZooKeeper;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -93,6 +94,61 @@ public class CuratorZkProperties {
      */
     private List<CuratorAuthInfo> authInfoList;
 
+    /**
+     * 分布式锁相关配置
+     */
+    private LockProperties lock = new LockProperties();
+
+    /**
+     * 分布式计数器相关配置
+     */
+    private CounterProperties counter = new CounterProperties();
+
+    /**
+     * 分布式队列相关配置
+     */
+    private QueueProperties queue = new QueueProperties();
+
+    /**
+     * 批量写入相关配置
+     */
+    private BulkProperties bulk = new BulkProperties();
+
+    /**
+     * 节点数据延迟合并写入相关配置
+     */
+    private WriteBehindProperties writeBehind = new WriteBehindProperties();
+
+    /**
+     * getNodeData 本地读缓存相关配置
+     */
+    private ReadCacheProperties readCache = new ReadCacheProperties();
+
+    /**
+     * 监听事件分发线程池相关配置
+     */
+    private DispatchProperties dispatch = new DispatchProperties();
+
+    /**
+     * 节点数据编解码相关配置
+     */
+    private CodecProperties codec = new CodecProperties();
+
+    /**
+     * 大数据分块存储相关配置
+     */
+    private BlobProperties blob = new BlobProperties();
+
+    /**
+     * Micrometer 指标相关配置
+     */
+    private MetricsProperties metrics = new MetricsProperties();
+
+    /**
+     * 锁竞争分析相关配置
+     */
+    private ProfilerProperties profiler = new ProfilerProperties();
+
     @Data
     public class CuratorAuthInfo {
         private String scheme;
@@ -100,4 +156,217 @@ public class CuratorZkProperties {
 
     }
 
+    @Data
+    public static class LockProperties {
+        /**
+         * 本地合并锁在本JVM内连续移交ZK锁的最大次数，达到后强制释放ZK锁，避免其它进程饥饿
+         */
+        private int coalescingMaxHandoffs = 64;
+
+        /**
+         * 批量租约信号量每次从ZK获取的租约数量
+         */
+        private int semaphoreLeaseBatchSize = 16;
+
+        /**
+         * 批量租约信号量中本地空闲租约的保留时间，超时后批量归还给ZK
+         */
+        private long semaphoreIdleTimeoutMs = 5000;
+
+        /**
+         * 租约锁的默认租约时长，自动续期的锁每 1/3 租约续期一次
+         */
+        private long leaseTimeMs = 30000;
+
+        /**
+         * 自动续期的租约锁累计持有超过该时长后停止续期，避免卡住但仍存活的线程一直占用锁；小于等于0时不限制
+         */
+        private long maxLeaseTimeMs = 600000;
+
+        /**
+         * 使用 @ZkLock 时锁路径的根节点
+         */
+        private String annotationRoot = "/zk-lock";
+    }
+
+    @Data
+    public static class CounterProperties {
+        /**
+         * 分片计数器的分片数量，同一计数器的所有使用方必须一致
+         */
+        private int shards = 8;
+
+        /**
+         * ID生成器每次预留的号段大小
+         */
+        private long idRangeSize = 10000;
+
+        /**
+         * ID生成器当前号段使用到该比例时异步预取下一个号段
+         */
+        private double idPrefetchRatio = 0.8;
+    }
+
+    @Data
+    public static class QueueProperties {
+        /**
+         * 批量队列单个multi事务包含的最大操作数
+         */
+        private int maxBatchOps = 1000;
+
+        /**
+         * 批量队列单个multi事务的最大数据字节数，需小于服务端 jute.maxbuffer（默认1M）
+         */
+        private int maxBatchBytes = 512 * 1024;
+    }
+
+    @Data
+    public static class BulkProperties {
+        /**
+         * 批量写入时单个multi事务包含的最大操作数
+         */
+        private int maxOps = 1000;
+
+        /**
+         * 批量写入时单个multi事务的估算最大字节数，需小于服务端 jute.maxbuffer（默认1M）
+         */
+        private int maxBytes = 512 * 1024;
+
+        /**
+         * 一次批量写入等待所有事务返回的超时时间，超时未返回的操作结果为 OPERATIONTIMEOUT
+         */
+        private long timeoutMs = 60000;
+    }
+
+    @Data
+    public static class WriteBehindProperties {
+        /**
+         * 是否开启延迟合并写入（CuratorZkUtil.setNodeDataWriteBehind），默认关闭
+         */
+        private boolean enabled = false;
+
+        /**
+         * 定时写入间隔
+         */
+        private long flushIntervalMs = 1000;
+
+        /**
+         * 待写入的节点数达到该值时立即写入
+         */
+        private int maxPending = 1000;
+    }
+
+    @Data
+    public static class ReadCacheProperties {
+        /**
+         * 是否开启 getNodeData 本地读缓存，默认关闭
+         */
+        private boolean enabled = false;
+
+        /**
+         * 需要缓存的路径前缀，每个前缀注册一个递归监听
+         */
+        private List<String> prefixes = new ArrayList<>();
+
+        /**
+         * 最大缓存条目数
+         */
+        private int maxSize = 10000;
+
+        /**
+         * 条目过期时间，0表示只依赖监听事件保持一致，不过期
+         */
+        private long ttlMs = 0;
+    }
+
+    @Data
+    public static class DispatchProperties {
+        /**
+         * 分发线程数，同一节点路径的事件串行执行，不同路径并行
+         */
+        private int threads = 4;
+
+        /**
+         * 所有路径排队和执行中事件的总容量
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * 容量已满时的处理策略：BLOCK 阻塞ZK事件线程直到有空闲容量，DROP 丢弃新事件；
+         * 事件被丢弃的节点之后按缓存中的最新数据补发一次，监听器最终收到最新状态，但可能合并或重复中间的变化
+         */
+        private CuratorZkEventDispatcher.OverflowPolicy overflowPolicy = CuratorZkEventDispatcher.OverflowPolicy.BLOCK;
+
+        /**
+         * BLOCK 策略下最长阻塞时间（毫秒），超时后丢弃事件、打印错误日志并按最新数据补发；小于0时一直阻塞，监听器在回调中阻塞分发线程时可能死锁
+         */
+        private long overflowBlockTimeoutMs = CuratorZkEventDispatcher.DEFAULT_BLOCK_TIMEOUT_MS;
+
+        /**
+         * 是否使用虚拟线程（需运行在 JDK 21+，否则退回平台线程）
+         */
+        private boolean virtualThreads = false;
+    }
+
+    @Data
+    public static class CodecProperties {
+        /**
+         * 压缩存储（CuratorZkCodecs.compressed、NodeCache dataIsCompressed 等）使用的算法，LZ4 需要引入 lz4-java
+         */
+        private CuratorZkCompressionProvider.Algorithm compression = CuratorZkCompressionProvider.Algorithm.GZIP;
+    }
+
+    @Data
+    public static class BlobProperties {
+        /**
+         * 单个分块节点的最大字节数，需小于服务端 jute.maxbuffer
+         */
+        private int chunkSize = 256 * 1024;
+        /**
+         * 并发读取全部分块的超时时间（毫秒）
+         */
+        private long readTimeoutMs = 30000;
+    }
+
+    @Data
+    public static class MetricsProperties {
+        /**
+         * 存在 MeterRegistry 时是否注册指标
+         */
+        private boolean enabled = true;
+        /**
+         * 指标 path 标签保留的路径层级，更深的部分归并为 **
+         */
+        private int pathDepth = 2;
+        /**
+         * 指标 path 标签不同取值的上限，超出后新出现的路径归并为 other
+         */
+        private int maxPathTags = CuratorZkMetrics.DEFAULT_MAX_PATH_TAGS;
+        /**
+         * 锁 key 的 Ant 风格模式（如 /locks/order/*）；锁指标默认只按 type 区分，命中的锁 key 再按模式打 key 标签，
+         * 锁节点的操作指标也归并为该模式，不会按业务 key 产生大量标签
+         */
+        private List<String> lockKeyPatterns = new ArrayList<>();
+        /**
+         * 是否发布用于计算分位数的直方图（Prometheus 等服务端聚合时开启）
+         */
+        private boolean percentileHistogram = false;
+    }
+
+    @Data
+    public static class ProfilerProperties {
+        /**
+         * 是否统计锁竞争（热点 key、长时间持有），默认关闭
+         */
+        private boolean enabled = false;
+        /**
+         * 等待时间、持有时间各保留的 key 数量，超出后按 space-saving 算法淘汰，内存占用固定
+         */
+        private int capacity = 64;
+        /**
+         * 持有时间超过该值（毫秒）且为该 key 最长持有时才记录调用位置
+         */
+        private long callSiteThresholdMs = 100;
+    }
+
 }
@@ -0,0 +1,198 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName com.hgq.CuratorZkReadCache
+ * @Description: getNodeData 的本地读穿透缓存
+ * 每个配置的路径前缀注册一个只加载节点状态的 CuratorZkSubtreeCache（同步和变更时只调用 exists，不下载数据）用于接收变更事件，
+ * 数据在首次读取时从ZK加载并以解码后的字符串缓存，命中时不访问ZK、不分配内存；
+ * 节点变更或删除时移除已缓存的值，下次读取时重新加载；加载结果与子树缓存中的节点状态比对，避免与并发变更竞争导致缓存旧值
+ * 缓存条目数超过 maxSize 时近似淘汰，ttlMs 大于0时条目过期后重新加载
+ * @Author: hgq
+ * @Date: 2026-10-18 19:10
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkReadCache implements Closeable {
+
+    private final CuratorFramework client;
+    private final List<Region> regions = new ArrayList<>();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMs;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CuratorZkReadCache(CuratorFramework client, List<String> prefixes, int maxSize, long ttlMs) {
+        this.client = client;
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        for (String prefix : prefixes) {
+            regions.add(new Region(prefix));
+        }
+    }
+
+    public void start() {
+        for (Region region : regions) {
+            region.start();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Region region : regions) {
+            region.cache.close();
+            region.initialized = false;
+        }
+        entries.clear();
+    }
+
+    /**
+     * 路径是否在缓存的前缀范围内
+     *
+     * @param path
+     * @return
+     */
+    public boolean covers(String path) {
+        return null != regionFor(path);
+    }
+
+    /**
+     * 获取节点数据，节点不存在或读取失败时返回""（与 CuratorZkUtil.getNodeData 一致）
+     *
+     * @param path
+     * @return
+     */
+    public String getNodeData(String path) {
+        Entry entry = entries.get(path);
+        if (null != entry && (ttlMs <= 0 || System.currentTimeMillis() - entry.loadedAt < ttlMs)) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        Region region = regionFor(path);
+        try {
+            if (null == region || !region.initialized) {
+                return new String(client.getData().forPath(path), StandardCharsets.UTF_8);
+            }
+            if (!region.cache.get(path).isPresent()) {
+                // 监听范围内的节点均在子树缓存中，不存在即节点不存在
+                return "";
+            }
+            Stat stat = new Stat();
+            byte[] bytes = client.getData().storingStatIn(stat).forPath(path);
+            Entry loaded = new Entry(new String(bytes, StandardCharsets.UTF_8), stat.getMzxid());
+            entries.merge(path, loaded, (current, value) -> value.mzxid >= current.mzxid ? value : current);
+            // 加载期间节点被修改或删除时，事件可能已先于 put 处理，丢弃可能过期的值
+            Optional<ChildData> known = region.cache.get(path);
+            if (!known.isPresent() || known.get().getStat().getMzxid() > stat.getMzxid()) {
+                entries.remove(path, loaded);
+            }
+            evictIfNecessary();
+            return loaded.value;
+        } catch (KeeperException.NoNodeException e) {
+            return "";
+        } catch (Exception e) {
+            log.error("查询节点的数据出现异常,path={}", path, e);
+        }
+        return "";
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    private Region regionFor(String path) {
+        for (Region region : regions) {
+            if (path.equals(region.prefix) || path.startsWith(region.childPrefix)) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 近似淘汰：超过上限时按迭代顺序移除约 1/10 的条目，避免读路径上维护全局LRU顺序
+     */
+    private void evictIfNecessary() {
+        int excess = entries.size() - maxSize;
+        if (excess <= 0) {
+            return;
+        }
+        int toRemove = excess + Math.max(1, maxSize / 10);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (toRemove-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 子树缓存只有节点状态，比缓存值新时移除
+     */
+    private void onChanged(ChildData data) {
+        entries.computeIfPresent(data.getPath(), (path, current) -> data.getStat().getMzxid() > current.mzxid ? null : current);
+    }
+
+    private final class Region {
+        private final String prefix;
+        private final String childPrefix;
+        private final CuratorZkSubtreeCache cache;
+        private volatile boolean initialized;
+
+        private Region(String prefix) {
+            this.prefix = prefix;
+            this.childPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+            this.cache = new CuratorZkSubtreeCache(client, prefix, CuratorZkSubtreeCache.Options.defaults().statOnly());
+        }
+
+        private void start() {
+            cache.listenable().addListener(CuratorCacheListener.builder()
+                    .forCreatesAndChanges((oldNode, node) -> onChanged(node))
+                    .forDeletes(oldNode -> entries.remove(oldNode.getPath()))
+                    .forInitialized(() -> initialized = true)
+                    .build());
+            cache.start();
+        }
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long mzxid;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Entry(String value, long mzxid) {
+            this.value = value;
+            this.mzxid = mzxid;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.hgq;
+
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.atomic.AtomicValue;
+import org.apache.curator.framework.recipes.atomic.DistributedAtomicLong;
+import org.apache.curator.retry.RetryNTimes;
+import org.apache.curator.utils.ZKPaths;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @ClassName com.hgq.CuratorZkShardedCounter
+ * @Description: 分片分布式计数器
+ * 计数值分散在 {path}/shard-{i} 共 shards 个节点上，每次累加按 实例随机种子+线程ID 选择分片，
+ * 乐观更新冲突时立即换下一个分片重试，而不是在同一节点上按重试策略退避；get() 为所有分片之和
+ * @Author: hgq
+ * @Date: 2026-10-18 13:20
+ * @Version: 1.0
+ */
+public class CuratorZkShardedCounter {
+
+    private static final String SHARD_PREFIX = "shard-";
+    /**
+     * 单个分片只尝试一次，冲突交给下一个分片处理
+     */
+    private static final RetryPolicy SHARD_RETRY = new RetryNTimes(0, 0);
+
+    private final DistributedAtomicLong[] fastShards;
+    private final DistributedAtomicLong[] retryShards;
+    private final int seed = ThreadLocalRandom.current().nextInt();
+
+    public CuratorZkShardedCounter(CuratorFramework client, String path, int shards, RetryPolicy retryPolicy) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards must be greater than 0");
+        }
+        this.fastShards = new DistributedAtomicLong[shards];
+        this.retryShards = new DistributedAtomicLong[shards];
+        for (int i = 0; i < shards; i++) {
+            String shardPath = ZKPaths.makePath(path, SHARD_PREFIX + i);
+            fastShards[i] = new DistributedAtomicLong(client, shardPath, SHARD_RETRY);
+            retryShards[i] = new DistributedAtomicLong(client, shardPath, retryPolicy);
+        }
+    }
+
+    /**
+     * 加1
+     *
+     * @return 是否成功
+     * @throws Exception
+     */
+    public boolean increment() throws Exception {
+        return add(1L);
+    }
+
+    /**
+     * 减1
+     *
+     * @return 是否成功
+     * @throws Exception
+     */
+    public boolean decrement() throws Exception {
+        return add(-1L);
+    }
+
+    /**
+     * 累加
+     * 依次在各分片上尝试一次，全部冲突后在起始分片上按重试策略重试
+     *
+     * @param delta
+     * @return 是否成功
+     * @throws Exception
+     */
+    public boolean add(long delta) throws Exception {
+        int start = shardIndex();
+        for (int i = 0; i < fastShards.length; i++) {
+            AtomicValue<Long> value = fastShards[(start + i) % fastShards.length].add(delta);
+            if (value.succeeded()) {
+                return true;
+            }
+        }
+        return retryShards[start].add(delta).succeeded();
+    }
+
+    /**
+     * 所有分片之和
+     * 各分片分别读取，并发累加时返回的不是某一时刻的快照，但不会丢失已成功的累加
+     *
+     * @return
+     * @throws Exception
+     */
+    public long get() throws Exception {
+        long sum = 0;
+        for (DistributedAtomicLong shard : fastShards) {
+            AtomicValue<Long> value = shard.get();
+            if (!value.succeeded()) {
+                throw new CuratorLockException(BusinessMsgEnum.SYSTEM_EXCEPTION);
+            }
+            sum += value.postValue();
+        }
+        return sum;
+    }
+
+    /**
+     * 分片数量
+     *
+     * @return
+     */
+    public int getShards() {
+        return fastShards.length;
+    }
+
+    private int shardIndex() {
+        long threadId = Thread.currentThread().getId();
+        int hash = (int) (threadId ^ (threadId >>> 32)) * 0x9E3779B9 + seed;
+        return (hash & Integer.MAX_VALUE) % fastShards.length;
+    }
+}
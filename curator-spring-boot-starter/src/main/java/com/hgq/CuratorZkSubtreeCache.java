@@ -0,0 +1,353 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.listen.Listenable;
+import org.apache.curator.framework.listen.StandardListenerManager;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.recipes.cache.TreeCacheSelector;
+import org.apache.curator.framework.recipes.watch.PersistentWatcher;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * @ClassName com.hgq.CuratorZkSubtreeCache
+ * @Description: 可选择加载范围的子树缓存
+ * 通过 PersistentWatcher 在根节点上注册一个持久递归监听，只加载选中的节点：
+ * 可限制深度（maxDepth）、按路径选择（TreeCacheSelector / pathFilter），以及只加载节点状态不下载数据（statOnly）；
+ * 未选中的节点既不查询也不保存，适合监听大规模子树的成员变化
+ * 首次启动和重连时从根节点全量同步一次，同步结束后移除期间已不存在的节点；事件与 CuratorCacheListener 一致
+ * @Author: hgq
+ * @Date: 2026-10-18 21:15
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkSubtreeCache implements Closeable {
+
+    private final CuratorFramework client;
+    private final String root;
+    private final String rootPrefix;
+    private final Options options;
+    private final PersistentWatcher watcher;
+    private final ConcurrentHashMap<String, ChildData> storage = new ConcurrentHashMap<>();
+    private final StandardListenerManager<CuratorCacheListener> listeners = StandardListenerManager.standard();
+    /**
+     * 同步中未完成的后台请求数
+     */
+    private final AtomicInteger outstanding = new AtomicInteger();
+    /**
+     * 全量同步期间加载到的节点，不为null表示正在同步
+     */
+    private volatile Set<String> seen;
+    private volatile boolean initialized;
+    private volatile boolean closed;
+
+    public CuratorZkSubtreeCache(CuratorFramework client, String root, Options options) {
+        this.client = client;
+        this.root = root;
+        this.rootPrefix = ZKPaths.PATH_SEPARATOR.equals(root) ? root : root + ZKPaths.PATH_SEPARATOR;
+        this.options = options;
+        this.watcher = new PersistentWatcher(client, root, true);
+    }
+
+    public void start() {
+        watcher.getListenable().addListener(this::onEvent);
+        watcher.getResetListenable().addListener(this::resync);
+        watcher.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        watcher.close();
+        listeners.clear();
+        storage.clear();
+    }
+
+    public Listenable<CuratorCacheListener> listenable() {
+        return listeners;
+    }
+
+    public Optional<ChildData> get(String path) {
+        return Optional.ofNullable(storage.get(path));
+    }
+
+    public Stream<ChildData> stream() {
+        return storage.values().stream();
+    }
+
+    public int size() {
+        return storage.size();
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * 节点是否在选择范围内：深度不超过 maxDepth，祖先节点均允许遍历子节点，且节点本身被接受
+     *
+     * @param path
+     * @return
+     */
+    private boolean selected(String path) {
+        if (path.equals(root)) {
+            return true;
+        }
+        if (!path.startsWith(rootPrefix)) {
+            return false;
+        }
+        int depth = 0;
+        for (int i = rootPrefix.length() - 1; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                if (null != options.selector && !options.selector.traverseChildren(0 == depth ? root : path.substring(0, i))) {
+                    return false;
+                }
+                depth++;
+            }
+        }
+        if (options.maxDepth >= 0 && depth > options.maxDepth) {
+            return false;
+        }
+        return null == options.selector || options.selector.acceptChild(path);
+    }
+
+    private void onEvent(WatchedEvent event) {
+        String path = event.getPath();
+        if (null == path || closed || !selected(path)) {
+            return;
+        }
+        switch (event.getType()) {
+            case NodeCreated:
+            case NodeDataChanged:
+                load(path);
+                break;
+            case NodeDeleted:
+                remove(path);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 监听建立（首次或重连）后从根节点全量同步
+     */
+    private void resync() {
+        if (closed) {
+            // 关闭后才回调的监听重建，不再访问ZK
+            return;
+        }
+        seen = ConcurrentHashMap.newKeySet();
+        outstanding.incrementAndGet();
+        refresh(root, 0, true);
+        done();
+    }
+
+    /**
+     * 加载节点并遍历子节点
+     *
+     * @param path
+     * @param depth  相对根节点的深度
+     * @param accept 是否加载该节点本身（未被接受的节点仍按 traverseChildren 遍历子节点）
+     */
+    private void refresh(String path, int depth, boolean accept) {
+        if (accept) {
+            load(path);
+        }
+        if ((options.maxDepth >= 0 && depth >= options.maxDepth)
+                || (null != options.selector && !options.selector.traverseChildren(path))) {
+            return;
+        }
+        submit(() -> client.getChildren().inBackground(callback((curatorFramework, event) -> {
+            if (event.getResultCode() != KeeperException.Code.OK.intValue()) {
+                return;
+            }
+            for (String child : event.getChildren()) {
+                String childPath = ZKPaths.makePath(path, child);
+                refresh(childPath, depth + 1, null == options.selector || options.selector.acceptChild(childPath));
+            }
+        })).forPath(path), path);
+    }
+
+    private void load(String path) {
+        BackgroundCallback callback = callback((curatorFramework, event) -> {
+            if (event.getResultCode() == KeeperException.Code.OK.intValue() && null != event.getStat()) {
+                Set<String> current = seen;
+                if (null != current) {
+                    current.add(path);
+                }
+                put(new ChildData(path, event.getStat(), options.statOnly ? null : event.getData()));
+            } else if (event.getResultCode() == KeeperException.Code.NONODE.intValue() || null == event.getStat()) {
+                remove(path);
+            }
+        });
+        if (options.statOnly) {
+            submit(() -> client.checkExists().inBackground(callback).forPath(path), path);
+        } else {
+            submit(() -> client.getData().inBackground(callback).forPath(path), path);
+        }
+    }
+
+    private void put(ChildData data) {
+        ChildData previous = storage.put(data.getPath(), data);
+        if (null == previous) {
+            listeners.forEach(listener -> listener.event(CuratorCacheListener.Type.NODE_CREATED, null, data));
+        } else if (previous.getStat().getMzxid() != data.getStat().getMzxid()) {
+            listeners.forEach(listener -> listener.event(CuratorCacheListener.Type.NODE_CHANGED, previous, data));
+        }
+    }
+
+    private void remove(String path) {
+        ChildData previous = storage.remove(path);
+        if (null != previous) {
+            listeners.forEach(listener -> listener.event(CuratorCacheListener.Type.NODE_DELETED, previous, null));
+        }
+    }
+
+    private BackgroundCallback callback(BackgroundCallback delegate) {
+        return (curatorFramework, event) -> {
+            try {
+                if (!closed) {
+                    delegate.processResult(curatorFramework, event);
+                }
+            } finally {
+                done();
+            }
+        };
+    }
+
+    private void submit(Operation operation, String path) {
+        if (closed) {
+            return;
+        }
+        outstanding.incrementAndGet();
+        try {
+            operation.run();
+        } catch (Exception e) {
+            log.error("同步子树缓存出现异常,path={}", path, e);
+            done();
+        }
+    }
+
+    /**
+     * 后台请求完成，全量同步的所有请求完成后移除同步期间已不存在的节点
+     */
+    private void done() {
+        if (outstanding.decrementAndGet() != 0 || closed) {
+            return;
+        }
+        Set<String> current = seen;
+        if (null != current) {
+            seen = null;
+            for (String path : storage.keySet()) {
+                if (!current.contains(path)) {
+                    remove(path);
+                }
+            }
+        }
+        if (!initialized) {
+            initialized = true;
+            listeners.forEach(CuratorCacheListener::initialized);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    /**
+     * 加载范围，不可变；相同配置的 Options 实例在 CuratorZkWatcherRegistry 中共享同一个缓存
+     */
+    public static final class Options {
+        private static final Options DEFAULT = new Options(-1, null, false);
+
+        private final int maxDepth;
+        private final TreeCacheSelector selector;
+        private final boolean statOnly;
+
+        private Options(int maxDepth, TreeCacheSelector selector, boolean statOnly) {
+            this.maxDepth = maxDepth;
+            this.selector = selector;
+            this.statOnly = statOnly;
+        }
+
+        /**
+         * 加载整棵子树的节点状态和数据
+         *
+         * @return
+         */
+        public static Options defaults() {
+            return DEFAULT;
+        }
+
+        /**
+         * 最大深度，0只加载根节点，1加载到直接子节点，-1不限制
+         */
+        public Options withMaxDepth(int maxDepth) {
+            return new Options(maxDepth, selector, statOnly);
+        }
+
+        public Options withSelector(TreeCacheSelector selector) {
+            return new Options(maxDepth, selector, statOnly);
+        }
+
+        /**
+         * 只加载路径满足条件的节点（不满足的节点的子节点仍会遍历）
+         */
+        public Options withPathFilter(Predicate<String> filter) {
+            return withSelector(new TreeCacheSelector() {
+                @Override
+                public boolean traverseChildren(String fullPath) {
+                    return true;
+                }
+
+                @Override
+                public boolean acceptChild(String fullPath) {
+                    return filter.test(fullPath);
+                }
+            });
+        }
+
+        /**
+         * 只加载节点状态，不下载数据，事件中的 ChildData.getData() 为null
+         */
+        public Options statOnly() {
+            return new Options(maxDepth, selector, true);
+        }
+
+        public boolean isDefault() {
+            return equals(DEFAULT);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Options)) {
+                return false;
+            }
+            Options other = (Options) o;
+            return maxDepth == other.maxDepth && statOnly == other.statOnly && selector == other.selector;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(maxDepth, System.identityHashCode(selector), statOnly);
+        }
+    }
+}
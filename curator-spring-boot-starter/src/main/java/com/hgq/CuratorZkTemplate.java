@@ -10,8 +10,13 @@ import org.apache.curator.framework.recipes.barriers.DistributedDoubleBarrier;
 import org.apache.curator.framework.recipes.locks.*;
 import org.apache.curator.framework.recipes.queue.DistributedQueue;
 import org.apache.curator.framework.recipes.queue.SimpleDistributedQueue;
+import org.apache.curator.framework.state.ConnectionState;
 
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * @ClassName com.hgq.CuratorZkTemplate
@@ -24,41 +29,105 @@ public class CuratorZkTemplate {
     private CuratorFramework client;
     private RetryPolicy retryPolicy;
     private int sessionTimeout = 30000;
+    private CuratorZkProperties properties;
+    /**
+     * 本地合并锁按lockKey共享的状态
+     */
+    private final ConcurrentMap<String, CuratorZkCoalescingLock.Cohort> coalescingCohorts = new ConcurrentHashMap<>();
+    /**
+     * 按路径复用的锁实例，持有期间强引用，释放且无人引用后自动回收
+     */
+    private final CuratorZkLockRegistry<InterProcessLock> reentrantLocks;
+    private final CuratorZkLockRegistry<InterProcessLock> sharedLocks;
+    private final CuratorZkLockRegistry<InterProcessReadWriteLock> readWriteLocks;
+    private final CuratorZkLockRegistry<CuratorZkLeasedLock> leasedLocks;
+    /**
+     * 按lockKey复用的批量租约信号量，关闭后下次获取时重新创建
+     */
+    private final ConcurrentMap<String, CuratorZkBatchedSemaphore> batchedSemaphores = new ConcurrentHashMap<>();
+    /**
+     * 按路径复用的ID生成器，同一路径共享本地号段
+     */
+    private final ConcurrentMap<String, CuratorZkIdGenerator> idGenerators = new ConcurrentHashMap<>();
+    /**
+     * 其它组件共享的定时任务线程（如归还空闲租约、预取ID号段），首次使用时创建
+     */
+    private volatile ScheduledExecutorService scheduler;
+    /**
+     * 租约锁续期专用的看门狗线程，所有租约锁共享，不与其它可能阻塞的任务共用，首次使用时创建
+     */
+    private volatile ScheduledExecutorService leaseWatchdog;
+    /**
+     * 按父节点共享的子节点索引
+     */
+    private final CuratorZkChildrenIndexRegistry childrenIndexRegistry;
+    /**
+     * 锁等待、持有的统计回调，引入 Micrometer 时由自动配置设置
+     */
+    private volatile CuratorZkLockObserver lockObserver = CuratorZkLockObserver.NONE;
 
     public CuratorZkTemplate(CuratorFramework client, RetryPolicy retryPolicy, int sessionTimeout) {
+        this(client, retryPolicy, new CuratorZkProperties());
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    public CuratorZkTemplate(CuratorFramework client, RetryPolicy retryPolicy, CuratorZkProperties properties) {
+        this(client, retryPolicy, properties, new CuratorZkChildrenIndexRegistry(client));
+    }
+
+    public CuratorZkTemplate(CuratorFramework client, RetryPolicy retryPolicy, CuratorZkProperties properties,
+                             CuratorZkChildrenIndexRegistry childrenIndexRegistry) {
         this.client = client;
+        this.childrenIndexRegistry = childrenIndexRegistry;
         this.retryPolicy = retryPolicy;
-        this.sessionTimeout = sessionTimeout;
+        this.properties = properties;
+        this.sessionTimeout = properties.getSessionTimeoutMs();
+        this.reentrantLocks = new CuratorZkLockRegistry<>((path, pin) -> new CuratorZkPinnedLock(
+                observe(new InterProcessMutex(client, path), CuratorZkLockObserver.TYPE_REENTRANT, path), pin));
+        this.sharedLocks = new CuratorZkLockRegistry<>((path, pin) -> new CuratorZkPinnedLock(
+                observe(new InterProcessSemaphoreMutex(client, path), CuratorZkLockObserver.TYPE_SHARED, path), pin));
+        this.readWriteLocks = new CuratorZkLockRegistry<>((path, pin) -> new CuratorZkPinnedReadWriteLock(client, path, pin, lockObserver));
+        this.leasedLocks = new CuratorZkLockRegistry<>((path, pin) -> new CuratorZkLeasedLock(client, path,
+                properties.getLock().getLeaseTimeMs(), properties.getLock().getMaxLeaseTimeMs(), getLeaseWatchdog(), lockObserver, pin));
+        client.getConnectionStateListenable().addListener((c, state) -> {
+            if (state == ConnectionState.LOST) {
+                CuratorZkCoalescingLock.connectionLost(coalescingCohorts);
+                batchedSemaphores.values().forEach(CuratorZkBatchedSemaphore::connectionLost);
+            }
+        });
     }
 
     /**
      * 1. 共享可重入锁 ==> InterProcessMutex
+     * 同一lockKey返回同一实例，同一线程在不同调用处获取时可重入
      *
      * @param lockKey
      * @return
      */
     public InterProcessLock getSharedReentrantLock(String lockKey) {
-        return new InterProcessMutex(client, lockKey);
+        return reentrantLocks.get(lockKey);
     }
 
     /**
      * 2. 共享不可重入锁(排它锁) ==>  InterProcessSemaphoreMutex
+     * 同一lockKey返回同一实例
      *
      * @param lockKey
      * @return
      */
     public InterProcessLock getSharedLock(String lockKey) {
-        return new InterProcessSemaphoreMutex(client, lockKey);
+        return sharedLocks.get(lockKey);
     }
 
     /**
      * 3. 共享可重入读写锁  ===》InterProcessReadWriteLock
+     * 同一lockKey返回同一实例
      *
      * @param lockKey
      * @return
      */
     public InterProcessReadWriteLock getSharedReentrantReadWriteLock(String lockKey) {
-        return new InterProcessReadWriteLock(client, lockKey);
+        return readWriteLocks.get(lockKey);
     }
 
     /**
@@ -72,6 +141,18 @@ public class CuratorZkTemplate {
         return new InterProcessSemaphoreV2(client, lockKey, 1);
     }
 
+    /**
+     * 4. 共享信号量锁 ===》InterProcessSemaphoreV2
+     * 可指定最大租约数
+     *
+     * @param lockKey
+     * @param maxLeases
+     * @return
+     */
+    public InterProcessSemaphoreV2 getSharedSemaphoreLock(String lockKey, int maxLeases) {
+        return new InterProcessSemaphoreV2(client, lockKey, maxLeases);
+    }
+
     /**
      * 5. 创建多重共享锁
      * 将多个锁作为单个实体管理的容器
@@ -83,6 +164,75 @@ public class CuratorZkTemplate {
         return new InterProcessMultiLock(Arrays.asList(lockKeys));
     }
 
+    /**
+     * 6. 自定义分布式锁 ===》CuratorZkDistributedLock
+     * 每个等待者只监听前一个节点，释放锁时只唤醒一个等待者；每次获取锁需要新建实例
+     *
+     * @return
+     */
+    public CuratorZkDistributedLock getDistributedLock() {
+        return new CuratorZkDistributedLock(client, sessionTimeout, null, lockObserver);
+    }
+
+    /**
+     * 6. 自定义分布式锁 ===》CuratorZkDistributedLock
+     * useChildrenIndex 为true时通过本地子节点索引查找前一个节点，适合同一JVM内大量线程竞争同一lockKey的场景
+     *
+     * @param useChildrenIndex
+     * @return
+     */
+    public CuratorZkDistributedLock getDistributedLock(boolean useChildrenIndex) {
+        return new CuratorZkDistributedLock(client, sessionTimeout, useChildrenIndex ? childrenIndexRegistry : null, lockObserver);
+    }
+
+    /**
+     * 7. 本地合并的分布式锁 ===》CuratorZkCoalescingLock
+     * 同一JVM内的线程先在本地公平锁上排队，只有队头线程参与ZK加锁，锁在本地线程之间直接移交，
+     * 大幅减少同一lockKey高并发时的ZK写操作；支持同一线程重入
+     *
+     * @param lockKey
+     * @return
+     */
+    public CuratorZkCoalescingLock getCoalescingLock(String lockKey) {
+        return new CuratorZkCoalescingLock(client, lockKey, coalescingCohorts, properties.getLock().getCoalescingMaxHandoffs(), lockObserver);
+    }
+
+    /**
+     * 8. 批量租约信号量 ===》CuratorZkBatchedSemaphore
+     * 一次从ZK获取 curator.lock.semaphore-lease-batch-size 个租约在本地线程之间分发，
+     * 空闲超过 curator.lock.semaphore-idle-timeout-ms 的租约批量归还；同一lockKey返回同一实例，由模板持有，调用方无需关闭
+     *
+     * @param lockKey
+     * @param maxLeases 同一lockKey必须一致
+     * @return
+     */
+    public CuratorZkBatchedSemaphore getBatchedSemaphore(String lockKey, int maxLeases) {
+        CuratorZkBatchedSemaphore semaphore = batchedSemaphores.compute(lockKey, (key, current) -> {
+            if (null != current && !current.isClosed()) {
+                return current;
+            }
+            CuratorZkProperties.LockProperties lock = properties.getLock();
+            return new CuratorZkBatchedSemaphore(client, key, maxLeases, lock.getSemaphoreLeaseBatchSize(),
+                    lock.getSemaphoreIdleTimeoutMs(), getScheduler());
+        });
+        if (semaphore.getMaxLeases() != maxLeases) {
+            throw new IllegalArgumentException("lockKey " + lockKey + " 已使用 maxLeases=" + semaphore.getMaxLeases() + " 创建");
+        }
+        return semaphore;
+    }
+
+    /**
+     * 9. 租约锁 ===》CuratorZkLeasedLock
+     * 可重入，持有者超过租约时长未续期时其它节点可以抢占；默认租约 curator.lock.lease-time-ms 由专用的看门狗线程自动续期，
+     * 累计续期超过 curator.lock.max-lease-time-ms 后停止；acquire(waitTime, leaseTime, unit) 为固定租约；同一lockKey返回同一实例
+     *
+     * @param lockKey
+     * @return
+     */
+    public CuratorZkLeasedLock getLeasedLock(String lockKey) {
+        return leasedLocks.get(lockKey);
+    }
+
 /*    public InterProcessMultiLock getSharedMultiLock(String... lockKeys) {
         return new InterProcessMultiLock(client, Arrays.asList(lockKeys));
     }*/
@@ -136,6 +286,56 @@ public class CuratorZkTemplate {
         return new DistributedAtomicLong(client, lockKey, retryPolicy);
     }
 
+    /**
+     * 分片分布式计数器
+     * 累加分散到 curator.counter.shards 个分片节点，适合高并发累加、低频读取的场景
+     *
+     * @param counterPath
+     * @return
+     */
+    public CuratorZkShardedCounter getShardedCounter(String counterPath) {
+        return getShardedCounter(counterPath, properties.getCounter().getShards());
+    }
+
+    /**
+     * 分片分布式计数器
+     *
+     * @param counterPath
+     * @param shards      分片数量，同一计数器的所有使用方必须一致
+     * @return
+     */
+    public CuratorZkShardedCounter getShardedCounter(String counterPath, int shards) {
+        return new CuratorZkShardedCounter(client, counterPath, shards, retryPolicy);
+    }
+
+    /**
+     * 号段模式的分布式ID生成器
+     * 每次预留 curator.counter.id-range-size 个ID，本地分配，使用到 curator.counter.id-prefetch-ratio 时异步预取下一号段；
+     * 同一路径返回同一实例
+     *
+     * @param idPath
+     * @return
+     */
+    public CuratorZkIdGenerator getIdGenerator(String idPath) {
+        return getIdGenerator(idPath, properties.getCounter().getIdRangeSize());
+    }
+
+    /**
+     * 号段模式的分布式ID生成器
+     *
+     * @param idPath
+     * @param rangeSize 每次预留的ID数量，同一路径必须一致
+     * @return
+     */
+    public CuratorZkIdGenerator getIdGenerator(String idPath, long rangeSize) {
+        CuratorZkIdGenerator generator = idGenerators.computeIfAbsent(idPath, path -> new CuratorZkIdGenerator(client, path,
+                retryPolicy, rangeSize, properties.getCounter().getIdPrefetchRatio(), getScheduler()));
+        if (generator.getRangeSize() != rangeSize) {
+            throw new IllegalArgumentException("idPath " + idPath + " 已使用 rangeSize=" + generator.getRangeSize() + " 创建");
+        }
+        return generator;
+    }
+
     public DistributedAtomicValue getAtomicValue(String lockValue) {
         return new DistributedAtomicValue(client, lockValue, retryPolicy);
     }
@@ -151,6 +351,59 @@ public class CuratorZkTemplate {
         return new SimpleDistributedQueue(client,lockKey);
     }
 
+    /**
+     * 批量读写的分布式队列，与 getQueue 返回的 SimpleDistributedQueue 节点格式兼容
+     * offerAll 按 curator.queue.max-batch-ops / max-batch-bytes 拆分为multi事务写入，drainTo 批量认领
+     *
+     * @param queuePath
+     * @return
+     */
+    public CuratorZkBatchQueue getBatchQueue(String queuePath) {
+        return getBatchQueue(queuePath, false);
+    }
+
+    /**
+     * 批量读写的分布式队列
+     * useChildrenIndex 为true时 drainTo 从本地子节点索引读取队头，不再每次getChildren；使用完毕后需调用 close
+     *
+     * @param queuePath
+     * @param useChildrenIndex
+     * @return
+     */
+    public CuratorZkBatchQueue getBatchQueue(String queuePath, boolean useChildrenIndex) {
+        CuratorZkProperties.QueueProperties queue = properties.getQueue();
+        return new CuratorZkBatchQueue(client, queuePath, queue.getMaxBatchOps(), queue.getMaxBatchBytes(), sessionTimeout,
+                useChildrenIndex ? childrenIndexRegistry : null);
+    }
+
+    /**
+     * 子节点索引注册表
+     *
+     * @return
+     */
+    public CuratorZkChildrenIndexRegistry getChildrenIndexRegistry() {
+        return childrenIndexRegistry;
+    }
+
+    /**
+     * 设置锁等待、持有的统计回调，只对之后新建的锁实例生效
+     *
+     * @param lockObserver
+     */
+    public synchronized void setLockObserver(CuratorZkLockObserver lockObserver) {
+        this.lockObserver = null == lockObserver ? CuratorZkLockObserver.NONE : lockObserver;
+    }
+
+    /**
+     * 追加锁等待、持有的统计回调，与已有的回调依次执行，只对之后新建的锁实例生效
+     *
+     * @param lockObserver
+     */
+    public synchronized void addLockObserver(CuratorZkLockObserver lockObserver) {
+        CuratorZkLockObserver current = this.lockObserver;
+        setLockObserver(current == CuratorZkLockObserver.NONE ? lockObserver : current.andThen(lockObserver));
+    }
+
     /**
      * 获取重试策略
      *
@@ -160,6 +413,51 @@ public class CuratorZkTemplate {
         return retryPolicy;
     }
 
+    private InterProcessLock observe(InterProcessLock lock, String type, String lockKey) {
+        CuratorZkLockObserver observer = lockObserver;
+        return observer == CuratorZkLockObserver.NONE ? lock : new CuratorZkObservedLock(lock, type, lockKey, observer);
+    }
+
+    /**
+     * 共享的定时任务线程，守护线程，不阻止JVM退出
+     *
+     * @return
+     */
+    ScheduledExecutorService getScheduler() {
+        if (null == scheduler) {
+            synchronized (this) {
+                if (null == scheduler) {
+                    scheduler = newDaemonScheduler("curator-zk-scheduler");
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * 租约锁续期的看门狗线程，守护线程；续期只提交后台请求不阻塞，其它任务阻塞时也能按时续期
+     *
+     * @return
+     */
+    ScheduledExecutorService getLeaseWatchdog() {
+        if (null == leaseWatchdog) {
+            synchronized (this) {
+                if (null == leaseWatchdog) {
+                    leaseWatchdog = newDaemonScheduler("curator-zk-lease-watchdog");
+                }
+            }
+        }
+        return leaseWatchdog;
+    }
+
+    private static ScheduledExecutorService newDaemonScheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * 获取Curator实例会话
      * @return
@@ -7,14 +7,19 @@ import org.apache.curator.framework.api.transaction.CuratorMultiTransaction;
 import org.apache.curator.framework.api.transaction.CuratorTransaction;
 import org.apache.curator.framework.api.transaction.TransactionOp;
 import org.apache.curator.framework.recipes.cache.*;
+import org.apache.curator.x.async.AsyncCuratorFramework;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.Stat;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @ClassName com.hgq.CuratorZkUtil
@@ -28,15 +33,81 @@ public class CuratorZkUtil {
 
     private static CuratorFramework client;
     /**
-     * 在注册监听器的时候，如果传入此参数，当事件触发时，逻辑由线程池处理
+     * 批量读取与 CuratorZkAsyncUtil 共用同一实现
      */
-    ExecutorService pool = Executors.newFixedThreadPool(2);
+    private static AsyncCuratorFramework asyncClient;
+    /**
+     * 已打开的子节点索引，queryChildPathList 优先从索引读取
+     */
+    private static CuratorZkChildrenIndexRegistry childrenIndexRegistry;
+    /**
+     * 延迟合并写入，未开启时为null
+     */
+    private static CuratorZkWriteBehindBuffer writeBehindBuffer;
+    /**
+     * getNodeData 本地读缓存，未开启时为null
+     */
+    private static CuratorZkReadCache readCache;
+    /**
+     * 共享的 CuratorCache 监听，同一路径只注册一次
+     */
+    private static CuratorZkWatcherRegistry watcherRegistry;
+    /**
+     * 未传入分发线程池时自己创建的线程池，close 时关闭；传入的线程池由创建方关闭
+     */
+    private static CuratorZkEventDispatcher ownedDispatcher;
 
     public CuratorZkUtil() {
     }
 
     public CuratorZkUtil(CuratorFramework curatorFramework) {
+        this(curatorFramework, new CuratorZkChildrenIndexRegistry(curatorFramework));
+    }
+
+    public CuratorZkUtil(CuratorFramework curatorFramework, CuratorZkChildrenIndexRegistry indexRegistry) {
+        this(curatorFramework, indexRegistry, null);
+    }
+
+    public CuratorZkUtil(CuratorFramework curatorFramework, CuratorZkChildrenIndexRegistry indexRegistry, CuratorZkWriteBehindBuffer buffer) {
+        this(curatorFramework, indexRegistry, buffer, null);
+    }
+
+    public CuratorZkUtil(CuratorFramework curatorFramework, CuratorZkChildrenIndexRegistry indexRegistry, CuratorZkWriteBehindBuffer buffer,
+                         CuratorZkReadCache cache) {
+        this(curatorFramework, indexRegistry, buffer, cache,
+                new CuratorZkEventDispatcher(2, 10000, CuratorZkEventDispatcher.OverflowPolicy.BLOCK, false), true);
+    }
+
+    /**
+     * @param dispatcher 监听事件分发线程池，注册的监听器在其中按节点路径有序执行
+     */
+    public CuratorZkUtil(CuratorFramework curatorFramework, CuratorZkChildrenIndexRegistry indexRegistry, CuratorZkWriteBehindBuffer buffer,
+                         CuratorZkReadCache cache, CuratorZkEventDispatcher dispatcher) {
+        this(curatorFramework, indexRegistry, buffer, cache, dispatcher, false);
+    }
+
+    private CuratorZkUtil(CuratorFramework curatorFramework, CuratorZkChildrenIndexRegistry indexRegistry, CuratorZkWriteBehindBuffer buffer,
+                          CuratorZkReadCache cache, CuratorZkEventDispatcher dispatcher, boolean ownsDispatcher) {
         client = curatorFramework;
+        asyncClient = AsyncCuratorFramework.wrap(curatorFramework);
+        childrenIndexRegistry = indexRegistry;
+        writeBehindBuffer = buffer;
+        readCache = cache;
+        watcherRegistry = new CuratorZkWatcherRegistry(curatorFramework, dispatcher);
+        ownedDispatcher = ownsDispatcher ? dispatcher : null;
+    }
+
+    /**
+     * 关闭注册的监听缓存，以及未传入分发线程池时自己创建的线程池
+     */
+    public void close() {
+        if (null != watcherRegistry) {
+            watcherRegistry.close();
+        }
+        if (null != ownedDispatcher) {
+            ownedDispatcher.close();
+            ownedDispatcher = null;
+        }
     }
 
     public CuratorFramework getClient(){
@@ -76,6 +147,25 @@ public class CuratorZkUtil {
         return "";
     }
 
+    /**
+     * 创建永久节点并按 codec 编码设置数据（递归）
+     *
+     * @param path
+     * @param value
+     * @param codec 编解码，isCompressed 为true时压缩存储
+     * @return
+     */
+    public static <T> String createNodeData(String path, T value, CuratorZkCodec<T> codec) {
+        try {
+            byte[] bytes = codec.encode(value);
+            return codec.isCompressed() ? client.create().compressed().creatingParentsIfNeeded().forPath(path, bytes)
+                    : client.create().creatingParentsIfNeeded().forPath(path, bytes);
+        } catch (Exception e) {
+            log.error("创建永久节点异常,path={}", path, e);
+        }
+        return "";
+    }
+
     /**
      * 创建永久节点并设置数据（递归）
      * withProtection() : 在创建节点的时候设置序号 相当于给一个唯一id 这样重试的时候看如果节点创建成功就不会重复创建了
@@ -137,11 +227,16 @@ public class CuratorZkUtil {
 
     /**
      * 查询节点下的所有子节点
+     * 该节点已通过 openChildrenIndex 打开索引时直接返回本地的有序列表
      *
      * @param path
      * @return
      */
     public static List<String> queryChildPathList(String path) {
+        CuratorZkChildrenIndex index = null == childrenIndexRegistry ? null : childrenIndexRegistry.find(path);
+        if (null != index) {
+            return index.getChildren();
+        }
         List<String> childPathList = null;
         try {
             childPathList = client.getChildren().forPath(path);
@@ -151,6 +246,25 @@ public class CuratorZkUtil {
         return childPathList;
     }
 
+    /**
+     * 打开节点的子节点索引，之后 queryChildPathList 从本地读取；与 closeChildrenIndex 成对调用
+     *
+     * @param path
+     * @return
+     */
+    public static CuratorZkChildrenIndex openChildrenIndex(String path) {
+        return childrenIndexRegistry.retain(path);
+    }
+
+    /**
+     * 关闭节点的子节点索引
+     *
+     * @param path
+     */
+    public static void closeChildrenIndex(String path) {
+        childrenIndexRegistry.release(path);
+    }
+
     /**
      * 获取节点版本信息
      *
@@ -168,21 +282,74 @@ public class CuratorZkUtil {
     }
 
     /**
-     * 获取节点数据
+     * 获取节点数据（开启 read-cache 且路径在缓存前缀内时从本地缓存读取）
      *
      * @param path
      * @return
      */
     public static String getNodeData(String path) {
+        if (null != readCache && readCache.covers(path)) {
+            return readCache.getNodeData(path);
+        }
         String result = "";
         try {
-            result = new String(client.getData().forPath(path));
+            result = new String(client.getData().forPath(path), StandardCharsets.UTF_8);
         } catch (Exception e) {
             log.error("查询节点的数据出现异常,path={}", path, e);
         }
         return result;
     }
 
+    /**
+     * 获取节点数据并按 codec 解码，例如 CuratorZkCodecs.BYTES 直接返回原始字节
+     *
+     * @param path
+     * @param codec 编解码，isCompressed 为true时读取后解压
+     * @return 读取失败时返回null
+     */
+    public static <T> T getNodeData(String path, CuratorZkCodec<T> codec) {
+        try {
+            byte[] bytes = codec.isCompressed() ? client.getData().decompressed().forPath(path) : client.getData().forPath(path);
+            return codec.decode(bytes);
+        } catch (Exception e) {
+            log.error("查询节点的数据出现异常,path={}", path, e);
+        }
+        return null;
+    }
+
+    /**
+     * 批量获取节点数据
+     * 所有getData请求在同一会话上并发发出（流水线），总耗时约为一次往返；结果按传入顺序返回，单个节点失败不影响其它节点
+     *
+     * @param paths
+     * @return path -> 读取结果
+     */
+    public static Map<String, CuratorZkNodeData> getNodeDataBatch(List<String> paths) {
+        return getNodeDataBatch(paths, client.getZookeeperClient().getConnectionTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 批量获取节点数据
+     *
+     * @param paths
+     * @param timeout 等待所有结果的最长时间，超时未返回的节点以 OPERATIONTIMEOUT 表示
+     * @param unit
+     * @return path -> 读取结果
+     */
+    public static Map<String, CuratorZkNodeData> getNodeDataBatch(List<String> paths, long timeout, TimeUnit unit) {
+        List<CompletableFuture<CuratorZkNodeData>> futures = CuratorZkAsyncUtil.readBatch(asyncClient, paths);
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(timeout, unit);
+        } catch (TimeoutException e) {
+            log.error("批量查询节点的数据超时,size={}", paths.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("批量查询节点的数据出现异常,size={}", paths.size(), e);
+        }
+        return CuratorZkAsyncUtil.collectBatch(paths, futures);
+    }
+
     /**
      * 更新节点数据
      *
@@ -199,6 +366,44 @@ public class CuratorZkUtil {
         return null;
     }
 
+    /**
+     * 按 codec 编码更新节点数据
+     *
+     * @param path
+     * @param value
+     * @param codec 编解码，isCompressed 为true时压缩存储
+     * @return
+     */
+    public static <T> Stat setNodeData(String path, T value, CuratorZkCodec<T> codec) {
+        try {
+            byte[] bytes = codec.encode(value);
+            return codec.isCompressed() ? client.setData().compressed().forPath(path, bytes) : client.setData().forPath(path, bytes);
+        } catch (Exception e) {
+            log.error("更新节点数据出现异常，path={}", path, e);
+        }
+        return null;
+    }
+
+    /**
+     * 延迟合并更新节点数据（没有节点则创建），适用于高频覆盖写的心跳、进度等数据
+     * 同一路径只保留最新值，由后台批量写入；未开启 write-behind 时直接同步写入
+     *
+     * @param path
+     * @param data
+     */
+    public static void setNodeDataWriteBehind(String path, String data) {
+        if (null == writeBehindBuffer) {
+            orSetNodeData(path, data);
+            return;
+        }
+        try {
+            writeBehindBuffer.setNodeData(path, data);
+        } catch (IllegalStateException e) {
+            // 容器关闭过程中 buffer 已关闭，直接同步写入
+            orSetNodeData(path, data);
+        }
+    }
+
     /**
      * 带版本号的节点数据更新
      *
@@ -233,6 +438,29 @@ public class CuratorZkUtil {
         return true;
     }
 
+    /**
+     * 按 codec 编码更新节点数据——没有节点则创建
+     *
+     * @param path
+     * @param value
+     * @param codec 编解码，isCompressed 为true时压缩存储
+     * @return
+     */
+    public static <T> boolean orSetNodeData(String path, T value, CuratorZkCodec<T> codec) {
+        try {
+            byte[] bytes = codec.encode(value);
+            if (codec.isCompressed()) {
+                client.create().orSetData().compressed().forPath(path, bytes);
+            } else {
+                client.create().orSetData().forPath(path, bytes);
+            }
+        } catch (Exception e) {
+            log.error("更新节点数据(没有节点则创建)出现异常，path={}", path, e);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * 带版本号更新节点数据——没有节点则创建
      *
@@ -326,7 +554,8 @@ public class CuratorZkUtil {
             if (null == stat) {
                 return 2;
             }
-            if (stat.getEphemeralOwner() > 0) {
+            //临时节点的 ephemeralOwner 为创建者的会话ID，持久化节点为0
+            if (stat.getEphemeralOwner() == 0) {
                 return 1;
             }
             return 0;
@@ -348,7 +577,7 @@ public class CuratorZkUtil {
     }
 
     /**
-     * 开启多个事务
+     * 开启多个事务（单个multi事务受 jute.maxbuffer 限制，大批量写入请使用 CuratorZkBulkWriter）
      *
      * @return
      */
@@ -454,6 +683,7 @@ public class CuratorZkUtil {
 
     /**
      * 注册节点数据变化事件
+     * 同一路径多次注册共享一个 CuratorCache，不再使用时调用 unregisterWatcherNodeChanged 注销
      *
      * @param path              节点路径
      * @param curatorCacheListener 监听事件
@@ -464,10 +694,7 @@ public class CuratorZkUtil {
             /**
              * 监听数据节点的变化情况
              */
-            CuratorCache curatorCache = CuratorCache.build(client, path, CuratorCache.Options.SINGLE_NODE_CACHE);
-            curatorCache.listenable().addListener(curatorCacheListener, pool);
-            curatorCache.start();
-
+            watcherRegistry.register(path, false, curatorCacheListener);
         } catch (Exception e) {
             log.error("注册节点数据变化事件出现异常，path={}", path, e);
             return false;
@@ -477,18 +704,42 @@ public class CuratorZkUtil {
     }
 
     /**
-     * 注册子节点数据变化事件
+     * 注销节点数据变化事件，最后一个监听注销时关闭 CuratorCache
+     *
+     * @param path              节点路径
+     * @param curatorCacheListener 注册时的监听事件
+     * @return 是否找到对应的注册
+     */
+    public boolean unregisterWatcherNodeChanged(String path, CuratorCacheListener curatorCacheListener) {
+        return watcherRegistry.unregister(path, false, curatorCacheListener);
+    }
+
+    /**
+     * 注册子节点数据变化事件，监听整棵子树（节点自身及所有子孙节点的创建、更新、删除）
+     * 同一路径多次注册共享一个缓存，不再使用时调用 unregisterWatcherAllNodeChanged 注销
      *
      * @param path              节点路径
      * @param curatorCacheListener 监听事件
      * @return 注册结果
      */
     public boolean registerWatcherAllNodeChanged(String path, CuratorCacheListener curatorCacheListener) {
+        return registerWatcherAllNodeChanged(path, CuratorZkSubtreeCache.Options.defaults(), curatorCacheListener);
+    }
+
+    /**
+     * 注册子节点数据变化事件，按 options 选择加载范围
+     * 例：只监听 /services 下两层的成员变化且不下载数据
+     * registerWatcherAllNodeChanged("/services", CuratorZkSubtreeCache.Options.defaults().withMaxDepth(2).statOnly(), listener)
+     *
+     * @param path              节点路径
+     * @param options           加载范围（深度、路径选择、只加载节点状态）
+     * @param curatorCacheListener 监听事件
+     * @return 注册结果
+     */
+    public boolean registerWatcherAllNodeChanged(String path, CuratorZkSubtreeCache.Options options, CuratorCacheListener curatorCacheListener) {
         try {
-            CuratorCache curatorCache = CuratorCache.build(client, path, CuratorCache.Options.SINGLE_NODE_CACHE);
             //注册监听
-            curatorCache.listenable().addListener(curatorCacheListener, pool);
-            curatorCache.start();
+            watcherRegistry.register(path, options, curatorCacheListener);
         } catch (Exception e) {
             log.error("注册子节点数据变化事件出现异常，path={}", path, e);
             return false;
@@ -496,5 +747,53 @@ public class CuratorZkUtil {
         return true;
     }
 
+    /**
+     * 注销子节点数据变化事件，最后一个监听注销时关闭缓存
+     *
+     * @param path              节点路径
+     * @param curatorCacheListener 注册时的监听事件
+     * @return 是否找到对应的注册
+     */
+    public boolean unregisterWatcherAllNodeChanged(String path, CuratorCacheListener curatorCacheListener) {
+        return watcherRegistry.unregister(path, true, curatorCacheListener);
+    }
+
+    /**
+     * 注销按 options 注册的子节点数据变化事件，按路径和监听事件查找，options 不要求与注册时是同一个实例
+     *
+     * @param path              节点路径
+     * @param options           注册时的加载范围
+     * @param curatorCacheListener 注册时的监听事件
+     * @return 是否找到对应的注册
+     */
+    public boolean unregisterWatcherAllNodeChanged(String path, CuratorZkSubtreeCache.Options options, CuratorCacheListener curatorCacheListener) {
+        return watcherRegistry.unregister(path, options, curatorCacheListener);
+    }
+
+    /**
+     * 打开子树配置的快照视图，变化合并 100ms 后生成新快照；不再使用时调用 close 注销监听
+     *
+     * @param path  子树根节点路径
+     * @param codec 节点数据解码
+     * @return 已启动的视图
+     */
+    public <T> CuratorZkConfigView<T> openConfigView(String path, CuratorZkCodec<T> codec) {
+        return openConfigView(path, codec, CuratorZkConfigView.DEFAULT_DEBOUNCE_MS);
+    }
+
+    /**
+     * 打开子树配置的快照视图
+     *
+     * @param path       子树根节点路径
+     * @param codec      节点数据解码
+     * @param debounceMs 变化合并窗口
+     * @return 已启动的视图
+     */
+    public <T> CuratorZkConfigView<T> openConfigView(String path, CuratorZkCodec<T> codec, long debounceMs) {
+        CuratorZkConfigView<T> view = new CuratorZkConfigView<>(this, path, codec, debounceMs);
+        view.start();
+        return view;
+    }
+
 
 }
@@ -0,0 +1,582 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.utils.ZKPaths;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @ClassName com.hgq.CuratorZkWatcherRegistry
+ * @Description: 共享的 CuratorCache 监听注册表
+ * 同一路径（同一监听方式）只创建一个缓存，事件分发给所有注册的监听器：单节点监听使用 CuratorCache，
+ * 子树监听使用 CuratorZkSubtreeCache（可按深度、路径选择加载范围，或只加载节点状态）；
+ * 已有完整子树监听覆盖的路径（祖先节点或自身）直接复用该缓存，按路径过滤事件；
+ * 按引用计数管理，最后一个监听器注销时关闭缓存；事件通过 CuratorZkEventDispatcher 按节点路径有序分发
+ * 加入已启动缓存的监听器会先收到当前已有节点的 NODE_CREATED 事件和 initialized，与单独创建缓存时的事件一致；
+ * 缓存先更新数据再回调监听，补发时已包含的变化按 mzxid 去重，不会重复回调；
+ * 分发事件时不持有注册表和缓存的锁，监听器可以在回调中注册、注销监听；
+ * 分发容量已满导致事件被丢弃时，该节点之后的事件不再单独分发，而是按缓存中的最新数据补发一次与监听器已知状态的差异，
+ * 监听器最终与缓存一致（中间的变化可能被合并，补发与随后的事件之间可能重复回调一次最新数据）
+ * @Author: hgq
+ * @Date: 2026-10-18 19:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkWatcherRegistry implements Closeable {
+
+    /**
+     * 补偿时表示监听器认为节点不存在
+     */
+    private static final ChildData ABSENT = new ChildData(ZKPaths.PATH_SEPARATOR, null, null);
+
+    private final CuratorFramework client;
+    private final CuratorZkEventDispatcher dispatcher;
+    /**
+     * 只监听单个节点的缓存
+     */
+    private final Map<String, Entry> singles = new HashMap<>();
+    /**
+     * 完整加载整棵子树的缓存，可覆盖子路径的注册
+     */
+    private final Map<String, Entry> trees = new HashMap<>();
+    /**
+     * 按 Options 选择加载范围的子树缓存，只与相同 Options 的注册共享
+     */
+    private final Map<SelectiveKey, Entry> selectives = new HashMap<>();
+
+    public CuratorZkWatcherRegistry(CuratorFramework client, CuratorZkEventDispatcher dispatcher) {
+        this.client = client;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * 注册监听
+     *
+     * @param path      节点路径
+     * @param recursive 是否监听整棵子树
+     * @param listener  监听器
+     */
+    public void register(String path, boolean recursive, CuratorCacheListener listener) {
+        if (recursive) {
+            register(path, CuratorZkSubtreeCache.Options.defaults(), listener);
+            return;
+        }
+        Runnable replay;
+        synchronized (this) {
+            Entry entry = findCovering(path);
+            if (null == entry) {
+                entry = singles.get(path);
+                if (null == entry) {
+                    entry = new Entry(CuratorCache.build(client, path, CuratorCache.Options.SINGLE_NODE_CACHE));
+                    singles.put(path, entry);
+                }
+            }
+            replay = entry.subscribe(new Subscriber(path, false, listener));
+        }
+        // 补发可能因分发容量已满而阻塞，不持有注册表的锁
+        replay.run();
+    }
+
+    /**
+     * 注册子树监听，按 options 选择加载范围
+     *
+     * @param path     子树根节点路径
+     * @param options  加载范围
+     * @param listener 监听器
+     */
+    public void register(String path, CuratorZkSubtreeCache.Options options, CuratorCacheListener listener) {
+        Runnable replay;
+        synchronized (this) {
+            Entry entry;
+            if (options.isDefault()) {
+                entry = findCovering(path);
+                if (null == entry) {
+                    entry = new Entry(new CuratorZkSubtreeCache(client, path, options));
+                    trees.put(path, entry);
+                }
+            } else {
+                entry = selectives.computeIfAbsent(new SelectiveKey(path, options), key -> new Entry(new CuratorZkSubtreeCache(client, path, options)));
+            }
+            replay = entry.subscribe(new Subscriber(path, true, listener));
+        }
+        replay.run();
+    }
+
+    /**
+     * 注销监听，最后一个监听器注销时关闭缓存；子树监听同时查找按 Options 注册的监听
+     *
+     * @param path      注册时的节点路径
+     * @param recursive 注册时的监听方式
+     * @param listener  注册时的监听器
+     * @return 是否找到对应的注册
+     */
+    public synchronized boolean unregister(String path, boolean recursive, CuratorCacheListener listener) {
+        for (String candidate = path; ; candidate = ZKPaths.getPathAndNode(candidate).getPath()) {
+            if (unsubscribe(singles, candidate, path, recursive, listener) || unsubscribe(trees, candidate, path, recursive, listener)) {
+                return true;
+            }
+            if (ZKPaths.PATH_SEPARATOR.equals(candidate)) {
+                break;
+            }
+        }
+        if (recursive) {
+            for (SelectiveKey key : new ArrayList<>(selectives.keySet())) {
+                if (key.path.equals(path) && unsubscribe(selectives, key, path, true, listener)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 注销按 options 注册的子树监听；按路径和监听器查找，options 只用于优先匹配，
+     * 不要求与注册时是同一个实例（如重新调用 withPathFilter 创建的 Options 也能注销）
+     *
+     * @param path     注册时的节点路径
+     * @param options  注册时的加载范围
+     * @param listener 注册时的监听器
+     * @return 是否找到对应的注册
+     */
+    public synchronized boolean unregister(String path, CuratorZkSubtreeCache.Options options, CuratorCacheListener listener) {
+        if (!options.isDefault() && unsubscribe(selectives, new SelectiveKey(path, options), path, true, listener)) {
+            return true;
+        }
+        return unregister(path, true, listener);
+    }
+
+    /**
+     * 当前打开的缓存数量
+     *
+     * @return
+     */
+    public synchronized int getCacheCount() {
+        return singles.size() + trees.size() + selectives.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        Stream.of(singles, trees, selectives).flatMap(entries -> entries.values().stream()).forEach(Entry::close);
+        singles.clear();
+        trees.clear();
+        selectives.clear();
+    }
+
+    /**
+     * 查找覆盖指定路径的完整子树缓存（自身或祖先节点）
+     *
+     * @param path
+     * @return
+     */
+    private Entry findCovering(String path) {
+        for (String candidate = path; ; candidate = ZKPaths.getPathAndNode(candidate).getPath()) {
+            Entry entry = trees.get(candidate);
+            if (null != entry) {
+                return entry;
+            }
+            if (ZKPaths.PATH_SEPARATOR.equals(candidate)) {
+                return null;
+            }
+        }
+    }
+
+    private <K> boolean unsubscribe(Map<K, Entry> entries, K key, String path, boolean recursive, CuratorCacheListener listener) {
+        Entry entry = entries.get(key);
+        if (null == entry || !entry.unsubscribe(path, recursive, listener)) {
+            return false;
+        }
+        if (entry.isEmpty()) {
+            entries.remove(key);
+            entry.close();
+        }
+        return true;
+    }
+
+    private static boolean matches(String path, boolean recursive, String eventPath) {
+        if (eventPath.equals(path)) {
+            return true;
+        }
+        return recursive && eventPath.startsWith(ZKPaths.PATH_SEPARATOR.equals(path) ? path : path + ZKPaths.PATH_SEPARATOR);
+    }
+
+    private static final class SelectiveKey {
+        private final String path;
+        private final CuratorZkSubtreeCache.Options options;
+
+        private SelectiveKey(String path, CuratorZkSubtreeCache.Options options) {
+            this.path = path;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SelectiveKey)) {
+                return false;
+            }
+            SelectiveKey other = (SelectiveKey) o;
+            return path.equals(other.path) && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, options);
+        }
+    }
+
+    /**
+     * 监听器的增删在 Entry 的锁内完成，事件分发不持有任何锁，监听器可以在回调中注册、注销监听
+     */
+    private final class Entry implements CuratorCacheListener {
+        private final CuratorCache cache;
+        private final CuratorZkSubtreeCache subtreeCache;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private boolean started;
+        private boolean initialized;
+
+        private Entry(CuratorCache cache) {
+            this.cache = cache;
+            this.subtreeCache = null;
+            cache.listenable().addListener(this);
+        }
+
+        private Entry(CuratorZkSubtreeCache subtreeCache) {
+            this.cache = null;
+            this.subtreeCache = subtreeCache;
+            subtreeCache.listenable().addListener(this);
+        }
+
+        /**
+         * 加入监听器
+         *
+         * @param subscriber
+         * @return 补发已有节点的任务，需在释放注册表的锁后执行
+         */
+        private synchronized Runnable subscribe(Subscriber subscriber) {
+            subscriber.entry = this;
+            if (!started) {
+                subscribers.add(subscriber);
+                started = true;
+                if (null != cache) {
+                    cache.start();
+                } else {
+                    subtreeCache.start();
+                }
+                return () -> {
+                };
+            }
+            // 补发当前已有节点，事件顺序与新建缓存一致；未初始化完成时补发已加载的部分，initialized 随缓存一起回调
+            // 补发完成前缓存回调的事件先暂存，补发后按顺序分发
+            subscriber.beginReplay();
+            subscribers.add(subscriber);
+            Stream<ChildData> current = null != cache ? cache.stream() : subtreeCache.stream();
+            List<ChildData> replay = current.filter(data -> matches(subscriber.path, subscriber.recursive, data.getPath()))
+                    .collect(Collectors.toList());
+            boolean replayInitialized = initialized;
+            return () -> subscriber.replay(replay, replayInitialized);
+        }
+
+        private synchronized boolean unsubscribe(String path, boolean recursive, CuratorCacheListener listener) {
+            for (int i = 0; i < subscribers.size(); i++) {
+                Subscriber subscriber = subscribers.get(i);
+                if (subscriber.path.equals(path) && subscriber.recursive == recursive && subscriber.listener == listener) {
+                    subscribers.remove(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private synchronized boolean isEmpty() {
+            return subscribers.isEmpty();
+        }
+
+        private void close() {
+            if (null != cache) {
+                cache.close();
+            } else {
+                subtreeCache.close();
+            }
+        }
+
+        private Optional<ChildData> get(String path) {
+            return null != cache ? cache.get(path) : subtreeCache.get(path);
+        }
+
+        @Override
+        public void event(Type type, ChildData oldData, ChildData data) {
+            String eventPath = null != data ? data.getPath() : oldData.getPath();
+            for (Subscriber subscriber : subscribers) {
+                if (matches(subscriber.path, subscriber.recursive, eventPath)) {
+                    subscriber.onEvent(type, oldData, data);
+                }
+            }
+        }
+
+        @Override
+        public void initialized() {
+            Subscriber[] current;
+            synchronized (this) {
+                initialized = true;
+                // 之后加入的监听器在补发时回调 initialized
+                current = subscribers.toArray(new Subscriber[0]);
+            }
+            for (Subscriber subscriber : current) {
+                subscriber.onInitialized();
+            }
+        }
+    }
+
+    private final class Subscriber {
+        private final String path;
+        private final boolean recursive;
+        private final CuratorCacheListener listener;
+        private Entry entry;
+        /**
+         * 事件被丢弃的节点 -> 监听器最后收到的数据（ABSENT 表示监听器认为节点不存在），补偿任务执行前该节点的事件不再分发
+         */
+        private final Map<String, ChildData> stale = new ConcurrentHashMap<>();
+        /**
+         * 已提交未执行完的事件数；事件按节点路径分发，initialized 需等之前的事件全部执行完再回调
+         */
+        private final AtomicInteger inflight = new AtomicInteger();
+        private final AtomicBoolean initializedPending = new AtomicBoolean();
+        /**
+         * 补发过的节点；缓存先更新数据再回调监听，补发时已包含的变化之后仍会回调，按 mzxid 去重，为null时不再去重
+         * 只在补发线程（补发期间）或缓存事件线程（补发完成后）访问，两者通过 pending 的锁交接
+         */
+        private Map<String, ChildData> replayed;
+        private long replayedMaxZxid;
+        /**
+         * 补发期间缓存回调的事件，按顺序暂存；为null时直接分发
+         */
+        private List<PendingEvent> pending;
+
+        private Subscriber(String path, boolean recursive, CuratorCacheListener listener) {
+            this.path = path;
+            this.recursive = recursive;
+            this.listener = listener;
+        }
+
+        private synchronized void beginReplay() {
+            pending = new ArrayList<>();
+        }
+
+        /**
+         * 加入已启动的缓存时补发已有节点，再按顺序分发补发期间暂存的事件
+         *
+         * @param current     加入时缓存中已有的节点
+         * @param initialized 加入时缓存是否已初始化完成
+         */
+        private void replay(List<ChildData> current, boolean initialized) {
+            replayed = new HashMap<>(current.size() * 2);
+            for (ChildData data : current) {
+                replayed.put(data.getPath(), data);
+                replayedMaxZxid = Math.max(replayedMaxZxid, data.getStat().getMzxid());
+                dispatch(CuratorCacheListener.Type.NODE_CREATED, null, data);
+            }
+            if (initialized) {
+                dispatchInitialized();
+            }
+            while (true) {
+                List<PendingEvent> events;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        pending = null;
+                        return;
+                    }
+                    events = pending;
+                    pending = new ArrayList<>();
+                }
+                for (PendingEvent event : events) {
+                    if (null == event.type) {
+                        initialized();
+                    } else {
+                        event(event.type, event.oldData, event.data);
+                    }
+                }
+            }
+        }
+
+        private void onEvent(CuratorCacheListener.Type type, ChildData oldData, ChildData data) {
+            synchronized (this) {
+                if (null != pending) {
+                    pending.add(new PendingEvent(type, oldData, data));
+                    return;
+                }
+            }
+            event(type, oldData, data);
+        }
+
+        private void onInitialized() {
+            synchronized (this) {
+                if (null != pending) {
+                    pending.add(new PendingEvent(null, null, null));
+                    return;
+                }
+            }
+            initialized();
+        }
+
+        private void initialized() {
+            endReplay();
+            dispatchInitialized();
+        }
+
+        /**
+         * 缓存初始化完成，之前加载的节点都已回调，不再需要去重
+         */
+        private void endReplay() {
+            replayed = null;
+        }
+
+        /**
+         * 分发缓存回调的事件，跳过补发时已经包含的变化
+         */
+        private void event(CuratorCacheListener.Type type, ChildData oldData, ChildData data) {
+            if (null == replayed) {
+                dispatch(type, oldData, data);
+                return;
+            }
+            ChildData seen = replayed.remove(null != data ? data.getPath() : oldData.getPath());
+            if (null != data && data.getStat().getMzxid() > replayedMaxZxid) {
+                // 已回调到补发之后的变化
+                endReplay();
+            }
+            if (CuratorCacheListener.Type.NODE_DELETED == type) {
+                // 补发前已删除的节点，监听器没有收到过创建事件
+                if (null != seen) {
+                    dispatch(type, oldData, data);
+                }
+                return;
+            }
+            if (null == seen) {
+                dispatch(type, oldData, data);
+            } else if (data.getStat().getMzxid() > seen.getStat().getMzxid()) {
+                dispatch(CuratorCacheListener.Type.NODE_CHANGED, seen, data);
+            }
+        }
+
+        private void dispatch(CuratorCacheListener.Type type, ChildData oldData, ChildData data) {
+            String eventPath = null != data ? data.getPath() : oldData.getPath();
+            if (stale.containsKey(eventPath)) {
+                // 补偿任务会按缓存中的最新数据回调
+                return;
+            }
+            inflight.incrementAndGet();
+            boolean submitted = dispatcher.execute(eventPath, () -> {
+                try {
+                    listener.event(type, oldData, data);
+                } catch (Exception e) {
+                    log.error("监听器处理节点事件出现异常,path={},type={}", path, type, e);
+                } finally {
+                    completed(true);
+                }
+            });
+            if (!submitted) {
+                markStale(eventPath, CuratorCacheListener.Type.NODE_CREATED == type ? null : oldData);
+                completed(false);
+            }
+        }
+
+        /**
+         * 事件被丢弃后提交不会被丢弃的补偿任务，同一节点只提交一次
+         *
+         * @param eventPath
+         * @param lastSeen  监听器最后收到的数据，为null表示监听器认为节点不存在
+         */
+        private void markStale(String eventPath, ChildData lastSeen) {
+            if (null != stale.putIfAbsent(eventPath, null == lastSeen ? ABSENT : lastSeen)) {
+                return;
+            }
+            inflight.incrementAndGet();
+            dispatcher.executeUnbounded(eventPath, () -> {
+                try {
+                    resync(eventPath);
+                } catch (Exception e) {
+                    log.error("监听器处理补发事件出现异常,path={},eventPath={}", path, eventPath, e);
+                } finally {
+                    completed(true);
+                }
+            });
+        }
+
+        /**
+         * 比较监听器最后收到的数据和缓存中的最新数据，回调一次差异
+         *
+         * @param eventPath
+         */
+        private void resync(String eventPath) {
+            ChildData lastSeen = stale.remove(eventPath);
+            ChildData current = entry.get(eventPath).orElse(null);
+            if (ABSENT == lastSeen) {
+                if (null != current) {
+                    listener.event(CuratorCacheListener.Type.NODE_CREATED, null, current);
+                }
+            } else if (null == current) {
+                listener.event(CuratorCacheListener.Type.NODE_DELETED, lastSeen, null);
+            } else if (current.getStat().getMzxid() != lastSeen.getStat().getMzxid()) {
+                listener.event(CuratorCacheListener.Type.NODE_CHANGED, lastSeen, current);
+            }
+        }
+
+        private void dispatchInitialized() {
+            initializedPending.set(true);
+            if (0 == inflight.get() && initializedPending.compareAndSet(true, false)) {
+                dispatcher.executeUnbounded(path, this::fireInitialized);
+            }
+        }
+
+        /**
+         * @param inWorker 是否在分发线程中执行完，是则直接在当前线程回调 initialized，不再占用分发容量
+         */
+        private void completed(boolean inWorker) {
+            if (0 != inflight.decrementAndGet() || !initializedPending.compareAndSet(true, false)) {
+                return;
+            }
+            if (inWorker) {
+                fireInitialized();
+            } else {
+                dispatcher.executeUnbounded(path, this::fireInitialized);
+            }
+        }
+
+        private void fireInitialized() {
+            try {
+                listener.initialized();
+            } catch (Exception e) {
+                log.error("监听器处理初始化事件出现异常,path={}", path, e);
+            }
+        }
+    }
+
+    /**
+     * 补发期间暂存的缓存事件，type 为null时表示 initialized
+     */
+    private static final class PendingEvent {
+        private final CuratorCacheListener.Type type;
+        private final ChildData oldData;
+        private final ChildData data;
+
+        private PendingEvent(CuratorCacheListener.Type type, ChildData oldData, ChildData data) {
+            this.type = type;
+            this.oldData = oldData;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.hgq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.zookeeper.KeeperException;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName com.hgq.CuratorZkWriteBehindBuffer
+ * @Description: 节点数据延迟合并写入（write-behind）
+ * 适用于心跳、进度等“最后写入者胜出”的数据：每个路径只保留最新值，按固定间隔或待写数量达到阈值时
+ * 通过 CuratorZkBulkWriter 批量提交；关闭时把剩余数据全部写入
+ * 节点不存在时自动创建（父节点需已存在），写入失败的值在没有更新值覆盖时下次重试
+ * @Author: hgq
+ * @Date: 2026-10-18 18:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class CuratorZkWriteBehindBuffer implements Closeable {
+
+    private final CuratorZkBulkWriter bulkWriter;
+    private final int maxPending;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * 待写入的最新值
+     */
+    private final ConcurrentHashMap<String, byte[]> pending = new ConcurrentHashMap<>();
+    /**
+     * 已确认存在的节点，直接 setData，不再检查是否存在
+     */
+    private final Set<String> existing = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private volatile boolean closed;
+
+    public CuratorZkWriteBehindBuffer(CuratorZkBulkWriter bulkWriter, long flushIntervalMs, int maxPending) {
+        this.bulkWriter = bulkWriter;
+        this.maxPending = maxPending;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "curator-zk-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 更新节点数据（延迟写入）
+     *
+     * @param path
+     * @param data
+     */
+    public void setNodeData(String path, String data) {
+        setNodeData(path, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void setNodeData(String path, byte[] data) {
+        if (closed) {
+            throw new IllegalStateException("write-behind buffer is closed");
+        }
+        submitted.incrementAndGet();
+        pending.put(path, data);
+        if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * 立即写入所有待写数据
+     *
+     * @return 成功写入的节点数
+     */
+    public synchronized int flush() {
+        flushRequested.set(false);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<CuratorZkBulkWriter.Op> ops = new ArrayList<>(pending.size());
+        for (Map.Entry<String, byte[]> entry : pending.entrySet()) {
+            String path = entry.getKey();
+            byte[] data = pending.remove(path);
+            if (null == data) {
+                continue;
+            }
+            ops.add(existing.contains(path) ? CuratorZkBulkWriter.Op.setData(path, data) : CuratorZkBulkWriter.Op.upsert(path, data));
+        }
+        int success = write(ops, true);
+        written.addAndGet(success);
+        return success;
+    }
+
+    /**
+     * 批量写入并处理结果
+     *
+     * @param ops
+     * @param retryRolledBack 同一事务中其它操作失败导致回滚的操作是否立即重写一次
+     * @return 成功写入的节点数
+     */
+    private int write(List<CuratorZkBulkWriter.Op> ops, boolean retryRolledBack) {
+        int success = 0;
+        List<CuratorZkBulkWriter.Op> rolledBack = new ArrayList<>();
+        for (CuratorZkBulkWriter.Result result : bulkWriter.write(ops)) {
+            CuratorZkBulkWriter.Op op = result.getOp();
+            if (result.isSuccess()) {
+                existing.add(op.getPath());
+                success++;
+                continue;
+            }
+            existing.remove(op.getPath());
+            if (retryRolledBack && result.getCode() == KeeperException.Code.RUNTIMEINCONSISTENCY) {
+                rolledBack.add(CuratorZkBulkWriter.Op.upsert(op.getPath(), op.getData()));
+            } else if (op.getType() == CuratorZkBulkWriter.Type.UPSERT && result.getCode() == KeeperException.Code.NONODE) {
+                // 父节点不存在，重试也不会成功
+                log.error("延迟写入节点数据失败，父节点不存在,path={}", op.getPath());
+            } else {
+                // 期间有新值时以新值为准，否则放回下次重试
+                pending.putIfAbsent(op.getPath(), op.getData());
+                log.warn("延迟写入节点数据失败，等待下次重试,path={},code={}", op.getPath(), result.getCode());
+            }
+        }
+        if (!rolledBack.isEmpty()) {
+            success += write(rolledBack, false);
+        }
+        return success;
+    }
+
+    /**
+     * 待写入的节点数
+     *
+     * @return
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 调用 setNodeData 的总次数
+     *
+     * @return
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * 实际写入ZK的次数，与 getSubmittedCount 的比值即合并效果
+     *
+     * @return
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        if (!pending.isEmpty()) {
+            log.error("关闭时仍有未写入的节点数据,count={}", pending.size());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("延迟写入节点数据出现异常", e);
+        }
+    }
+}
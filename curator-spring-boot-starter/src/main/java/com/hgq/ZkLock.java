@@ -0,0 +1,48 @@
+package com.hgq;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName com.hgq.ZkLock
+ * @Description: 方法级分布式锁
+ * 方法执行前获取 CuratorZkTemplate.getSharedReentrantLock（指定 leaseTime 时为 getLeasedLock）返回的可重入锁，执行结束（包括抛出异常）后释放；
+ * key 为 SpEL 表达式，可通过 #参数名、#p0、#a0 引用方法参数，例如 @ZkLock(key = "#order.id")，常量需加单引号；
+ * 计算结果以 / 开头时直接作为锁路径，否则锁路径为 {curator.lock.annotation-root}/{prefix}/{key}，prefix 默认为 类名.方法名；
+ * 同一线程嵌套调用相同 key 的方法时不再访问ZK
+ * @Author: hgq
+ * @Date: 2026-10-18 09:35
+ * @Version: 1.0
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ZkLock {
+
+    /**
+     * 锁 key 的 SpEL 表达式
+     */
+    String key();
+
+    /**
+     * 锁路径前缀，默认为 类名.方法名
+     */
+    String prefix() default "";
+
+    /**
+     * 最长等待时间，小于0时一直等待，超时未获取到锁抛出 CuratorLockException
+     */
+    long waitTime() default -1;
+
+    /**
+     * 租约时长，小于等于0时使用 InterProcessMutex 一直持有到方法结束；
+     * 大于0时使用 CuratorZkLeasedLock 固定租约，不续期，超过后其它节点可以抢占，释放时打印告警
+     */
+    long leaseTime() default -1;
+
+    TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+}
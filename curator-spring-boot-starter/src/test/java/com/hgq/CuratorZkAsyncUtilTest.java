@@ -0,0 +1,115 @@
+package com.hgq;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkAsyncUtilTest extends CuratorZkTestSupport {
+
+    private static final String LARGE = new String(new char[4096]).replace('\0', 'z');
+
+    private CuratorZkAsyncUtil util;
+
+    @BeforeEach
+    void openUtil() {
+        util = new CuratorZkAsyncUtil(client);
+    }
+
+    @Test
+    void createGetSetDelete() throws Exception {
+        String path = "/async/crud/a";
+        assertThat(get(util.createNodeData(path, "1"))).isEqualTo(path);
+        assertThat(get(util.checkExistsNode(path))).isTrue();
+        assertThat(get(util.getNodeData(path))).isEqualTo("1");
+
+        Stat stat = get(util.setNodeData(path, "2"));
+        assertThat(stat.getVersion()).isEqualTo(1);
+        assertThat(get(util.setNodeDataWithVersion(path, "3", stat.getVersion()))).isNotNull();
+        assertThat(get(util.getNodeData(path))).isEqualTo("3");
+        assertThat(get(util.orSetNodeData(path, "4"))).isTrue();
+        assertThat(get(util.orSetNodeData("/async/crud/b", "5"))).isTrue();
+        assertThat(get(util.queryChildPathList("/async/crud"))).containsExactlyInAnyOrder("a", "b");
+
+        assertThat(get(util.delNode(path))).isTrue();
+        assertThat(get(util.checkExistsNode(path))).isFalse();
+        assertThat(get(util.deleChildNode("/async/crud"))).isTrue();
+        assertThat(client.checkExists().forPath("/async/crud")).isNull();
+    }
+
+    /**
+     * 压缩 codec 写入后ZK上保存的是压缩数据，读取时解压
+     */
+    @Test
+    void compressedCodecRoundTrip() throws Exception {
+        String path = "/async/compressed";
+        client.create().creatingParentsIfNeeded().forPath(path);
+        assertThat(get(util.setNodeData(path, LARGE, CuratorZkCodecs.COMPRESSED_UTF8))).isNotNull();
+        byte[] stored = client.getData().forPath(path);
+        assertThat(stored.length).isLessThan(LARGE.length());
+        assertThat(get(util.getNodeData(path, CuratorZkCodecs.COMPRESSED_UTF8))).isEqualTo(LARGE);
+        assertThat(get(util.getNodeData(path, CuratorZkCodecs.BYTES))).isEqualTo(stored);
+        assertThat(new String(client.getData().decompressed().forPath(path), StandardCharsets.UTF_8)).isEqualTo(LARGE);
+    }
+
+    /**
+     * 失败时与同步版本一致，以默认值正常完成而不是异常完成
+     */
+    @Test
+    void failuresCompleteWithFallback() throws Exception {
+        String missing = "/async/missing";
+        assertThat(get(util.getNodeData(missing))).isEmpty();
+        assertThat(get(util.getNodeData(missing, CuratorZkCodecs.COMPRESSED_UTF8))).isNull();
+        assertThat(get(util.setNodeData(missing, "1"))).isNull();
+        assertThat(get(util.queryChildPathList(missing))).isNull();
+        assertThat(get(util.getNodeStat(missing))).isNull();
+        assertThat(get(util.delNodeWithVersion(missing, 0))).isFalse();
+
+        client.create().creatingParentsIfNeeded().forPath("/async/versioned", "1".getBytes(StandardCharsets.UTF_8));
+        assertThat(get(util.setNodeDataWithVersion("/async/versioned", "2", 5))).isNull();
+        assertThat(get(util.createNodeData("/async/versioned", "2"))).isEmpty();
+        assertThat(get(util.getNodeData("/async/versioned"))).isEqualTo("1");
+    }
+
+    /**
+     * 批量读取结果按传入顺序排列，不存在的节点以 NONODE 表示且不影响其它节点
+     */
+    @Test
+    void batchReadKeepsOrderAndReportsMissingNodes() throws Exception {
+        client.create().creatingParentsIfNeeded().forPath("/async/batch/b", "b".getBytes(StandardCharsets.UTF_8));
+        client.create().forPath("/async/batch/a", "a".getBytes(StandardCharsets.UTF_8));
+        List<String> paths = Arrays.asList("/async/batch/b", "/async/batch/missing", "/async/batch/a");
+
+        Map<String, CuratorZkNodeData> results = get(util.getNodeDataBatch(paths));
+        assertThat(results.keySet()).containsExactlyElementsOf(paths);
+        assertThat(results.get("/async/batch/b").getData()).isEqualTo("b");
+        assertThat(results.get("/async/batch/a").getStat().getVersion()).isZero();
+        assertThat(results.get("/async/batch/missing").isSuccess()).isFalse();
+        assertThat(results.get("/async/batch/missing").getCode()).isEqualTo(KeeperException.Code.NONODE);
+        assertThat(get(util.getNodeDataBatch(Collections.emptyList()))).isEmpty();
+    }
+
+    @Test
+    void distinguishesPersistentAndEphemeralNodes() throws Exception {
+        client.create().creatingParentsIfNeeded().forPath("/async/kind/persistent");
+        client.create().withMode(CreateMode.EPHEMERAL).forPath("/async/kind/ephemeral");
+        assertThat(get(util.isPersistentNode("/async/kind/persistent"))).isEqualTo(1);
+        assertThat(get(util.isPersistentNode("/async/kind/ephemeral"))).isEqualTo(0);
+        assertThat(get(util.isPersistentNode("/async/kind/missing"))).isEqualTo(2);
+    }
+
+    static <T> T get(CompletableFuture<T> future) throws Exception {
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,145 @@
+package com.hgq;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.DeleteBuilder;
+import org.apache.curator.framework.api.transaction.CuratorMultiTransaction;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.recipes.queue.SimpleDistributedQueue;
+import org.apache.zookeeper.KeeperException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+class CuratorZkBatchQueueTest extends CuratorZkTestSupport {
+
+    @Test
+    void drainsInOfferOrder() throws Exception {
+        CuratorZkBatchQueue queue = template.getBatchQueue("/queue/order");
+        assertThat(queue.drainTo(10)).isEmpty();
+        assertThat(queue.offerAll(Arrays.asList(bytes("a"), bytes("b"), bytes("c")))).isEqualTo(3);
+        queue.offer(bytes("d"));
+
+        assertThat(queue.drainTo(2)).extracting(CuratorZkBatchQueueTest::string).containsExactly("a", "b");
+        assertThat(queue.size()).isEqualTo(2);
+        // 与 SimpleDistributedQueue 节点格式兼容
+        assertThat(string(new SimpleDistributedQueue(client, "/queue/order").poll())).isEqualTo("c");
+        assertThat(queue.drainTo(10)).extracting(CuratorZkBatchQueueTest::string).containsExactly("d");
+    }
+
+    @Test
+    void concurrentConsumersClaimEachItemOnce() throws Exception {
+        String path = "/queue/concurrent";
+        List<byte[]> items = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            items.add(bytes(Integer.toString(i)));
+        }
+        template.getBatchQueue(path).offerAll(items);
+
+        Set<String> consumed = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            CuratorZkBatchQueue queue = new CuratorZkTemplate(newClient(), client.getZookeeperClient().getRetryPolicy(), properties())
+                    .getBatchQueue(path);
+            futures.add(executor.submit(() -> {
+                List<byte[]> batch;
+                while (!(batch = queue.drainTo(20)).isEmpty()) {
+                    for (byte[] item : batch) {
+                        if (!consumed.add(string(item))) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertThat(duplicates.get()).isZero();
+        assertThat(consumed).hasSize(300);
+    }
+
+    /**
+     * 逐个删除时连接异常，已删除的元素必须返回给调用方，未删除的留在队列中
+     */
+    @Test
+    void connectionLossDuringFallbackReturnsClaimedItems() throws Exception {
+        String path = "/queue/fallback";
+        template.getBatchQueue(path).offerAll(Arrays.asList(bytes("a"), bytes("b"), bytes("c")));
+
+        CuratorFramework spy = Mockito.spy(client);
+        CuratorMultiTransaction conflicting = Mockito.mock(CuratorMultiTransaction.class);
+        Mockito.when(conflicting.forOperations(Mockito.<List<CuratorOp>>any()))
+                .thenThrow(new KeeperException.BadVersionException(path));
+        doReturn(conflicting).when(spy).transaction();
+        DeleteBuilder broken = Mockito.mock(DeleteBuilder.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(broken.withVersion(anyInt()).forPath(anyString())).thenThrow(new KeeperException.ConnectionLossException());
+        AtomicInteger deletes = new AtomicInteger();
+        doAnswer(invocation -> deletes.incrementAndGet() == 1 ? invocation.callRealMethod() : broken).when(spy).delete();
+
+        CuratorZkBatchQueue queue = new CuratorZkBatchQueue(spy, path, 100, 1024 * 1024, 5000);
+        assertThat(queue.drainTo(10)).extracting(CuratorZkBatchQueueTest::string).containsExactly("a");
+        assertThat(client.getChildren().forPath(path)).hasSize(2);
+
+        // 一个都未删除时抛出异常
+        deletes.set(1);
+        assertThatThrownBy(() -> queue.drainTo(10)).isInstanceOf(KeeperException.ConnectionLossException.class);
+        assertThat(client.getChildren().forPath(path)).hasSize(2);
+    }
+
+    /**
+     * 认领的元素按 maxBatchOps 拆分为多个事务删除，后一个事务失败时前面已删除的元素照常返回
+     */
+    @Test
+    void drainSplitsDeletesIntoBatches() throws Exception {
+        String path = "/queue/chunked";
+        template.getBatchQueue(path).offerAll(Arrays.asList(bytes("a"), bytes("b"), bytes("c"), bytes("d"), bytes("e")));
+
+        CuratorFramework spy = Mockito.spy(client);
+        AtomicInteger transactions = new AtomicInteger();
+        doAnswer(invocation -> {
+            transactions.incrementAndGet();
+            return invocation.callRealMethod();
+        }).when(spy).transaction();
+        CuratorZkBatchQueue queue = new CuratorZkBatchQueue(spy, path, 2, 1024 * 1024, 5000);
+        assertThat(queue.drainTo(3)).extracting(CuratorZkBatchQueueTest::string).containsExactly("a", "b", "c");
+        assertThat(transactions.get()).isEqualTo(2);
+
+        CuratorMultiTransaction broken = Mockito.mock(CuratorMultiTransaction.class);
+        Mockito.when(broken.forOperations(Mockito.<List<CuratorOp>>any())).thenThrow(new KeeperException.ConnectionLossException());
+        doAnswer(invocation -> transactions.incrementAndGet() == 3 ? invocation.callRealMethod() : broken).when(spy).transaction();
+        CuratorZkBatchQueue single = new CuratorZkBatchQueue(spy, path, 1, 1024 * 1024, 5000);
+        assertThat(single.drainTo(10)).extracting(CuratorZkBatchQueueTest::string).containsExactly("d");
+        assertThatThrownBy(() -> single.drainTo(10)).isInstanceOf(KeeperException.ConnectionLossException.class);
+        assertThat(client.getChildren().forPath(path)).hasSize(1);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package com.hgq;
+
+import org.apache.zookeeper.data.Stat;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CuratorZkBatchedSemaphoreTest extends CuratorZkTestSupport {
+
+    @Override
+    CuratorZkProperties properties() {
+        CuratorZkProperties properties = super.properties();
+        properties.getLock().setSemaphoreLeaseBatchSize(2);
+        properties.getLock().setSemaphoreIdleTimeoutMs(200);
+        return properties;
+    }
+
+    @Test
+    void sameInstancePerKey() {
+        CuratorZkBatchedSemaphore semaphore = template.getBatchedSemaphore("/semaphore/same", 4);
+        assertThat(template.getBatchedSemaphore("/semaphore/same", 4)).isSameAs(semaphore);
+        assertThatThrownBy(() -> template.getBatchedSemaphore("/semaphore/same", 5)).isInstanceOf(IllegalArgumentException.class);
+
+        semaphore.close();
+        assertThat(template.getBatchedSemaphore("/semaphore/same", 4)).isNotSameAs(semaphore);
+    }
+
+    @Test
+    void neverExceedsMaxLeasesAcrossProcesses() throws Exception {
+        String lockKey = "/semaphore/bounded";
+        CuratorZkTemplate other = new CuratorZkTemplate(newClient(), client.getZookeeperClient().getRetryPolicy(), properties());
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            CuratorZkTemplate owner = i % 2 == 0 ? template : other;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 20; j++) {
+                    try (CuratorZkBatchedSemaphore.Permit permit = owner.getBatchedSemaphore(lockKey, 3).acquire()) {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        TimeUnit.MILLISECONDS.sleep(1);
+                        inside.decrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        template.getBatchedSemaphore(lockKey, 3).close();
+        other.getBatchedSemaphore(lockKey, 3).close();
+        assertThat(maxInside.get()).isLessThanOrEqualTo(3);
+    }
+
+    /**
+     * 租约已满时等待租约节点变化，而不是反复创建、删除租约节点
+     */
+    @Test
+    void contendedWaitDoesNotChurnLeaseNodes() throws Exception {
+        String lockKey = "/semaphore/contended";
+        CuratorZkBatchedSemaphore holder = template.getBatchedSemaphore(lockKey, 2);
+        CuratorZkBatchedSemaphore.Permit first = holder.acquire();
+        CuratorZkBatchedSemaphore.Permit second = holder.acquire();
+
+        CuratorZkTemplate other = new CuratorZkTemplate(newClient(), client.getZookeeperClient().getRetryPolicy(), properties());
+        CuratorZkBatchedSemaphore waiter = other.getBatchedSemaphore(lockKey, 2);
+        int before = leaseChanges(lockKey);
+        assertThat(waiter.acquire(1, TimeUnit.SECONDS)).isNull();
+        assertThat(leaseChanges(lockKey) - before).isLessThanOrEqualTo(2);
+
+        // 本地空闲超时后归还，等待者通过监听及时获取
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<CuratorZkBatchedSemaphore.Permit> pending = executor.submit(() -> waiter.acquire(10, TimeUnit.SECONDS));
+        first.close();
+        assertThat(pending.get(10, TimeUnit.SECONDS)).isNotNull();
+        executor.shutdown();
+        second.close();
+        holder.close();
+        waiter.close();
+    }
+
+    /**
+     * 会话过期后丢弃本地空闲租约，已发出的许可关闭时也不再放回本地，重连后重新获取的租约数不超过 maxLeases
+     */
+    @Test
+    void sessionExpirationDiscardsLocalLeases() throws Exception {
+        String lockKey = "/semaphore/expired";
+        CuratorZkBatchedSemaphore semaphore = template.getBatchedSemaphore(lockKey, 2);
+        CuratorZkBatchedSemaphore.Permit permit = semaphore.acquire();
+        assertThat(semaphore.getIdleLeaseCount()).isEqualTo(1);
+
+        client.getZookeeperClient().getZooKeeper().getTestable().injectSessionExpiration();
+        await(permit::isLost, 10000);
+        assertThat(semaphore.getIdleLeaseCount()).isZero();
+        permit.close();
+        assertThat(semaphore.getIdleLeaseCount()).isZero();
+
+        // 注入的过期只作用于客户端，旧会话的租约节点由后台删除
+        assertThat(client.blockUntilConnected(10, TimeUnit.SECONDS)).isTrue();
+        await(() -> leaseCount(lockKey) == 0, 10000);
+
+        CuratorZkBatchedSemaphore.Permit first = semaphore.acquire();
+        CuratorZkBatchedSemaphore.Permit second = semaphore.acquire();
+        assertThat(first.isLost()).isFalse();
+        assertThat(leaseCount(lockKey)).isEqualTo(2);
+        CuratorZkBatchedSemaphore other = new CuratorZkTemplate(newClient(), client.getZookeeperClient().getRetryPolicy(), properties())
+                .getBatchedSemaphore(lockKey, 2);
+        assertThat(other.acquire(200, TimeUnit.MILLISECONDS)).isNull();
+        first.close();
+        second.close();
+        semaphore.close();
+        other.close();
+    }
+
+    private int leaseCount(String lockKey) {
+        try {
+            return client.getChildren().forPath(lockKey + "/leases").size();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private int leaseChanges(String lockKey) throws Exception {
+        Stat stat = client.checkExists().forPath(lockKey + "/leases");
+        return null == stat ? 0 : stat.getCversion();
+    }
+}
@@ -0,0 +1,86 @@
+package com.hgq;
+
+import org.apache.curator.utils.ZKPaths;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class CuratorZkBlobStoreTest extends CuratorZkTestSupport {
+
+    @Test
+    void roundTripsAcrossChunks() throws Exception {
+        CuratorZkBlobStore store = new CuratorZkBlobStore(client, new CuratorZkBulkWriter(client, 100, 1 << 20, 5000), 1000, 5000);
+        byte[] value = randomBytes(10_500);
+        assertThat(store.write("/blob/round", value)).isTrue();
+        assertThat(store.read("/blob/round")).isEqualTo(value);
+        try (InputStream in = store.openStream("/blob/round")) {
+            assertThat(readAll(in)).isEqualTo(value);
+        }
+        assertThat(store.read("/blob/missing")).isNull();
+    }
+
+    @Test
+    void overwriteRemovesPreviousGeneration() throws Exception {
+        CuratorZkBlobStore store = new CuratorZkBlobStore(client, new CuratorZkBulkWriter(client, 100, 1 << 20, 5000), 1000, 5000);
+        assertThat(store.write("/blob/overwrite", randomBytes(3000))).isTrue();
+        byte[] latest = randomBytes(1500);
+        assertThat(store.write("/blob/overwrite", latest)).isTrue();
+        assertThat(store.read("/blob/overwrite")).isEqualTo(latest);
+        await(() -> childCount("/blob/overwrite") == 1, 5000);
+
+        assertThat(store.delete("/blob/overwrite")).isTrue();
+        assertThat(client.checkExists().forPath("/blob/overwrite")).isNull();
+    }
+
+    /**
+     * 从流写入时每攒满一个事务就提交，不把全部分块留在内存
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamsChunksInTransactionSizedBatches() throws Exception {
+        CuratorZkBulkWriter bulkWriter = spy(new CuratorZkBulkWriter(client, 4, 1 << 20, 5000));
+        CuratorZkBlobStore store = new CuratorZkBlobStore(client, bulkWriter, 100, 5000);
+        byte[] value = randomBytes(2050);
+        assertThat(store.write("/blob/stream", new ByteArrayInputStream(value))).isTrue();
+
+        ArgumentCaptor<List<CuratorZkBulkWriter.Op>> batches = ArgumentCaptor.forClass(List.class);
+        verify(bulkWriter, atLeast(2)).write(batches.capture());
+        assertThat(batches.getAllValues()).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(4));
+        assertThat(batches.getAllValues().stream().mapToInt(List::size).sum()).isEqualTo(21);
+        assertThat(store.read("/blob/stream")).isEqualTo(value);
+    }
+
+    private int childCount(String path) {
+        try {
+            return client.getChildren().forPath(ZKPaths.makePath(path, "")).size();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,92 @@
+package com.hgq;
+
+import org.apache.zookeeper.KeeperException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkBulkWriterTest extends CuratorZkTestSupport {
+
+    @Test
+    void splitsIntoChunksAndKeepsOrder() throws Exception {
+        client.create().forPath("/bulk-chunks");
+        CuratorZkBulkWriter writer = new CuratorZkBulkWriter(client, 7, 1024 * 1024, 10000);
+        List<CuratorZkBulkWriter.Op> ops = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ops.add(CuratorZkBulkWriter.Op.create("/bulk-chunks/n" + i, bytes(i)));
+        }
+        List<CuratorZkBulkWriter.Result> results = writer.write(ops);
+        assertThat(results).hasSize(50).allMatch(CuratorZkBulkWriter.Result::isSuccess);
+        for (int i = 0; i < 50; i++) {
+            assertThat(results.get(i).getResultPath()).isEqualTo("/bulk-chunks/n" + i);
+        }
+        assertThat(client.getChildren().forPath("/bulk-chunks")).hasSize(50);
+    }
+
+    @Test
+    void failedChunkIsRolledBack() throws Exception {
+        client.create().forPath("/bulk-rollback");
+        client.create().forPath("/bulk-rollback/exists");
+        CuratorZkBulkWriter writer = new CuratorZkBulkWriter(client, 100, 1024 * 1024, 10000);
+        List<CuratorZkBulkWriter.Result> results = writer.write(Arrays.asList(
+                CuratorZkBulkWriter.Op.create("/bulk-rollback/a", bytes(1)),
+                CuratorZkBulkWriter.Op.create("/bulk-rollback/exists", bytes(2))));
+        assertThat(results.get(0).getCode()).isEqualTo(KeeperException.Code.RUNTIMEINCONSISTENCY);
+        assertThat(results.get(1).getCode()).isEqualTo(KeeperException.Code.NODEEXISTS);
+        assertThat(client.checkExists().forPath("/bulk-rollback/a")).isNull();
+    }
+
+    /**
+     * upsert 的解析结果不写回调用方的 Op，同一批操作可以重复提交
+     */
+    @Test
+    void upsertOpsCanBeReused() throws Exception {
+        client.create().forPath("/bulk-upsert");
+        CuratorZkBulkWriter writer = new CuratorZkBulkWriter(client, 100, 1024 * 1024, 10000);
+        List<CuratorZkBulkWriter.Op> ops = Arrays.asList(
+                CuratorZkBulkWriter.Op.upsert("/bulk-upsert/a", bytes(1)),
+                CuratorZkBulkWriter.Op.upsert("/bulk-upsert/b", bytes(2)));
+        assertThat(writer.write(ops)).allMatch(CuratorZkBulkWriter.Result::isSuccess);
+        assertThat(writer.write(ops)).allMatch(result -> result.isSuccess() && null != result.getResultStat());
+        assertThat(client.checkExists().forPath("/bulk-upsert/a").getVersion()).isEqualTo(1);
+    }
+
+    /**
+     * 超时后返回的结果不再被之后完成的事务修改
+     */
+    @Test
+    void lateCompletionsDoNotChangeReturnedResults() throws Exception {
+        client.create().forPath("/bulk-late");
+        CuratorZkBulkWriter writer = new CuratorZkBulkWriter(client, 1, 1024 * 1024, 0);
+        List<CuratorZkBulkWriter.Op> ops = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ops.add(CuratorZkBulkWriter.Op.create("/bulk-late/n" + i, bytes(i)));
+        }
+        List<CuratorZkBulkWriter.Result> results = writer.write(ops);
+        List<KeeperException.Code> codes = new ArrayList<>();
+        results.forEach(result -> codes.add(result.getCode()));
+        assertThat(codes).contains(KeeperException.Code.OPERATIONTIMEOUT);
+
+        await(() -> {
+            try {
+                return client.getChildren().forPath("/bulk-late").size() == 200;
+            } catch (Exception e) {
+                return false;
+            }
+        }, 10000);
+        TimeUnit.MILLISECONDS.sleep(100);
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).getCode()).isEqualTo(codes.get(i));
+        }
+    }
+
+    private static byte[] bytes(int value) {
+        return Integer.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package com.hgq;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.zookeeper.CreateMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkChildrenIndexTest extends CuratorZkTestSupport {
+
+    @Test
+    void tracksCreatesAndDeletesInOrder() throws Exception {
+        String path = "/index/order";
+        client.create().creatingParentsIfNeeded().forPath(path + "/b");
+        CuratorZkChildrenIndex index = new CuratorZkChildrenIndex(client, path);
+        index.start();
+        try {
+            assertThat(index.awaitInitialized(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(index.getChildren()).containsExactly("b");
+
+            client.create().forPath(path + "/a");
+            client.create().forPath(path + "/c");
+            client.create().forPath(path + "/c/nested");
+            assertThat(index.awaitContains("c", 5, TimeUnit.SECONDS)).isTrue();
+            await(() -> index.size() == 3, 5000);
+            assertThat(index.getChildren()).containsExactly("a", "b", "c");
+            assertThat(index.first()).isEqualTo("a");
+            assertThat(index.predecessor("c")).isEqualTo("b");
+            assertThat(index.head(2)).containsExactly("a", "b");
+
+            client.delete().forPath(path + "/a");
+            await(() -> !index.contains("a"), 5000);
+            assertThat(index.first()).isEqualTo("b");
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * 会话过期期间其它客户端的修改在重新同步后可见
+     */
+    @Test
+    void resyncsAfterSessionExpiry() throws Exception {
+        String path = "/index/expired";
+        client.create().creatingParentsIfNeeded().forPath(path);
+        CuratorZkChildrenIndex index = new CuratorZkChildrenIndex(client, path);
+        index.start();
+        try {
+            assertThat(index.awaitInitialized(5, TimeUnit.SECONDS)).isTrue();
+            CuratorFramework other = newClient();
+            client.getZookeeperClient().getZooKeeper().getTestable().injectSessionExpiration();
+            other.create().withMode(CreateMode.PERSISTENT_SEQUENTIAL).forPath(path + "/n-");
+            await(() -> index.isInitialized() && index.size() == 1, 15000);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void registrySharesAndClosesAtZero() throws Exception {
+        CuratorZkChildrenIndexRegistry registry = new CuratorZkChildrenIndexRegistry(client);
+        CuratorZkChildrenIndex first = registry.retain("/index/shared");
+        assertThat(registry.retain("/index/shared")).isSameAs(first);
+        assertThat(first.awaitInitialized(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(registry.find("/index/shared")).isSameAs(first);
+
+        registry.release("/index/shared");
+        assertThat(registry.find("/index/shared")).isSameAs(first);
+        registry.release("/index/shared");
+        assertThat(registry.find("/index/shared")).isNull();
+        assertThat(first.isInitialized()).isFalse();
+    }
+}
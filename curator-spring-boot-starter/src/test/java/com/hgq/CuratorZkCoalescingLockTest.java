@@ -0,0 +1,100 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkCoalescingLockTest extends CuratorZkTestSupport {
+
+    @Test
+    void exclusiveWithinProcess() throws Exception {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                CuratorZkCoalescingLock lock = template.getCoalescingLock("/coalescing/exclusive");
+                for (int j = 0; j < 50; j++) {
+                    lock.acquire();
+                    try {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        inside.decrementAndGet();
+                    } finally {
+                        lock.release();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertThat(maxInside.get()).isEqualTo(1);
+        assertThat(template.getCoalescingLock("/coalescing/exclusive").isAcquiredInThisProcess()).isFalse();
+    }
+
+    /**
+     * 等待线程超时放弃与持有线程移交并发时，ZK锁不能遗留在无人持有的状态
+     */
+    @Test
+    void timedOutWaitersDoNotLeakZkLock() throws Exception {
+        String lockKey = "/coalescing/timeout";
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(executor.submit(() -> {
+                CuratorZkCoalescingLock lock = template.getCoalescingLock(lockKey);
+                for (int j = 0; j < 100; j++) {
+                    if (lock.acquire(ThreadLocalRandom.current().nextInt(3), TimeUnit.MILLISECONDS)) {
+                        lock.release();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(template.getCoalescingLock(lockKey).isAcquiredInThisProcess()).isFalse();
+        InterProcessSemaphoreMutex other = new InterProcessSemaphoreMutex(newClient(), lockKey);
+        assertThat(other.acquire(5, TimeUnit.SECONDS)).isTrue();
+        other.release();
+    }
+
+    @Test
+    void sessionLossDropsZkOwnership() throws Exception {
+        String lockKey = "/coalescing/expired";
+        CuratorZkCoalescingLock lock = template.getCoalescingLock(lockKey);
+        lock.acquire();
+        assertThat(lock.isAcquiredInThisProcess()).isTrue();
+
+        client.getZookeeperClient().getZooKeeper().getTestable().injectSessionExpiration();
+        await(() -> !lock.isAcquiredInThisProcess(), 10000);
+        lock.release();
+
+        // 注入的过期只作用于客户端，服务端在会话超时后才删除临时节点
+        InterProcessSemaphoreMutex other = new InterProcessSemaphoreMutex(newClient(), lockKey);
+        assertThat(other.acquire(20, TimeUnit.SECONDS)).isTrue();
+        assertThat(lock.acquire(200, TimeUnit.MILLISECONDS)).isFalse();
+        other.release();
+
+        assertThat(client.blockUntilConnected(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(lock.acquire(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(lock.isAcquiredInThisProcess()).isTrue();
+        lock.release();
+    }
+}
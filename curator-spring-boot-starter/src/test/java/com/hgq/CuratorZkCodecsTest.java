@@ -0,0 +1,84 @@
+package com.hgq;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkCodecsTest extends CuratorZkTestSupport {
+
+    private static final byte[] DATA = repeat("curator-zk-codec;", 500).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void gzipRoundTrip() throws Exception {
+        CuratorZkCompressionProvider provider = new CuratorZkCompressionProvider(CuratorZkCompressionProvider.Algorithm.GZIP);
+        byte[] compressed = provider.compress("/a", DATA);
+        assertThat(compressed.length).isLessThan(DATA.length);
+        assertThat(provider.decompress("/a", compressed)).isEqualTo(DATA);
+    }
+
+    @Test
+    void lz4RoundTrip() throws Exception {
+        CuratorZkCompressionProvider provider = new CuratorZkCompressionProvider(CuratorZkCompressionProvider.Algorithm.LZ4);
+        assertThat(provider.getAlgorithm()).isEqualTo(CuratorZkCompressionProvider.Algorithm.LZ4);
+        byte[] compressed = provider.compress("/a", DATA);
+        assertThat(compressed.length).isLessThan(DATA.length);
+        assertThat(provider.decompress("/a", compressed)).isEqualTo(DATA);
+    }
+
+    /**
+     * 解压按数据头部识别算法，切换压缩算法后仍能读取旧数据
+     */
+    @Test
+    void decompressesEitherFormat() throws Exception {
+        CuratorZkCompressionProvider gzip = new CuratorZkCompressionProvider(CuratorZkCompressionProvider.Algorithm.GZIP);
+        CuratorZkCompressionProvider lz4 = new CuratorZkCompressionProvider(CuratorZkCompressionProvider.Algorithm.LZ4);
+        assertThat(gzip.decompress("/a", lz4.compress("/a", DATA))).isEqualTo(DATA);
+        assertThat(lz4.decompress("/a", gzip.compress("/a", DATA))).isEqualTo(DATA);
+    }
+
+    @Test
+    void codecsRoundTrip() {
+        assertThat(CuratorZkCodecs.UTF8.decode(CuratorZkCodecs.UTF8.encode("中文"))).isEqualTo("中文");
+        assertThat(CuratorZkCodecs.BYTES.decode(DATA)).isSameAs(DATA);
+        ByteBuffer buffer = CuratorZkCodecs.BYTE_BUFFER.decode(CuratorZkCodecs.BYTE_BUFFER.encode(ByteBuffer.wrap(DATA)));
+        assertThat(buffer.isReadOnly()).isTrue();
+        assertThat(buffer.remaining()).isEqualTo(DATA.length);
+        assertThat(CuratorZkCodecs.COMPRESSED_UTF8.isCompressed()).isTrue();
+        assertThat(CuratorZkCodecs.UTF8.isCompressed()).isFalse();
+    }
+
+    /**
+     * 使用 LZ4 压缩的客户端写入，GZIP 客户端读取
+     */
+    @Test
+    void compressedNodeReadableAcrossAlgorithms() throws Exception {
+        CuratorFramework lz4Client = compressedClient(CuratorZkCompressionProvider.Algorithm.LZ4);
+        CuratorFramework gzipClient = compressedClient(CuratorZkCompressionProvider.Algorithm.GZIP);
+        lz4Client.create().compressed().creatingParentsIfNeeded().forPath("/codec/lz4", DATA);
+        assertThat(client.getData().forPath("/codec/lz4").length).isLessThan(DATA.length);
+        assertThat(gzipClient.getData().decompressed().forPath("/codec/lz4")).isEqualTo(DATA);
+    }
+
+    private CuratorFramework compressedClient(CuratorZkCompressionProvider.Algorithm algorithm) throws InterruptedException {
+        CuratorFramework compressedClient = CuratorFrameworkFactory.builder().connectString(server.getConnectString())
+                .retryPolicy(new RetryOneTime(100)).compressionProvider(new CuratorZkCompressionProvider(algorithm)).build();
+        compressedClient.start();
+        compressedClient.blockUntilConnected();
+        clients.add(compressedClient);
+        return compressedClient;
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder(value.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
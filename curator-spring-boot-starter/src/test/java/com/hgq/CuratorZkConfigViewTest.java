@@ -0,0 +1,64 @@
+package com.hgq;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkConfigViewTest extends CuratorZkTestSupport {
+
+    private CuratorZkUtil util;
+
+    @BeforeEach
+    void openUtil() {
+        util = new CuratorZkUtil(client);
+    }
+
+    @AfterEach
+    void closeUtil() {
+        util.close();
+    }
+
+    @Test
+    void publishesSnapshotsOfSubtree() throws Exception {
+        String root = "/config/app";
+        client.create().creatingParentsIfNeeded().forPath(root + "/db/url", "jdbc:a".getBytes());
+        client.create().forPath(root + "/name", "app".getBytes());
+        CuratorZkConfigView<String> view = util.openConfigView(root, CuratorZkCodecs.UTF8, 20);
+        try {
+            assertThat(view.awaitInitialized(5, TimeUnit.SECONDS)).isTrue();
+            CuratorZkConfigView.Snapshot<String> initial = view.snapshot();
+            assertThat(initial.getVersion()).isEqualTo(1);
+            assertThat(initial.get("db/url")).isEqualTo("jdbc:a");
+            assertThat(initial.get("name")).isEqualTo("app");
+            assertThat(initial.contains("db")).isTrue();
+
+            client.setData().forPath(root + "/db/url", "jdbc:b".getBytes());
+            client.delete().forPath(root + "/name");
+            await(() -> "jdbc:b".equals(view.snapshot().get("db/url")) && !view.snapshot().contains("name"), 5000);
+            assertThat(view.snapshot().getVersion()).isGreaterThan(1);
+            // 旧快照不受影响
+            assertThat(initial.get("db/url")).isEqualTo("jdbc:a");
+            assertThat(initial.get("name")).isEqualTo("app");
+        } finally {
+            view.close();
+        }
+    }
+
+    @Test
+    void decodesCompressedValues() throws Exception {
+        String root = "/config/compressed";
+        client.create().creatingParentsIfNeeded().forPath(root + "/key",
+                new CuratorZkCompressionProvider(CuratorZkCompressionProvider.Algorithm.LZ4).compress(root + "/key", "value".getBytes()));
+        CuratorZkConfigView<String> view = util.openConfigView(root, CuratorZkCodecs.COMPRESSED_UTF8, 20);
+        try {
+            assertThat(view.awaitInitialized(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(view.snapshot().get("key")).isEqualTo("value");
+        } finally {
+            view.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener.Type;
+import org.apache.zookeeper.data.Stat;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkDebouncingListenerTest {
+
+    @Test
+    void mergesEventsWithinWindow() throws Exception {
+        BlockingQueue<Map<String, CuratorZkDebouncingListener.Delta>> batches = new LinkedBlockingQueue<>();
+        CuratorZkDebouncingListener listener = new CuratorZkDebouncingListener(100, batches::add);
+
+        listener.event(Type.NODE_CREATED, null, node("/a", "1"));
+        listener.event(Type.NODE_CHANGED, node("/a", "1"), node("/a", "2"));
+        listener.event(Type.NODE_CREATED, null, node("/b", "1"));
+        listener.event(Type.NODE_DELETED, node("/b", "1"), null);
+        listener.event(Type.NODE_DELETED, node("/c", "1"), null);
+        listener.event(Type.NODE_CREATED, null, node("/c", "2"));
+
+        Map<String, CuratorZkDebouncingListener.Delta> batch = batches.poll(5, TimeUnit.SECONDS);
+        assertThat(batch).containsOnlyKeys("/a", "/c");
+        assertThat(batch.get("/a").getType()).isEqualTo(Type.NODE_CREATED);
+        assertThat(new String(batch.get("/a").getData().getData())).isEqualTo("2");
+        assertThat(batch.get("/c").getType()).isEqualTo(Type.NODE_CHANGED);
+        assertThat(batches.poll(300, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void initializedFlushesOnCallerThread() {
+        AtomicReference<Thread> deliveredOn = new AtomicReference<>();
+        CuratorZkDebouncingListener listener = new CuratorZkDebouncingListener(60_000, batch -> deliveredOn.set(Thread.currentThread()));
+        listener.event(Type.NODE_CREATED, null, node("/a", "1"));
+        listener.initialized();
+        assertThat(deliveredOn.get()).isSameAs(Thread.currentThread());
+    }
+
+    /**
+     * 一个监听器的回调阻塞时，其它监听器的批次照常按时回调
+     */
+    @Test
+    void slowConsumerDoesNotDelayOtherListeners() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CuratorZkDebouncingListener slow = new CuratorZkDebouncingListener(10, batch -> {
+            slowStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch fastDelivered = new CountDownLatch(1);
+        CuratorZkDebouncingListener fast = new CuratorZkDebouncingListener(10, batch -> fastDelivered.countDown());
+        try {
+            slow.event(Type.NODE_CREATED, null, node("/slow", "1"));
+            assertThat(slowStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            fast.event(Type.NODE_CREATED, null, node("/fast", "1"));
+            assertThat(fastDelivered.await(1, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static ChildData node(String path, String data) {
+        return new ChildData(path, new Stat(), data.getBytes());
+    }
+}
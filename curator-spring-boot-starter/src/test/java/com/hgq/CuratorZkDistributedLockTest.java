@@ -0,0 +1,154 @@
+package com.hgq;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkDistributedLockTest extends CuratorZkTestSupport {
+
+    @ParameterizedTest(name = "useChildrenIndex={0}")
+    @ValueSource(booleans = {false, true})
+    void excludesConcurrentHolders(boolean useChildrenIndex) throws Exception {
+        int threads = 4;
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger maxHolders = new AtomicInteger();
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(() -> {
+                    try {
+                        for (int j = 0; j < 5; j++) {
+                            CuratorZkDistributedLock lock = template.getDistributedLock(useChildrenIndex);
+                            lock.acquireLock("exclusive-" + useChildrenIndex);
+                            try {
+                                maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                                acquired.incrementAndGet();
+                                Thread.sleep(2);
+                                holders.decrementAndGet();
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(acquired.get()).isEqualTo(threads * 5);
+        assertThat(maxHolders.get()).isEqualTo(1);
+    }
+
+    /**
+     * 超时未获取到锁时删除自己的节点，且不回调 released
+     */
+    @ParameterizedTest(name = "useChildrenIndex={0}")
+    @ValueSource(booleans = {false, true})
+    void timedOutAcquireCleansUpWithoutRelease(boolean useChildrenIndex) throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        template.addLockObserver(observer);
+        CuratorZkDistributedLock holder = template.getDistributedLock(useChildrenIndex);
+        holder.acquireLock("timeout-" + useChildrenIndex);
+        try {
+            CuratorZkDistributedLock waiter = template.getDistributedLock(useChildrenIndex);
+            assertThat(waiter.acquireLock("timeout-" + useChildrenIndex, 100, TimeUnit.MILLISECONDS)).isFalse();
+            assertThat(waiter.unlock()).isFalse();
+            assertThat(client.getChildren().forPath("/locks/timeout-" + useChildrenIndex)).hasSize(1);
+            assertThat(observer.acquired.get()).isEqualTo(1);
+            assertThat(observer.failed.get()).isEqualTo(1);
+            assertThat(observer.released.get()).isZero();
+        } finally {
+            assertThat(holder.unlock()).isTrue();
+        }
+        assertThat(observer.released.get()).isEqualTo(1);
+        assertThat(holder.unlock()).isFalse();
+    }
+
+    @Test
+    void nextWaiterAcquiresAfterUnlock() throws Exception {
+        CuratorZkDistributedLock holder = template.getDistributedLock();
+        holder.acquireLock("handoff");
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            CuratorZkDistributedLock lock = template.getDistributedLock();
+            if (lock.acquireLock("handoff", 5, TimeUnit.SECONDS)) {
+                acquired.countDown();
+                lock.unlock();
+            }
+        });
+        waiter.start();
+        assertThat(acquired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        holder.unlock();
+        assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+        waiter.join();
+    }
+
+    /**
+     * 等待中被中断时抛出 CuratorLockException，删除自己的节点并保留中断标记
+     */
+    @Test
+    void interruptedWaiterRestoresInterruptFlag() throws Exception {
+        CuratorZkDistributedLock holder = template.getDistributedLock();
+        holder.acquireLock("interrupt");
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            try {
+                template.getDistributedLock().acquireLock("interrupt");
+            } catch (CuratorLockException e) {
+                error.set(e);
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        waiter.start();
+        await(() -> {
+            try {
+                return client.getChildren().forPath("/locks/interrupt").size() == 2;
+            } catch (Exception e) {
+                return false;
+            }
+        }, 5000);
+        waiter.interrupt();
+        waiter.join(5000);
+        try {
+            assertThat(error.get()).isInstanceOf(CuratorLockException.class);
+            assertThat(interrupted.get()).isTrue();
+            assertThat(client.getChildren().forPath("/locks/interrupt")).hasSize(1);
+        } finally {
+            holder.unlock();
+        }
+    }
+
+    static class RecordingObserver implements CuratorZkLockObserver {
+        final AtomicInteger acquired = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger released = new AtomicInteger();
+
+        @Override
+        public void acquired(String type, String lockKey, long waitNanos, boolean success) {
+            (success ? acquired : failed).incrementAndGet();
+        }
+
+        @Override
+        public void released(String type, String lockKey, long holdNanos) {
+            released.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.hgq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkEventDispatcherTest {
+
+    @Test
+    void runsTasksOfSameKeyInOrder() throws Exception {
+        CuratorZkEventDispatcher dispatcher = new CuratorZkEventDispatcher(4, 1000, CuratorZkEventDispatcher.OverflowPolicy.BLOCK, false);
+        try {
+            List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(500);
+            for (int i = 0; i < 500; i++) {
+                int value = i;
+                assertThat(dispatcher.execute("/a", () -> {
+                    executed.add(value);
+                    done.countDown();
+                })).isTrue();
+            }
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(executed).isSorted().hasSize(500);
+            assertThat(dispatcher.getCompletedCount()).isEqualTo(500);
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    void dropsWhenFullUnderDropPolicy() throws Exception {
+        CuratorZkEventDispatcher dispatcher = new CuratorZkEventDispatcher(1, 1, CuratorZkEventDispatcher.OverflowPolicy.DROP, false);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertThat(dispatcher.execute("/a", () -> awaitQuietly(release))).isTrue();
+            assertThat(dispatcher.execute("/b", () -> {
+            })).isFalse();
+            assertThat(dispatcher.getDroppedCount()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            dispatcher.close();
+        }
+    }
+
+    /**
+     * 任务在分发线程中再提交任务且容量已满时，BLOCK 策略等待超时后丢弃，不会死锁
+     */
+    @Test
+    void blockPolicyGivesUpAfterTimeout() throws Exception {
+        CuratorZkEventDispatcher dispatcher = new CuratorZkEventDispatcher(1, 1, CuratorZkEventDispatcher.OverflowPolicy.BLOCK, 100, false);
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            boolean[] nested = new boolean[1];
+            dispatcher.execute("/a", () -> {
+                nested[0] = dispatcher.execute("/b", () -> {
+                });
+                done.countDown();
+            });
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(nested[0]).isFalse();
+            assertThat(dispatcher.getDroppedCount()).isEqualTo(1);
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    /**
+     * 补偿任务不占用容量，容量已满时也会执行，并与同一 key 的任务保持顺序
+     */
+    @Test
+    void unboundedTasksRunWhenFull() throws Exception {
+        CuratorZkEventDispatcher dispatcher = new CuratorZkEventDispatcher(1, 1, CuratorZkEventDispatcher.OverflowPolicy.DROP, false);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            List<String> executed = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(1);
+            assertThat(dispatcher.execute("/a", () -> {
+                awaitQuietly(release);
+                executed.add("first");
+            })).isTrue();
+            dispatcher.executeUnbounded("/a", () -> {
+                executed.add("unbounded");
+                done.countDown();
+            });
+            assertThat(dispatcher.getQueueDepth()).isEqualTo(1);
+            release.countDown();
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(executed).containsExactly("first", "unbounded");
+            assertThat(dispatcher.getCompletedCount()).isEqualTo(2);
+            assertThat(dispatcher.getQueueDepth()).isZero();
+        } finally {
+            release.countDown();
+            dispatcher.close();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.hgq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CuratorZkIdGeneratorTest extends CuratorZkTestSupport {
+
+    @Test
+    void sameInstancePerPath() {
+        CuratorZkIdGenerator generator = template.getIdGenerator("/id/same", 100);
+        assertThat(template.getIdGenerator("/id/same", 100)).isSameAs(generator);
+        assertThatThrownBy(() -> template.getIdGenerator("/id/same", 50)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 同一路径共享号段，重复获取生成器不会浪费号段
+     */
+    @Test
+    void repeatedLookupsShareRange() {
+        long first = template.getIdGenerator("/id/shared", 1000).nextId();
+        long second = template.getIdGenerator("/id/shared", 1000).nextId();
+        assertThat(second).isEqualTo(first + 1);
+    }
+
+    @Test
+    void uniqueAcrossProcesses() throws Exception {
+        String path = "/id/unique";
+        CuratorZkTemplate other = new CuratorZkTemplate(newClient(), client.getZookeeperClient().getRetryPolicy(), properties());
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            CuratorZkIdGenerator generator = (i % 2 == 0 ? template : other).getIdGenerator(path, 50);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    assertThat(ids.add(generator.nextId())).isTrue();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertThat(ids).hasSize(4000).allMatch(id -> id > 0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.hgq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkLeasedLockTest extends CuratorZkTestSupport {
+
+    private static final long LEASE_MS = 300;
+    private static final long MAX_LEASE_MS = LEASE_MS * 6;
+
+    @Override
+    CuratorZkProperties properties() {
+        CuratorZkProperties properties = super.properties();
+        properties.getLock().setLeaseTimeMs(LEASE_MS);
+        properties.getLock().setMaxLeaseTimeMs(MAX_LEASE_MS);
+        return properties;
+    }
+
+    @Test
+    void fixedLeaseIsBrokenAfterExpiry() throws Exception {
+        CuratorZkLeasedLock holder = template.getLeasedLock("/leased/fixed");
+        assertThat(holder.acquire(-1, LEASE_MS, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(holder.isLeaseValid()).isTrue();
+
+        CuratorZkLeasedLock other = otherTemplate().getLeasedLock("/leased/fixed");
+        long start = System.nanoTime();
+        assertThat(other.acquire(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(LEASE_MS / 2);
+        assertThat(holder.isLeaseValid()).isFalse();
+
+        // 租约已被抢占，释放时只打印告警
+        holder.release();
+        other.release();
+    }
+
+    @Test
+    void renewedLeaseKeepsLock() throws Exception {
+        CuratorZkLeasedLock holder = template.getLeasedLock("/leased/renewed");
+        holder.acquire();
+        CuratorZkLeasedLock other = otherTemplate().getLeasedLock("/leased/renewed");
+        try {
+            assertThat(other.acquire(LEASE_MS * 4, TimeUnit.MILLISECONDS)).isFalse();
+            assertThat(holder.isLeaseValid()).isTrue();
+            assertThat(Thread.getAllStackTraces().keySet()).extracting(Thread::getName).contains("curator-zk-lease-watchdog");
+        } finally {
+            holder.release();
+        }
+        assertThat(other.acquire(5, TimeUnit.SECONDS)).isTrue();
+        other.release();
+    }
+
+    /**
+     * 持有线程结束后看门狗停止续期，其它节点在租约到期后接管
+     */
+    @Test
+    void deadOwnerIsTakenOver() throws Exception {
+        CuratorZkLeasedLock lock = template.getLeasedLock("/leased/dead");
+        Thread owner = new Thread(() -> {
+            try {
+                lock.acquire();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        owner.start();
+        owner.join();
+        assertThat(lock.isAcquiredInThisProcess()).isTrue();
+
+        CuratorZkLeasedLock other = otherTemplate().getLeasedLock("/leased/dead");
+        assertThat(other.acquire(5, TimeUnit.SECONDS)).isTrue();
+        await(() -> !lock.isAcquiredInThisProcess(), 5000);
+        other.release();
+    }
+
+    /**
+     * 持有线程卡住但仍存活时，续期超过最长续期时间后停止，其它节点在租约到期后接管
+     */
+    @Test
+    void hungOwnerStopsRenewingAfterMaxLeaseTime() throws Exception {
+        CuratorZkLeasedLock holder = template.getLeasedLock("/leased/hung");
+        long start = System.nanoTime();
+        holder.acquire();
+        CuratorZkLeasedLock other = otherTemplate().getLeasedLock("/leased/hung");
+        assertThat(other.acquire(MAX_LEASE_MS * 5, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(MAX_LEASE_MS);
+        assertThat(holder.isLeaseValid()).isFalse();
+
+        holder.release();
+        other.release();
+    }
+
+    private CuratorZkTemplate otherTemplate() throws InterruptedException {
+        return new CuratorZkTemplate(newClient(), client.getZookeeperClient().getRetryPolicy(), properties());
+    }
+}
@@ -0,0 +1,127 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CuratorZkLockInterceptorTest extends CuratorZkTestSupport {
+
+    private static final String ROOT = "/zklock";
+
+    private OrderService service;
+
+    @BeforeEach
+    void createProxy() {
+        OrderService target = new OrderService(this);
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new CuratorZkLockInterceptor(() -> template, ROOT));
+        service = (OrderService) factory.getProxy();
+        target.self = service;
+    }
+
+    @Test
+    void holdsLockForDurationOfCall() {
+        assertThat(service.pay("42")).isTrue();
+        assertThat(template.getSharedReentrantLock(ROOT + "/OrderService.pay/42").isAcquiredInThisProcess()).isFalse();
+    }
+
+    @Test
+    void resolvesAbsoluteAndPrefixedKeys() {
+        assertThat(service.absolute()).isTrue();
+        assertThat(service.prefixed(7)).isTrue();
+    }
+
+    /**
+     * 同一线程嵌套调用相同 key 时直接执行
+     */
+    @Test
+    void nestedCallWithSameKeyDoesNotReacquire() {
+        assertThat(service.outer("1")).isTrue();
+    }
+
+    @Test
+    void throwsWhenWaitTimeExpires() throws Exception {
+        InterProcessMutex other = new InterProcessMutex(newClient(), ROOT + "/OrderService.tryPay/9");
+        other.acquire();
+        try {
+            assertThatThrownBy(() -> service.tryPay("9")).isInstanceOf(CuratorLockException.class);
+        } finally {
+            other.release();
+        }
+        assertThat(service.tryPay("9")).isTrue();
+    }
+
+    @Test
+    void usesLeasedLockWhenLeaseTimeSet() {
+        assertThat(service.leased("5")).isTrue();
+        assertThat(template.getLeasedLock(ROOT + "/OrderService.leased/5").isAcquiredInThisProcess()).isFalse();
+    }
+
+    /**
+     * 锁在方法返回后才释放，锁分析记录的调用位置仍是被注解的方法
+     */
+    @Test
+    void reportsAnnotatedMethodAsCallSite() {
+        CuratorZkLockProfiler profiler = new CuratorZkLockProfiler(4, 0);
+        profiler.bindTo(template);
+        assertThat(service.pay("profiled")).isTrue();
+        assertThat(profiler.getLongestHolds(10)).extracting(CuratorZkLockProfiler.LockStat::getCallSite)
+                .containsExactly(OrderService.class.getName() + ".pay");
+    }
+
+    static class OrderService {
+        private final CuratorZkLockInterceptorTest test;
+        OrderService self;
+
+        OrderService() {
+            this(null);
+        }
+
+        OrderService(CuratorZkLockInterceptorTest test) {
+            this.test = test;
+        }
+
+        @ZkLock(key = "#orderId")
+        public boolean pay(String orderId) {
+            return test.template.getSharedReentrantLock(ROOT + "/OrderService.pay/" + orderId).isAcquiredInThisProcess();
+        }
+
+        @ZkLock(key = "'/zklock-absolute/fixed'")
+        public boolean absolute() {
+            return test.template.getSharedReentrantLock("/zklock-absolute/fixed").isAcquiredInThisProcess();
+        }
+
+        @ZkLock(key = "'id-' + #p0", prefix = "orders")
+        public boolean prefixed(int id) {
+            return test.template.getSharedReentrantLock(ROOT + "/orders/id-" + id).isAcquiredInThisProcess();
+        }
+
+        @ZkLock(key = "#p0", prefix = "nested")
+        public boolean outer(String id) {
+            return self.inner(id);
+        }
+
+        @ZkLock(key = "#p0", prefix = "nested", waitTime = 100)
+        public boolean inner(String id) {
+            return test.template.getSharedReentrantLock(ROOT + "/nested/" + id).isAcquiredInThisProcess();
+        }
+
+        @ZkLock(key = "#orderId", waitTime = 100)
+        public boolean tryPay(String orderId) {
+            return true;
+        }
+
+        @ZkLock(key = "#orderId", leaseTime = 5, timeUnit = TimeUnit.SECONDS)
+        public boolean leased(String orderId) {
+            CuratorZkLeasedLock lock = test.template.getLeasedLock(ROOT + "/OrderService.leased/" + orderId);
+            return lock.isAcquiredInThisProcess() && lock.isLeaseValid();
+        }
+    }
+}
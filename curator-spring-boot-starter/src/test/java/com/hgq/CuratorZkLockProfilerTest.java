@@ -0,0 +1,67 @@
+package com.hgq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkLockProfilerTest {
+
+    private static final String TYPE = CuratorZkLockObserver.TYPE_REENTRANT;
+
+    @Test
+    void keepsHeavyHitterAmongManyKeys() {
+        CuratorZkLockProfiler profiler = new CuratorZkLockProfiler(4, 1000);
+        for (int i = 0; i < 1000; i++) {
+            profiler.acquired(TYPE, "/hot", millis(5), true);
+            profiler.acquired(TYPE, "/cold-" + i, millis(1), i % 2 == 0);
+        }
+        List<CuratorZkLockProfiler.LockStat> hotKeys = profiler.getHotKeys(10);
+        assertThat(hotKeys).hasSize(4);
+        CuratorZkLockProfiler.LockStat hot = hotKeys.get(0);
+        assertThat(hot.getLockKey()).isEqualTo("/hot");
+        assertThat(hot.getCount()).isEqualTo(1000);
+        assertThat(hot.getTotalMs()).isEqualTo(5000d);
+        // 被替换进来的 key 继承淘汰 key 的累计值作为误差
+        assertThat(hotKeys.subList(1, 4)).allSatisfy(stat -> assertThat(stat.getErrorMs()).isPositive());
+    }
+
+    /**
+     * 持有榜按最长持有时间淘汰，累计持有时间长但单次很短的 key 会被挤出
+     */
+    @Test
+    void longestHoldsEvictByMax() {
+        CuratorZkLockProfiler profiler = new CuratorZkLockProfiler(2, 1000);
+        profiler.released(TYPE, "/a", millis(100));
+        for (int i = 0; i < 100; i++) {
+            profiler.released(TYPE, "/frequent", millis(10));
+        }
+        profiler.released(TYPE, "/b", millis(80));
+        profiler.released(TYPE, "/short", millis(5));
+
+        List<CuratorZkLockProfiler.LockStat> holds = profiler.getLongestHolds(10);
+        assertThat(holds).extracting(CuratorZkLockProfiler.LockStat::getLockKey).containsExactly("/a", "/b");
+        assertThat(holds.get(0).getMaxMs()).isEqualTo(100d);
+    }
+
+    @Test
+    void capturesCallSiteOnlyAboveThreshold() {
+        CuratorZkLockProfiler profiler = new CuratorZkLockProfiler(4, 50);
+        profiler.released(TYPE, "/fast", millis(10));
+        profiler.released(TYPE, "/slow", millis(60));
+        List<CuratorZkLockProfiler.LockStat> holds = profiler.getLongestHolds(10);
+        assertThat(holds.get(0).getLockKey()).isEqualTo("/slow");
+        assertThat(holds.get(0).getCallSite()).isNotNull();
+        assertThat(holds.get(1).getCallSite()).isNull();
+
+        profiler.reset();
+        assertThat(profiler.getLongestHolds(10)).isEmpty();
+        assertThat(profiler.getHotKeys(10)).isEmpty();
+    }
+
+    private static long millis(long ms) {
+        return TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+}
@@ -0,0 +1,81 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkLockRegistryTest extends CuratorZkTestSupport {
+
+    @Test
+    void sameInstancePerPath() {
+        assertThat(template.getSharedReentrantLock("/registry/same")).isSameAs(template.getSharedReentrantLock("/registry/same"));
+        assertThat(template.getLeasedLock("/registry/same-leased")).isSameAs(template.getLeasedLock("/registry/same-leased"));
+    }
+
+    /**
+     * 调用方不保留引用时，持有中的锁不能被回收，之后获取到的实例仍可重入和释放
+     */
+    @Test
+    void heldLockSurvivesGc() throws Exception {
+        String path = "/registry/held";
+        template.getSharedReentrantLock(path).acquire();
+        gc();
+        InterProcessLock lock = template.getSharedReentrantLock(path);
+        assertThat(lock.isAcquiredInThisProcess()).isTrue();
+        assertThat(lock.acquire(1, TimeUnit.SECONDS)).isTrue();
+        lock.release();
+        lock.release();
+        assertThat(new InterProcessMutex(newClient(), path).acquire(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void heldWriteLockSurvivesGc() throws Exception {
+        String path = "/registry/rw";
+        template.getSharedReentrantReadWriteLock(path).writeLock().acquire();
+        gc();
+        assertThat(template.getSharedReentrantReadWriteLock(path).writeLock().isOwnedByCurrentThread()).isTrue();
+        template.getSharedReentrantReadWriteLock(path).writeLock().release();
+        assertThat(template.getSharedReentrantReadWriteLock(path).readLock().acquire(1, TimeUnit.SECONDS)).isTrue();
+        template.getSharedReentrantReadWriteLock(path).readLock().release();
+    }
+
+    @Test
+    void heldLeasedLockSurvivesGc() throws Exception {
+        String path = "/registry/leased";
+        assertThat(template.getLeasedLock(path).acquire(-1, 30, TimeUnit.SECONDS)).isTrue();
+        gc();
+        assertThat(template.getLeasedLock(path).isLeaseValid()).isTrue();
+        template.getLeasedLock(path).release();
+        assertThat(client.getChildren().forPath(path)).isEmpty();
+    }
+
+    @Test
+    void releasedLockIsCollected() throws Exception {
+        CuratorZkLockRegistry<InterProcessLock> registry = new CuratorZkLockRegistry<>(
+                (path, pin) -> new CuratorZkPinnedLock(new InterProcessMutex(client, path), pin));
+        InterProcessLock lock = registry.get("/registry/collected");
+        lock.acquire();
+        assertThat(registry.pinnedSize()).isEqualTo(1);
+        lock.release();
+        assertThat(registry.pinnedSize()).isZero();
+
+        lock = null;
+        gc();
+        assertThat(registry.size()).isZero();
+    }
+
+    private static void gc() throws InterruptedException {
+        WeakReference<Object> canary = new WeakReference<>(new Object());
+        for (int i = 0; i < 50 && null != canary.get(); i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        System.gc();
+        TimeUnit.MILLISECONDS.sleep(50);
+    }
+}
@@ -0,0 +1,121 @@
+package com.hgq;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkMetricsTest extends CuratorZkTestSupport {
+
+    private SimpleMeterRegistry registry;
+    private CuratorZkMetrics metrics;
+
+    @BeforeEach
+    void bindMetrics() {
+        registry = new SimpleMeterRegistry();
+        metrics = new CuratorZkMetrics(registry, 2, false);
+    }
+
+    @Test
+    void collapsesPathsToBoundedPatterns() {
+        assertThat(metrics.pathPattern("/locks/order/lock-0000000012")).isEqualTo("/locks/order/**");
+        assertThat(metrics.pathPattern("/queue/item-0000000003")).isEqualTo("/queue/item-{seq}");
+        assertThat(metrics.pathPattern("/")).isEqualTo("/");
+        assertThat(metrics.pathPattern(null)).isEqualTo("none");
+    }
+
+    @Test
+    void recordsOperationsOfBoundClient() throws Exception {
+        metrics.bindTo(client);
+        client.create().creatingParentsIfNeeded().forPath("/metrics/ops/a");
+        client.getData().forPath("/metrics/ops/a");
+        await(() -> null != registry.find("curator.zk.operations").tag("path", "/metrics/ops/**").tag("result", "OK").timer(), 5000);
+        assertThat(registry.find("curator.zk.operations").tag("path", "/metrics/ops/**").timers())
+                .extracting(timer -> timer.getId().getTag("operation")).contains("CreateBuilderImpl-Foreground", "GetDataBuilderImpl-Foreground");
+    }
+
+    @Test
+    void recordsLockWaitHoldAndGauges() throws Exception {
+        metrics.bindTo(template);
+        CuratorZkDistributedLock lock = template.getDistributedLock();
+        lock.acquireLock("metrics");
+        assertThat(registry.get("curator.zk.lock.held").tag("type", CuratorZkLockObserver.TYPE_DISTRIBUTED).gauge().value()).isEqualTo(1);
+        assertThat(registry.get("curator.zk.lock.waiting").tag("type", CuratorZkLockObserver.TYPE_DISTRIBUTED).gauge().value()).isZero();
+        lock.unlock();
+
+        CuratorZkDistributedLock next = template.getDistributedLock();
+        assertThat(next.acquireLock("metrics", 1, TimeUnit.SECONDS)).isTrue();
+        assertThat(registry.get("curator.zk.lock.held").tag("type", CuratorZkLockObserver.TYPE_DISTRIBUTED).gauge().value()).isEqualTo(1);
+        next.unlock();
+        assertThat(registry.get("curator.zk.lock.held").tag("type", CuratorZkLockObserver.TYPE_DISTRIBUTED).gauge().value()).isZero();
+        assertThat(registry.get("curator.zk.lock.wait").tag("result", "acquired").timer().count()).isEqualTo(2);
+        assertThat(registry.get("curator.zk.lock.hold").timer().count()).isEqualTo(2);
+    }
+
+    /**
+     * 不同业务 key 的锁只产生按 type（及配置的 key 模式）区分的指标，操作的 path 标签数量有上限
+     */
+    @Test
+    void boundsTagsOfManyLockKeys() throws Exception {
+        metrics = new CuratorZkMetrics(registry, 2, 3, Collections.singletonList("/locks/order/*"), false);
+        for (int i = 0; i < 20; i++) {
+            metrics.waiting(CuratorZkLockObserver.TYPE_REENTRANT, "/locks/user-" + i);
+            metrics.acquired(CuratorZkLockObserver.TYPE_REENTRANT, "/locks/user-" + i, 1000, true);
+            metrics.released(CuratorZkLockObserver.TYPE_REENTRANT, "/locks/user-" + i, 1000);
+            metrics.waiting(CuratorZkLockObserver.TYPE_REENTRANT, "/locks/order/" + i);
+        }
+        assertThat(registry.find("curator.zk.lock.held").gauges()).hasSize(1);
+        assertThat(registry.find("curator.zk.lock.waiting").gauges()).hasSize(2);
+        assertThat(registry.get("curator.zk.lock.waiting").tag("key", "other").gauge().value()).isZero();
+        assertThat(registry.get("curator.zk.lock.waiting").tag("key", "/locks/order/*").gauge().value()).isEqualTo(20);
+        assertThat(registry.get("curator.zk.lock.hold").tag("key", "other").timer().count()).isEqualTo(20);
+        assertThat(registry.getMeters()).allMatch(meter -> null == meter.getId().getTag("path"));
+
+        assertThat(metrics.pathTag("/locks/order/7/_c_lock-0000000001")).isEqualTo("/locks/order/*");
+        for (int i = 0; i < 20; i++) {
+            metrics.pathTag("/tenant-" + i + "/config");
+        }
+        assertThat(metrics.pathTag("/locks/order/8")).isEqualTo("/locks/order/*");
+        assertThat(metrics.pathTag("/tenant-1/config")).isEqualTo("/tenant-1/config");
+        assertThat(metrics.pathTag("/tenant-19/config")).isEqualTo("other");
+    }
+
+    @Test
+    void recordsReadWriteLocks() throws Exception {
+        metrics.bindTo(template);
+        InterProcessReadWriteLock lock = template.getSharedReentrantReadWriteLock("/metrics/rw");
+        InterProcessMutex writeLock = lock.writeLock();
+        writeLock.acquire();
+        writeLock.acquire();
+        assertThat(registry.get("curator.zk.lock.held").tag("type", CuratorZkLockObserver.TYPE_WRITE).gauge().value()).isEqualTo(1);
+        writeLock.release();
+        writeLock.release();
+        assertThat(registry.get("curator.zk.lock.held").tag("type", CuratorZkLockObserver.TYPE_WRITE).gauge().value()).isZero();
+
+        // 读锁可被多个线程同时持有，按线程统计
+        InterProcessMutex readLock = lock.readLock();
+        readLock.acquire();
+        Thread other = new Thread(() -> {
+            try {
+                readLock.acquire();
+                readLock.release();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        other.start();
+        other.join(5000);
+        assertThat(registry.get("curator.zk.lock.held").tag("type", CuratorZkLockObserver.TYPE_READ).gauge().value()).isEqualTo(1);
+        readLock.release();
+        assertThat(registry.get("curator.zk.lock.held").tag("type", CuratorZkLockObserver.TYPE_READ).gauge().value()).isZero();
+        assertThat(registry.get("curator.zk.lock.wait").tag("type", CuratorZkLockObserver.TYPE_READ).timer().count()).isEqualTo(2);
+        assertThat(registry.get("curator.zk.lock.hold").tag("type", CuratorZkLockObserver.TYPE_READ).timer().count()).isEqualTo(2);
+        assertThat(registry.get("curator.zk.lock.hold").tag("type", CuratorZkLockObserver.TYPE_WRITE).timer().count()).isEqualTo(1);
+    }
+}
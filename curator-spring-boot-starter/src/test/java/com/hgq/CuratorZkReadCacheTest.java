@@ -0,0 +1,63 @@
+package com.hgq;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkReadCacheTest extends CuratorZkTestSupport {
+
+    @Test
+    void cachesUntilNodeChanges() throws Exception {
+        client.create().creatingParentsIfNeeded().forPath("/read-cache/config/a", bytes("v1"));
+        CuratorZkReadCache cache = new CuratorZkReadCache(client, Collections.singletonList("/read-cache/config"), 100, 0);
+        cache.start();
+        try {
+            // 子树缓存同步完成前直接读ZK，不缓存
+            await(() -> "v1".equals(cache.getNodeData("/read-cache/config/a")) && cache.getHitCount() > 0, 5000);
+            long misses = cache.getMissCount();
+            assertThat(cache.getNodeData("/read-cache/config/a")).isEqualTo("v1");
+            assertThat(cache.getMissCount()).isEqualTo(misses);
+
+            client.setData().forPath("/read-cache/config/a", bytes("v2"));
+            await(() -> "v2".equals(cache.getNodeData("/read-cache/config/a")), 5000);
+
+            client.delete().forPath("/read-cache/config/a");
+            await(() -> cache.getNodeData("/read-cache/config/a").isEmpty(), 5000);
+
+            client.create().forPath("/read-cache/config/b", bytes("created"));
+            await(() -> "created".equals(cache.getNodeData("/read-cache/config/b")), 5000);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void evictsAboveMaxSizeAndIgnoresOtherPaths() throws Exception {
+        client.create().creatingParentsIfNeeded().forPath("/read-cache/many");
+        for (int i = 0; i < 30; i++) {
+            client.create().forPath("/read-cache/many/n" + i, bytes("v" + i));
+        }
+        client.create().creatingParentsIfNeeded().forPath("/read-cache-other", bytes("other"));
+        CuratorZkReadCache cache = new CuratorZkReadCache(client, Collections.singletonList("/read-cache/many"), 10, 0);
+        cache.start();
+        try {
+            await(() -> "v0".equals(cache.getNodeData("/read-cache/many/n0")) && cache.getHitCount() > 0, 5000);
+            assertThat(cache.covers("/read-cache/many/n1")).isTrue();
+            assertThat(cache.covers("/read-cache-other")).isFalse();
+            for (int i = 0; i < 30; i++) {
+                assertThat(cache.getNodeData("/read-cache/many/n" + i)).isEqualTo("v" + i);
+            }
+            assertThat(cache.getSize()).isLessThanOrEqualTo(10);
+            assertThat(cache.getEvictionCount()).isPositive();
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
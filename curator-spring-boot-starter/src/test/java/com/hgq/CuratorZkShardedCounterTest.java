@@ -0,0 +1,49 @@
+package com.hgq;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CuratorZkShardedCounterTest extends CuratorZkTestSupport {
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        String path = "/counter/concurrent";
+        CuratorZkTemplate other = new CuratorZkTemplate(newClient(), client.getZookeeperClient().getRetryPolicy(), properties());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            CuratorZkShardedCounter counter = (i % 2 == 0 ? template : other).getShardedCounter(path, 4);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 50; j++) {
+                    assertThat(counter.increment()).isTrue();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        CuratorZkShardedCounter counter = template.getShardedCounter(path, 4);
+        assertThat(counter.get()).isEqualTo(400);
+        assertThat(counter.decrement()).isTrue();
+        assertThat(counter.add(-99)).isTrue();
+        assertThat(counter.get()).isEqualTo(300);
+        assertThat(client.getChildren().forPath(path)).hasSizeLessThanOrEqualTo(4).allMatch(name -> name.startsWith("shard-"));
+    }
+
+    @Test
+    void rejectsInvalidShards() {
+        assertThatThrownBy(() -> template.getShardedCounter("/counter/invalid", 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
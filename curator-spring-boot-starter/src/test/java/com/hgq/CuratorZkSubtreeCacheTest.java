@@ -0,0 +1,79 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkSubtreeCacheTest extends CuratorZkTestSupport {
+
+    @Test
+    void limitsDepth() throws Exception {
+        String root = "/subtree/depth";
+        client.create().creatingParentsIfNeeded().forPath(root + "/a/b/c");
+        CuratorZkSubtreeCache cache = new CuratorZkSubtreeCache(client, root, CuratorZkSubtreeCache.Options.defaults().withMaxDepth(1));
+        cache.start();
+        try {
+            await(cache::isInitialized, 5000);
+            assertThat(paths(cache)).containsExactlyInAnyOrder(root, root + "/a");
+
+            client.create().forPath(root + "/d");
+            client.create().forPath(root + "/a/e");
+            await(() -> cache.get(root + "/d").isPresent(), 5000);
+            assertThat(cache.get(root + "/a/e")).isEmpty();
+
+            client.delete().forPath(root + "/d");
+            await(() -> !cache.get(root + "/d").isPresent(), 5000);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void loadsOnlyFilteredPaths() throws Exception {
+        String root = "/subtree/filter";
+        client.create().creatingParentsIfNeeded().forPath(root + "/skip/member-1");
+        client.create().forPath(root + "/member-2");
+        CuratorZkSubtreeCache cache = new CuratorZkSubtreeCache(client, root,
+                CuratorZkSubtreeCache.Options.defaults().withPathFilter(path -> path.contains("member-")));
+        cache.start();
+        try {
+            await(cache::isInitialized, 5000);
+            assertThat(paths(cache)).containsExactlyInAnyOrder(root, root + "/skip/member-1", root + "/member-2");
+
+            client.create().forPath(root + "/other");
+            client.create().forPath(root + "/member-3");
+            await(() -> cache.get(root + "/member-3").isPresent(), 5000);
+            assertThat(cache.get(root + "/other")).isEmpty();
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void statOnlyKeepsStatWithoutData() throws Exception {
+        String root = "/subtree/stat";
+        client.create().creatingParentsIfNeeded().forPath(root + "/a", "payload".getBytes());
+        CuratorZkSubtreeCache cache = new CuratorZkSubtreeCache(client, root, CuratorZkSubtreeCache.Options.defaults().statOnly());
+        cache.start();
+        try {
+            await(cache::isInitialized, 5000);
+            ChildData data = cache.get(root + "/a").orElseThrow(AssertionError::new);
+            assertThat(data.getData()).isNull();
+            assertThat(data.getStat().getDataLength()).isEqualTo("payload".length());
+
+            client.setData().forPath(root + "/a", "changed".getBytes());
+            await(() -> cache.get(root + "/a").map(changed -> changed.getStat().getVersion() == 1).orElse(false), 5000);
+            assertThat(cache.get(root + "/a").get().getData()).isNull();
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static Set<String> paths(CuratorZkSubtreeCache cache) {
+        return cache.stream().map(ChildData::getPath).collect(Collectors.toSet());
+    }
+}
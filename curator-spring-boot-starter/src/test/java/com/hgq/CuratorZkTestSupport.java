@@ -0,0 +1,80 @@
+package com.hgq;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.test.TestingServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @ClassName com.hgq.CuratorZkTestSupport
+ * @Description: 测试基类，每个测试类启动一个 TestingServer，每个测试方法使用新的客户端和模板，结束后关闭
+ * @Author: hgq
+ * @Date: 2026-10-18 10:10
+ * @Version: 1.0
+ */
+abstract class CuratorZkTestSupport {
+
+    static TestingServer server;
+
+    final List<CuratorFramework> clients = new ArrayList<>();
+    CuratorFramework client;
+    CuratorZkTemplate template;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = new TestingServer(true);
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @BeforeEach
+    void connect() throws Exception {
+        client = newClient();
+        template = new CuratorZkTemplate(client, client.getZookeeperClient().getRetryPolicy(), properties());
+    }
+
+    @AfterEach
+    void disconnect() {
+        clients.forEach(CuratorFramework::close);
+        clients.clear();
+    }
+
+    /**
+     * 子类可覆盖修改配置
+     */
+    CuratorZkProperties properties() {
+        CuratorZkProperties properties = new CuratorZkProperties();
+        properties.setConnectString(server.getConnectString());
+        return properties;
+    }
+
+    CuratorFramework newClient() throws InterruptedException {
+        CuratorFramework newClient = CuratorFrameworkFactory.newClient(server.getConnectString(), 10000, 5000, new ExponentialBackoffRetry(20, 10));
+        newClient.start();
+        newClient.blockUntilConnected();
+        clients.add(newClient);
+        return newClient;
+    }
+
+    static void await(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).as("condition not met in %d ms", timeoutMs).isTrue();
+    }
+}
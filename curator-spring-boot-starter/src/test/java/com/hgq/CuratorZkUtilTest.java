@@ -0,0 +1,59 @@
+package com.hgq;
+
+import org.apache.zookeeper.KeeperException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkUtilTest extends CuratorZkTestSupport {
+
+    private CuratorZkUtil util;
+
+    @BeforeEach
+    void openUtil() {
+        util = new CuratorZkUtil(client);
+    }
+
+    @AfterEach
+    void closeUtil() {
+        util.close();
+    }
+
+    @Test
+    void batchReadKeepsOrderAndReportsMissingNodes() throws Exception {
+        client.create().creatingParentsIfNeeded().forPath("/util/batch/b", "b".getBytes(StandardCharsets.UTF_8));
+        client.create().forPath("/util/batch/a", "a".getBytes(StandardCharsets.UTF_8));
+        List<String> paths = Arrays.asList("/util/batch/b", "/util/batch/missing", "/util/batch/a");
+
+        Map<String, CuratorZkNodeData> results = CuratorZkUtil.getNodeDataBatch(paths);
+        assertThat(results.keySet()).containsExactlyElementsOf(paths);
+        assertThat(results.get("/util/batch/b").getData()).isEqualTo("b");
+        assertThat(results.get("/util/batch/a").getData()).isEqualTo("a");
+        assertThat(results.get("/util/batch/missing").getCode()).isEqualTo(KeeperException.Code.NONODE);
+    }
+
+    /**
+     * 超时未返回的节点以 OPERATIONTIMEOUT 表示，仍按传入顺序返回所有节点
+     */
+    @Test
+    void batchReadFillsTimedOutNodes() throws Exception {
+        List<String> paths = Arrays.asList("/util/timeout/a", "/util/timeout/b");
+        server.stop();
+        try {
+            Map<String, CuratorZkNodeData> results = CuratorZkUtil.getNodeDataBatch(paths, 200, TimeUnit.MILLISECONDS);
+            assertThat(results.keySet()).containsExactlyElementsOf(paths);
+            assertThat(results.values()).extracting(CuratorZkNodeData::getCode).containsOnly(KeeperException.Code.OPERATIONTIMEOUT);
+        } finally {
+            server.restart();
+        }
+        assertThat(client.blockUntilConnected(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,223 @@
+package com.hgq;
+
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CuratorZkWatcherRegistryTest extends CuratorZkTestSupport {
+
+    private CuratorZkEventDispatcher dispatcher;
+    private CuratorZkWatcherRegistry registry;
+
+    @BeforeEach
+    void openRegistry() {
+        dispatcher = new CuratorZkEventDispatcher(2, 10000, CuratorZkEventDispatcher.OverflowPolicy.BLOCK, false);
+        registry = new CuratorZkWatcherRegistry(client, dispatcher);
+    }
+
+    @AfterEach
+    void closeRegistry() {
+        registry.close();
+        dispatcher.close();
+    }
+
+    @Test
+    void replaysExistingNodesToLateListener() throws Exception {
+        String path = "/registry/late";
+        client.create().creatingParentsIfNeeded().forPath(path + "/a", "1".getBytes());
+        RecordingListener first = new RecordingListener();
+        registry.register(path, true, first);
+        await(() -> first.initialized.get() == 1, 5000);
+
+        RecordingListener second = new RecordingListener();
+        registry.register(path, true, second);
+        await(() -> second.initialized.get() == 1, 5000);
+        assertThat(second.events()).containsExactlyInAnyOrder("NODE_CREATED " + path, "NODE_CREATED " + path + "/a");
+        assertThat(registry.getCacheCount()).isEqualTo(1);
+
+        client.setData().forPath(path + "/a", "2".getBytes());
+        await(() -> second.events().contains("NODE_CHANGED " + path + "/a"), 5000);
+        await(() -> first.events().size() == 3, 5000);
+        assertThat(second.events()).containsExactlyInAnyOrderElementsOf(first.events());
+    }
+
+    /**
+     * 缓存初始化完成前加入的监听器也能收到已加载的节点，且每个节点只收到一次创建事件
+     */
+    @Test
+    void replaysOnceToListenerJoiningDuringInitialization() throws Exception {
+        String path = "/registry/loading";
+        client.create().creatingParentsIfNeeded().forPath(path);
+        for (int i = 0; i < 200; i++) {
+            client.create().forPath(path + "/n" + i);
+        }
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        registry.register(path, true, first);
+        Thread.sleep(20);
+        registry.register(path, true, second);
+
+        await(() -> first.initialized.get() == 1 && second.initialized.get() == 1, 10000);
+        assertThat(second.events()).hasSize(201).doesNotHaveDuplicates();
+        assertThat(second.events()).containsExactlyInAnyOrderElementsOf(first.events());
+    }
+
+    @Test
+    void closesCacheWithLastListener() throws Exception {
+        String path = "/registry/refcount";
+        client.create().creatingParentsIfNeeded().forPath(path);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        registry.register(path, false, first);
+        registry.register(path, false, second);
+        assertThat(registry.getCacheCount()).isEqualTo(1);
+
+        assertThat(registry.unregister(path, false, first)).isTrue();
+        assertThat(registry.getCacheCount()).isEqualTo(1);
+        assertThat(registry.unregister(path, false, second)).isTrue();
+        assertThat(registry.getCacheCount()).isZero();
+        assertThat(registry.unregister(path, false, second)).isFalse();
+    }
+
+    /**
+     * 按 Options 注册的监听可以用新建的 Options 或只按路径注销，不会泄漏缓存
+     */
+    @Test
+    void unregistersSelectiveListenerWithRebuiltOptions() throws Exception {
+        String path = "/registry/selective";
+        client.create().creatingParentsIfNeeded().forPath(path + "/member-a");
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        registry.register(path, CuratorZkSubtreeCache.Options.defaults().withPathFilter(p -> p.contains("member-")), first);
+        registry.register(path, CuratorZkSubtreeCache.Options.defaults().withMaxDepth(1).statOnly(), second);
+        assertThat(registry.getCacheCount()).isEqualTo(2);
+
+        assertThat(registry.unregister(path, CuratorZkSubtreeCache.Options.defaults().withPathFilter(p -> p.contains("member-")), first)).isTrue();
+        assertThat(registry.getCacheCount()).isEqualTo(1);
+        assertThat(registry.unregister(path, true, second)).isTrue();
+        assertThat(registry.getCacheCount()).isZero();
+        assertThat(registry.unregister(path, CuratorZkSubtreeCache.Options.defaults().withMaxDepth(1).statOnly(), second)).isFalse();
+    }
+
+    /**
+     * 监听器在回调中注册和注销监听不会死锁，新注册的监听器收到补发事件
+     */
+    @Test
+    void listenerCanRegisterFromCallback() throws Exception {
+        String path = "/registry/nested";
+        client.create().creatingParentsIfNeeded().forPath(path + "/a");
+        RecordingListener nested = new RecordingListener();
+        RecordingListener outer = new RecordingListener() {
+            @Override
+            public void initialized() {
+                registry.register(path, true, nested);
+                registry.unregister(path, true, this);
+                super.initialized();
+            }
+        };
+        registry.register(path, true, outer);
+        await(() -> nested.initialized.get() == 1, 5000);
+        assertThat(nested.events()).containsExactlyInAnyOrder("NODE_CREATED " + path, "NODE_CREATED " + path + "/a");
+        assertThat(registry.getCacheCount()).isEqualTo(1);
+    }
+
+    /**
+     * 分发容量已满时在回调中注册监听，补发等待超时后丢弃事件，不会一直阻塞
+     */
+    @Test
+    void nestedRegistrationDoesNotDeadlockWhenFull() throws Exception {
+        registry.close();
+        dispatcher.close();
+        dispatcher = new CuratorZkEventDispatcher(1, 1, CuratorZkEventDispatcher.OverflowPolicy.BLOCK, 100, false);
+        registry = new CuratorZkWatcherRegistry(client, dispatcher);
+        String path = "/registry/full";
+        client.create().creatingParentsIfNeeded().forPath(path + "/a");
+        RecordingListener nested = new RecordingListener();
+        RecordingListener outer = new RecordingListener() {
+            @Override
+            public void initialized() {
+                registry.register(path, true, nested);
+                super.initialized();
+            }
+        };
+        registry.register(path, true, outer);
+        await(() -> outer.initialized.get() == 1, 5000);
+        assertThat(dispatcher.getDroppedCount()).isPositive();
+
+        // 补发时被丢弃的节点按缓存中的最新数据补偿
+        await(() -> nested.events().containsAll(Arrays.asList("NODE_CREATED " + path, "NODE_CREATED " + path + "/a")), 5000);
+        client.setData().forPath(path + "/a", "1".getBytes());
+        await(() -> nested.events().contains("NODE_CHANGED " + path + "/a"), 5000);
+    }
+
+    /**
+     * 事件因容量已满被丢弃后，监听器按缓存中的最新数据收到补偿事件，不会停留在旧状态
+     */
+    @Test
+    void droppedEventsAreResyncedFromCache() throws Exception {
+        registry.close();
+        dispatcher.close();
+        dispatcher = new CuratorZkEventDispatcher(1, 1, CuratorZkEventDispatcher.OverflowPolicy.DROP, false);
+        registry = new CuratorZkWatcherRegistry(client, dispatcher);
+        String path = "/registry/dropped";
+        client.create().creatingParentsIfNeeded().forPath(path, "0".getBytes());
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void event(Type type, ChildData oldData, ChildData data) {
+                super.event(type, oldData, data);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        registry.register(path, false, listener);
+        await(() -> listener.events().size() == 1, 5000);
+
+        client.setData().forPath(path, "1".getBytes());
+        client.setData().forPath(path, "2".getBytes());
+        await(() -> dispatcher.getDroppedCount() > 0, 5000);
+        client.delete().forPath(path);
+        release.countDown();
+
+        await(() -> listener.events().contains("NODE_DELETED " + path) && listener.initialized.get() == 1, 5000);
+        List<String> events = listener.events();
+        assertThat(events.get(0)).isEqualTo("NODE_CREATED " + path);
+        assertThat(events.get(events.size() - 1)).isEqualTo("NODE_DELETED " + path);
+        assertThat(events).hasSizeLessThan(4);
+    }
+
+    static class RecordingListener implements CuratorCacheListener {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger initialized = new AtomicInteger();
+
+        @Override
+        public void event(Type type, ChildData oldData, ChildData data) {
+            events.add(type + " " + (null != data ? data.getPath() : oldData.getPath()));
+        }
+
+        @Override
+        public void initialized() {
+            initialized.incrementAndGet();
+        }
+
+        List<String> events() {
+            synchronized (events) {
+                return new ArrayList<>(events);
+            }
+        }
+    }
+}
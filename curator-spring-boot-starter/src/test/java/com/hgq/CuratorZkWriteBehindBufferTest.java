@@ -0,0 +1,70 @@
+package com.hgq;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CuratorZkWriteBehindBufferTest extends CuratorZkTestSupport {
+
+    @Test
+    void coalescesToLatestValue() throws Exception {
+        client.create().forPath("/write-behind");
+        CuratorZkWriteBehindBuffer buffer = new CuratorZkWriteBehindBuffer(
+                new CuratorZkBulkWriter(client, 100, 1024 * 1024, 10000), 60000, 1000);
+        try {
+            for (int i = 0; i < 100; i++) {
+                buffer.setNodeData("/write-behind/a", "a" + i);
+                buffer.setNodeData("/write-behind/b", "b" + i);
+            }
+            assertThat(buffer.getPendingCount()).isEqualTo(2);
+            assertThat(buffer.flush()).isEqualTo(2);
+            assertThat(data("/write-behind/a")).isEqualTo("a99");
+            assertThat(data("/write-behind/b")).isEqualTo("b99");
+            assertThat(buffer.getSubmittedCount()).isEqualTo(200);
+            assertThat(buffer.getWrittenCount()).isEqualTo(2);
+
+            // 节点已存在时直接更新
+            buffer.setNodeData("/write-behind/a", "latest");
+            assertThat(buffer.flush()).isEqualTo(1);
+            assertThat(data("/write-behind/a")).isEqualTo("latest");
+        } finally {
+            buffer.close();
+        }
+    }
+
+    @Test
+    void flushesWhenPendingReachesThresholdAndOnClose() throws Exception {
+        client.create().forPath("/write-behind-threshold");
+        CuratorZkWriteBehindBuffer buffer = new CuratorZkWriteBehindBuffer(
+                new CuratorZkBulkWriter(client, 100, 1024 * 1024, 10000), 60000, 3);
+        for (int i = 0; i < 3; i++) {
+            buffer.setNodeData("/write-behind-threshold/n" + i, "v");
+        }
+        await(() -> buffer.getWrittenCount() == 3, 5000);
+
+        buffer.setNodeData("/write-behind-threshold/last", "v");
+        buffer.close();
+        assertThat(data("/write-behind-threshold/last")).isEqualTo("v");
+        assertThatThrownBy(() -> buffer.setNodeData("/write-behind-threshold/last", "v")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void missingParentIsDropped() {
+        CuratorZkWriteBehindBuffer buffer = new CuratorZkWriteBehindBuffer(
+                new CuratorZkBulkWriter(client, 100, 1024 * 1024, 10000), 60000, 1000);
+        try {
+            buffer.setNodeData("/write-behind-missing/child", "v");
+            assertThat(buffer.flush()).isZero();
+            assertThat(buffer.getPendingCount()).isZero();
+        } finally {
+            buffer.close();
+        }
+    }
+
+    private String data(String path) throws Exception {
+        return new String(client.getData().forPath(path), StandardCharsets.UTF_8);
+    }
+}